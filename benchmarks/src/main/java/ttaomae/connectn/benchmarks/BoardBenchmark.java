@@ -0,0 +1,114 @@
+package ttaomae.connectn.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ttaomae.connectn.ArrayBoard;
+import ttaomae.connectn.BitBoard;
+import ttaomae.connectn.Board;
+import ttaomae.connectn.Piece;
+
+/**
+ * Benchmarks for the basic operations of each {@link Board} implementation.
+ *
+ * @author Todd Taomae
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BoardBenchmark
+{
+    /** Moves of a game which is not yet won, on a standard 6x7 board */
+    private static final int[] MID_GAME = {3, 3, 2, 4, 4, 2, 5, 1, 1, 5, 0, 6};
+
+    @Param({"array", "bit"})
+    public String implementation;
+
+    @Param({"empty", "mid-game", "full"})
+    public String position;
+
+    private Board board;
+    private int move;
+
+    @Setup
+    public void setUp()
+    {
+        this.board = "array".equals(this.implementation) ? new ArrayBoard() : new BitBoard();
+        switch (this.position) {
+            case "empty":
+                break;
+            case "mid-game":
+                for (int col : MID_GAME) {
+                    this.board.play(col);
+                }
+                break;
+            case "full":
+                // the game is won partway through, but the board can still
+                // be filled
+                for (int col = 0; col < this.board.getWidth(); col++) {
+                    for (int row = 0; row < this.board.getHeight(); row++) {
+                        this.board.play(col);
+                    }
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("unknown position: " + this.position);
+        }
+
+        // play and undo in the first column which is not full
+        this.move = 0;
+        while (this.move < this.board.getWidth() && !this.board.isValidMove(this.move)) {
+            this.move++;
+        }
+    }
+
+    @Benchmark
+    public long playUndo()
+    {
+        if (this.move == this.board.getWidth()) {
+            // there are no moves on a full board
+            return this.board.getHash();
+        }
+        this.board.play(this.move);
+        long hash = this.board.getHash();
+        this.board.undoPlay();
+        return hash;
+    }
+
+    @Benchmark
+    public Piece getWinner()
+    {
+        return this.board.getWinner();
+    }
+
+    @Benchmark
+    public Board getMutableCopy()
+    {
+        return this.board.getImmutableView().getMutableCopy();
+    }
+
+    @Benchmark
+    public long getMutableCopyAndPlay()
+    {
+        // includes the cost of copying the arrays of a copy-on-write board
+        Board copy = this.board.getImmutableView().getMutableCopy();
+        if (this.move < copy.getWidth()) {
+            copy.play(this.move);
+        }
+        return copy.getHash();
+    }
+}
@@ -0,0 +1,81 @@
+package ttaomae.connectn.benchmarks;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ttaomae.connectn.network.LostConnectionException;
+import ttaomae.connectn.network.ProtocolEvent;
+import ttaomae.connectn.network.ProtocolEvent.Message;
+import ttaomae.connectn.network.ProtocolHandler;
+
+/**
+ * Benchmarks for round trips through a pair of {@link ProtocolHandler}s
+ * connected over the loopback interface. Each round trip encodes an event on
+ * one side and decodes it on the other.
+ *
+ * @author Todd Taomae
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ProtocolBenchmark
+{
+    private Socket clientSocket;
+    private Socket serverSocket;
+    private ProtocolHandler client;
+    private ProtocolHandler server;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        try (ServerSocket listener = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            this.clientSocket = new Socket(listener.getInetAddress(), listener.getLocalPort());
+            this.serverSocket = listener.accept();
+        }
+        // each message is a few bytes, so do not wait to fill a packet
+        this.clientSocket.setTcpNoDelay(true);
+        this.serverSocket.setTcpNoDelay(true);
+
+        this.client = new ProtocolHandler(this.clientSocket);
+        this.server = new ProtocolHandler(this.serverSocket);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException
+    {
+        this.clientSocket.close();
+        this.serverSocket.close();
+    }
+
+    @Benchmark
+    public ProtocolEvent messageRoundTrip() throws LostConnectionException
+    {
+        this.server.sendMessage(Message.REQUEST_MOVE);
+        return this.client.receiveEvent();
+    }
+
+    @Benchmark
+    public ProtocolEvent moveRoundTrip() throws LostConnectionException
+    {
+        this.client.sendPlayerMove(3);
+        return this.server.receiveEvent();
+    }
+}
@@ -0,0 +1,95 @@
+package ttaomae.connectn.benchmarks;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ttaomae.connectn.BitBoard;
+import ttaomae.connectn.Board;
+import ttaomae.connectn.player.AlphaBetaPlayer;
+import ttaomae.connectn.player.EvaluatorRegistry;
+
+/**
+ * Benchmarks for selecting a move with {@link AlphaBetaPlayer} on boards of
+ * several sizes. One player is created for each trial, and its tables are
+ * cleared before each move, so that the transposition table does not carry
+ * results over from previous invocations and the timings do not include
+ * allocating the tables.
+ *
+ * @author Todd Taomae
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SearchBenchmark
+{
+    /** Opening moves played before searching, relative to the center column */
+    private static final int[] OPENING = {0, 0, -1, 1};
+
+    @Param({"3", "4", "5", "6", "7", "8"})
+    public int depth;
+
+    /** Height, width and win condition of the board */
+    @Param({"6x7x4", "7x8x4", "8x9x5"})
+    public String geometry;
+
+    @Param({EvaluatorRegistry.LINES})
+    public String evaluator;
+
+    private ExecutorService executorService;
+    private Board board;
+    private AlphaBetaPlayer player;
+
+    @Setup(Level.Trial)
+    public void setUpTrial()
+    {
+        String[] dimensions = this.geometry.split("x");
+        this.board = new BitBoard(Integer.parseInt(dimensions[0]),
+                Integer.parseInt(dimensions[1]), Integer.parseInt(dimensions[2]));
+        int center = this.board.getWidth() / 2;
+        for (int offset : OPENING) {
+            this.board.play(center + offset);
+        }
+
+        this.executorService = Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors());
+        this.player = AlphaBetaPlayer.withEvaluator(this.depth, this.evaluator,
+                this.executorService);
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpInvocation()
+    {
+        this.player.clearTables();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial()
+    {
+        this.executorService.shutdownNow();
+    }
+
+    @Benchmark
+    public Optional<Integer> getMove()
+    {
+        return this.player.getMove(this.board.getImmutableView());
+    }
+}
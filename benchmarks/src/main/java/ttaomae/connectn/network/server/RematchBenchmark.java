@@ -0,0 +1,81 @@
+package ttaomae.connectn.network.server;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for waiting on the rematch responses of many concurrent games
+ * with each {@link ThreadMode}. Each game waits for two responses, each of
+ * which arrives after a fixed delay, so this measures how long it takes for
+ * every game to get both of its responses. This is in the same package as the
+ * server, since the {@link RematchExecutor} is not public.
+ * <p>
+ * Virtual threads require Java 21 or later; on earlier versions both modes
+ * use platform threads.
+ *
+ * @author Todd Taomae
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class RematchBenchmark
+{
+    /** How long each player takes to respond to a rematch request */
+    private static final long RESPONSE_MILLIS = 10;
+
+    @Param({"PLATFORM", "VIRTUAL"})
+    public ThreadMode threadMode;
+
+    @Param({"10000"})
+    public int games;
+
+    private RematchExecutor rematchExecutor;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        this.rematchExecutor = RematchExecutor.forThreadMode(this.threadMode);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException
+    {
+        this.rematchExecutor.shutdown();
+        this.rematchExecutor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    @Benchmark
+    public void awaitResponses() throws InterruptedException
+    {
+        CountDownLatch responses = new CountDownLatch(2 * this.games);
+        for (int i = 0; i < 2 * this.games; i++) {
+            this.rematchExecutor.execute(() -> {
+                try {
+                    Thread.sleep(RESPONSE_MILLIS);
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                responses.countDown();
+            });
+        }
+        responses.await();
+    }
+}
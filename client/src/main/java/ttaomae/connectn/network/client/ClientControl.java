@@ -10,7 +10,7 @@ import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.TextField;
 import javafx.scene.layout.BorderPane;
-import ttaomae.connectn.ArrayBoard;
+import ttaomae.connectn.BitBoard;
 import ttaomae.connectn.Board;
 import ttaomae.connectn.gui.BoardPanel;
 import ttaomae.connectn.gui.MousePlayer;
@@ -55,7 +55,7 @@ public class ClientControl extends BorderPane implements ProtocolListener
         this.connected = false;
 
         // display a default board to start
-        this.boardPanel.setBoard(new ArrayBoard());
+        this.boardPanel.setBoard(new BitBoard());
     }
 
     /**
@@ -88,7 +88,7 @@ public class ClientControl extends BorderPane implements ProtocolListener
                 int port = Integer.parseInt(portField.getText());
                 Socket socket = new Socket(host, port);
 
-                Board board = new ArrayBoard();
+                Board board = new BitBoard();
                 this.boardPanel.setBoard(board);
 
                 MousePlayer player = new MousePlayer(this.boardPanel);
@@ -4,10 +4,8 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkElementIndex;
 import static com.google.common.base.Preconditions.checkNotNull;
 
-import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Deque;
 import java.util.List;
 
 import org.slf4j.Logger;
@@ -36,11 +34,28 @@ public class ArrayBoard implements Board, ImmutableBoard
     private final int winCondition;
     private int currentTurn;
 
-    /** List of past plays on this board */
-    private final Deque<Integer> playHistory;
+    /** Lines and Zobrist keys shared by all boards with the same dimensions */
+    private final BoardGeometry geometry;
+    private long hash;
+    private long mirrorHash;
+    /** Number of pieces each player has in each line of the geometry */
+    private final int[] blackLineCounts;
+    private final int[] redLineCounts;
+
+    /** The first player to get n-in-a-row, or NONE */
+    private Piece winner;
+    /** The turn on which the winner got n-in-a-row */
+    private int winningTurn;
+
+    /** Number of pieces in each column */
+    private final int[] columnHeights;
+    /** Columns of past plays on this board, indexed by turn */
+    private final int[] playHistory;
 
     /** List of objects listening to this Board */
     private final List<BoardListener> listeners;
+    /** Whether plays are not logged; true for copies, which are used for searching */
+    private boolean quiet;
 
     /**
      * Constructs a new empty Board with the specified height, width, and win
@@ -67,9 +82,19 @@ public class ArrayBoard implements Board, ImmutableBoard
 
         this.winCondition = winCondition;
         this.currentTurn = 0;
+        this.winner = Piece.NONE;
+        this.winningTurn = -1;
 
-        this.playHistory = new ArrayDeque<>();
+        this.geometry = BoardGeometry.of(height, width, winCondition);
+        this.hash = 0L;
+        this.mirrorHash = 0L;
+        this.blackLineCounts = new int[this.geometry.getLineCount()];
+        this.redLineCounts = new int[this.geometry.getLineCount()];
+
+        this.columnHeights = new int[width];
+        this.playHistory = new int[height * width];
         this.listeners = new ArrayList<>();
+        this.quiet = false;
     }
 
     /**
@@ -101,136 +126,41 @@ public class ArrayBoard implements Board, ImmutableBoard
     @Override
     public Piece getWinner()
     {
+        if (this.winner != Piece.NONE) {
+            return this.winner;
+        }
         // if the board is full it is a draw
         if (this.getCurrentTurn() == this.getHeight() * this.getWidth()) {
             return Piece.DRAW;
         }
-        // there cannot be a winner until the first player has played at least
-        // winCondition pieces
-        if (this.getCurrentTurn() < (this.getWinCondition() * 2) - 1) {
-            return Piece.NONE;
-        }
 
-        // check each board position
-        for (int row = 0; row < this.getHeight(); row++) {
-            for (int col = 0; col < this.getWidth(); col++) {
-                // if the current location is empty, it cannot be part of the
-                // winning line, so skip to the next location
-                if (this.getPieceAt(col, row) == Piece.NONE) {
-                    continue;
-                }
-
-                // For each direction (horizontal, vertical, up-right, up-left)
-                // check if there are n pieces of the same color in a line.
-                // This is done by keeping a count for each direction, one color
-                // increments the count and the other decrements the count.
-                // When checking the nth piece in a line, if the absolute value
-                // of the count is not n, then there cannot be a winner for that
-                // line, so we can stop checking.
-                int horizontal = 0;
-                int vertical = 0;
-                int upLeft = 0;
-                int upRight = 0;
-
-                boolean rightPossible = col <= this.getWidth() - this.getWinCondition();
-                boolean leftPossible = col >= this.getWinCondition() - 1;
-                boolean vertcalPossible = row <= this.getHeight() - this.getWinCondition();
-                if (rightPossible) {
-                    loop:
-                    for (int i = 0; i < this.getWinCondition(); i++) {
-                        switch (this.getPieceAt(col + i, row)) {
-                            case BLACK:
-                                if (horizontal < i) break loop;
-                                horizontal++;
-                                break;
-                            case RED:
-                                if (horizontal > -i) break loop;
-                                horizontal--;
-                                break;
-                            default:
-                                break;
-                        }
-                    }
-                    if (horizontal == this.getWinCondition()) {
-                        return Piece.BLACK;
-                    }
-                    else if (horizontal == -this.getWinCondition()) {
-                        return Piece.RED;
-                    }
-                }
-                if (vertcalPossible) {
-                    loop:
-                    for (int i = 0; i < this.getWinCondition(); i++) {
-                        switch (this.getPieceAt(col, row + i)) {
-                            case BLACK:
-                                if (vertical < i) break loop;
-                                vertical++;
-                                break;
-                            case RED:
-                                if (vertical > -i) break loop;
-                                vertical--;
-                                break;
-                            default:
-                                break;
-                        }
-                    }
-                    if (vertical == this.getWinCondition()) {
-                        return Piece.BLACK;
-                    }
-                    else if (vertical == -this.getWinCondition()) {
-                        return Piece.RED;
-                    }
-                }
-                if (vertcalPossible && rightPossible) {
-                    loop:
-                    for (int i = 0; i < this.getWinCondition(); i++) {
-                        switch (this.getPieceAt(col + i, row + i)) {
-                            case BLACK:
-                                if (upRight < i) break loop;
-                                upRight++;
-                                break;
-                            case RED:
-                                if (upRight > -i) break loop;
-                                upRight--;
-                                break;
-                            default:
-                                break;
-                        }
-                    }
-                    if (upRight == this.getWinCondition()) {
-                        return Piece.BLACK;
-                    }
-                    else if (upRight == -this.getWinCondition()) {
-                        return Piece.RED;
-                    }
-                }
-                if (vertcalPossible && leftPossible) {
-                    loop:
-                    for (int i = 0; i < this.getWinCondition(); i++) {
-                        switch (this.getPieceAt(col - i, row + i)) {
-                            case BLACK:
-                                if (upLeft < i) break loop;
-                                upLeft++;
-                                break;
-                            case RED:
-                                if (upLeft > -i) break loop;
-                                upLeft--;
-                                break;
-                            default:
-                                break;
-                        }
-                    }
-                    if (upLeft == this.getWinCondition()) {
-                        return Piece.BLACK;
-                    }
-                    else if (upLeft == -this.getWinCondition()) {
-                        return Piece.RED;
-                    }
-                }
+        return Piece.NONE;
+    }
+
+    /**
+     * Adds or removes a piece at the specified position to the line counts of
+     * its player. Only the lines which pass through the specified position
+     * are updated.
+     *
+     * @param col the column of the piece
+     * @param row the row of the piece
+     * @param delta 1 if the piece was added, -1 if it was removed
+     * @return true if the piece completes an n-in-a-row, false otherwise
+     */
+    private boolean updateLineCounts(int col, int row, int delta)
+    {
+        int[] lineCounts = this.board[row][col] == Piece.BLACK
+                ? this.blackLineCounts : this.redLineCounts;
+        int cell = this.geometry.getCell(col, row);
+        boolean nInARow = false;
+        for (int i = 0; i < this.geometry.getLineCountThrough(cell); i++) {
+            int line = this.geometry.getLineThrough(cell, i);
+            lineCounts[line] += delta;
+            if (lineCounts[line] == this.winCondition) {
+                nInARow = true;
             }
         }
-
-        return Piece.NONE;
+        return nInARow;
     }
 
     @Override
@@ -253,6 +183,18 @@ public class ArrayBoard implements Board, ImmutableBoard
         return (this.getCurrentTurn() % 2 == 0) ? Piece.BLACK : Piece.RED;
     }
 
+    @Override
+    public long getHash()
+    {
+        return this.hash;
+    }
+
+    @Override
+    public long getMirrorHash()
+    {
+        return this.mirrorHash;
+    }
+
     @Override
     public void play(int col) throws IllegalMoveException
     {
@@ -265,52 +207,56 @@ public class ArrayBoard implements Board, ImmutableBoard
             }
         }
 
-        logger.debug("Playing move on column: {}", col);
+        if (!this.quiet) {
+            logger.debug("Playing move on column: {}", col);
+        }
 
-        // check each row starting from the bottom
-        for (int row = 0; row < this.getHeight(); row++) {
-            if (this.board[row][col] == Piece.NONE) {
-                this.board[row][col] = this.getNextPiece();
-                this.playHistory.addLast(col);
-                currentTurn++;
-                this.notifyListeners();
-                break;
-            }
+        int row = this.columnHeights[col];
+        Piece piece = this.getNextPiece();
+        this.board[row][col] = piece;
+        ZobristKeys keys = this.geometry.getZobristKeys();
+        this.hash ^= keys.getKey(piece, col, row);
+        this.mirrorHash ^= keys.getKey(piece, this.getWidth() - 1 - col, row);
+        this.columnHeights[col]++;
+        this.playHistory[this.currentTurn] = col;
+        boolean nInARow = updateLineCounts(col, row, 1);
+        // once there is a winner, later plays cannot change it
+        if (this.winner == Piece.NONE && nInARow) {
+            this.winner = piece;
+            this.winningTurn = this.currentTurn;
         }
+        this.currentTurn++;
+        this.notifyListeners();
     }
 
     @Override
     public void undoPlay()
     {
-        if (this.playHistory.isEmpty()) {
+        if (this.currentTurn == 0) {
             throw new IllegalStateException("No moves to undo.");
         }
 
-        int lastPlayCol = this.playHistory.getLast();
+        int lastPlayCol = this.playHistory[this.currentTurn - 1];
 
-        logger.debug("Undoing move on column: {}", lastPlayCol);
-
-        boolean moveUndone = false;
-
-        // find highest non-empty row for last play column
-        for (int row = this.getHeight() - 1; row >= 0; row--) {
-            // make empty
-            if (this.board[row][lastPlayCol] != Piece.NONE) {
-                this.board[row][lastPlayCol] = Piece.NONE;
-                this.playHistory.removeLast();
-                this.currentTurn--;
-
-                moveUndone = true;
-
-                this.notifyListeners();
-                break;
-            }
+        if (!this.quiet) {
+            logger.debug("Undoing move on column: {}", lastPlayCol);
         }
 
-        // this should not happen
-        if (!moveUndone) {
-            throw new IllegalStateException("Board is in illegal state. Could not undo play.");
+        this.columnHeights[lastPlayCol]--;
+        int row = this.columnHeights[lastPlayCol];
+        Piece piece = this.board[row][lastPlayCol];
+        ZobristKeys keys = this.geometry.getZobristKeys();
+        this.hash ^= keys.getKey(piece, lastPlayCol, row);
+        this.mirrorHash ^= keys.getKey(piece, this.getWidth() - 1 - lastPlayCol, row);
+        updateLineCounts(lastPlayCol, row, -1);
+        this.board[row][lastPlayCol] = Piece.NONE;
+        this.currentTurn--;
+        if (this.currentTurn == this.winningTurn) {
+            this.winner = Piece.NONE;
+            this.winningTurn = -1;
         }
+
+        this.notifyListeners();
     }
 
     @Override
@@ -321,7 +267,7 @@ public class ArrayBoard implements Board, ImmutableBoard
             return false;
         }
 
-        return this.getPieceAt(col, this.getHeight() - 1) == Piece.NONE;
+        return this.columnHeights[col] < this.getHeight();
     }
 
     @Override
@@ -332,7 +278,19 @@ public class ArrayBoard implements Board, ImmutableBoard
         for (int i = 0; i < this.board.length; i++) {
             System.arraycopy(this.board[i], 0, copy.board[i], 0, this.board[i].length);
         }
+        System.arraycopy(this.columnHeights, 0, copy.columnHeights, 0,
+                this.columnHeights.length);
+        System.arraycopy(this.playHistory, 0, copy.playHistory, 0, this.currentTurn);
         copy.currentTurn = this.currentTurn;
+        copy.winner = this.winner;
+        copy.winningTurn = this.winningTurn;
+        copy.hash = this.hash;
+        copy.mirrorHash = this.mirrorHash;
+        copy.quiet = true;
+        System.arraycopy(this.blackLineCounts, 0, copy.blackLineCounts, 0,
+                this.blackLineCounts.length);
+        System.arraycopy(this.redLineCounts, 0, copy.redLineCounts, 0,
+                this.redLineCounts.length);
 
         return copy;
     }
@@ -355,6 +313,11 @@ public class ArrayBoard implements Board, ImmutableBoard
      */
     private void notifyListeners()
     {
+        // copies used for searching rarely have listeners, so avoid creating
+        // an iterator on every play
+        if (this.listeners.isEmpty()) {
+            return;
+        }
         for (BoardListener bl : this.listeners) {
             assert bl != null : "BoardListener should not be null";
             bl.boardChanged();
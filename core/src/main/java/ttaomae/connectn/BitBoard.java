@@ -0,0 +1,424 @@
+package ttaomae.connectn;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link Board} implementation backed by bitboards. Each player's pieces are
+ * stored as a bit mask, where each column occupies {@code height + 1}
+ * consecutive bits, starting from the bottom row. The extra bit at the top of
+ * each column is a sentinel which is always empty, which prevents lines from
+ * wrapping between columns. Boards which fit in 64 bits use a single
+ * {@code long} per player, while larger boards use multiple words.
+ * <p>
+ * Copies share their arrays with the original board until one of them is
+ * modified, at which point the modified board makes its own copy of the
+ * arrays. This makes copies cheap to create, and copies which are only read
+ * never copy the arrays at all.
+ *
+ * @author Todd Taomae
+ */
+public class BitBoard implements Board, ImmutableBoard
+{
+    private static final Logger logger = LoggerFactory.getLogger(BitBoard.class);
+
+    /** Default board height */
+    private static final int DEFAULT_HEIGHT = 6;
+    /** Default board width */
+    private static final int DEFAULT_WIDTH = 7;
+    /** Default board win condition */
+    private static final int DEFAULT_WIN_CONDITION = 4;
+
+    private final int height;
+    private final int width;
+    private final int winCondition;
+    /** Number of bits used by each column, including the sentinel bit */
+    private final int columnStride;
+    /** Bit shifts for each direction: vertical, horizontal, and both diagonals */
+    private final int[] directions;
+
+    /** Bit masks of each player's pieces */
+    private long[] blackPieces;
+    private long[] redPieces;
+
+    /** Number of pieces in each column */
+    private int[] columnHeights;
+    /** List of past plays on this board */
+    private int[] playHistory;
+    /**
+     * Whether the arrays may be shared with a copy of this board, and must be
+     * copied before they are modified
+     */
+    private volatile boolean shared;
+    private int currentTurn;
+
+    /** The first player to get n-in-a-row, or NONE */
+    private Piece winner;
+    /** The turn on which the winner got n-in-a-row */
+    private int winningTurn;
+
+    /** Keys used to maintain the hash of this board */
+    private final ZobristKeys zobristKeys;
+    private long hash;
+    private long mirrorHash;
+
+    /** List of objects listening to this Board */
+    private final List<BoardListener> listeners;
+    /** Whether plays are not logged; true for copies, which are used for searching */
+    private boolean quiet;
+
+    /**
+     * Constructs a new empty Board with the specified height, width, and win
+     * condition. The height and width must be at least 2. The win condition
+     * must be at least 2 and cannot be greater than the max of the height and
+     * width.
+     *
+     * @param height the height of this Board
+     * @param width the width of this Board
+     * @param winCondition the win condition of this board
+     */
+    public BitBoard(int height, int width, int winCondition)
+    {
+        checkArgument(height >= 2, "height must be at least 2");
+        checkArgument(width >= 2, "width must be at least 2");
+        checkArgument(winCondition >= 2 && winCondition <= Math.max(height, width),
+                    "winCondition must be between 2 and max(height, width)");
+
+        this.height = height;
+        this.width = width;
+        this.winCondition = winCondition;
+        this.columnStride = height + 1;
+        this.directions = new int[] {1, this.columnStride, this.columnStride - 1,
+                this.columnStride + 1};
+
+        int words = (width * this.columnStride + Long.SIZE - 1) / Long.SIZE;
+        this.blackPieces = new long[words];
+        this.redPieces = new long[words];
+
+        this.columnHeights = new int[width];
+        this.playHistory = new int[height * width];
+        this.currentTurn = 0;
+        this.winner = Piece.NONE;
+        this.winningTurn = -1;
+
+        this.zobristKeys = BoardGeometry.of(height, width, winCondition).getZobristKeys();
+        this.hash = 0L;
+        this.mirrorHash = 0L;
+
+        this.listeners = new ArrayList<>();
+        this.quiet = false;
+        this.shared = false;
+    }
+
+    /**
+     * Constructs a new Board with the default parameters.
+     */
+    public BitBoard()
+    {
+        this(DEFAULT_HEIGHT, DEFAULT_WIDTH, DEFAULT_WIN_CONDITION);
+    }
+
+    /**
+     * Constructs a new Board with the same pieces and history as the specified
+     * board, sharing its arrays.
+     */
+    private BitBoard(BitBoard other)
+    {
+        this.height = other.height;
+        this.width = other.width;
+        this.winCondition = other.winCondition;
+        this.columnStride = other.columnStride;
+        this.directions = other.directions;
+
+        this.blackPieces = other.blackPieces;
+        this.redPieces = other.redPieces;
+        this.columnHeights = other.columnHeights;
+        this.playHistory = other.playHistory;
+        this.shared = true;
+
+        this.currentTurn = other.currentTurn;
+        this.winner = other.winner;
+        this.winningTurn = other.winningTurn;
+
+        this.zobristKeys = other.zobristKeys;
+        this.hash = other.hash;
+        this.mirrorHash = other.mirrorHash;
+
+        this.listeners = new ArrayList<>();
+        this.quiet = true;
+    }
+
+    @Override
+    public int getHeight()
+    {
+        return this.height;
+    }
+
+    @Override
+    public int getWidth()
+    {
+        return this.width;
+    }
+
+    @Override
+    public int getWinCondition()
+    {
+        return this.winCondition;
+    }
+
+    @Override
+    public Piece getWinner()
+    {
+        if (this.winner != Piece.NONE) {
+            return this.winner;
+        }
+        // if the board is full it is a draw
+        if (this.currentTurn == this.height * this.width) {
+            return Piece.DRAW;
+        }
+
+        return Piece.NONE;
+    }
+
+    /**
+     * Checks if the piece at the specified bit is part of an n-in-a-row.
+     *
+     * @param pieces the pieces of the player who played at the specified bit
+     * @param bit the bit of the last play
+     * @return true if the piece at the specified bit is part of an n-in-a-row,
+     *          false otherwise
+     */
+    private boolean isWinningPlay(long[] pieces, int bit)
+    {
+        if (pieces.length == 1) {
+            return hasNInARow(pieces[0]);
+        }
+
+        // only check the lines which pass through the last play; the sentinel
+        // bits are always empty so a line can never wrap around a column
+        int totalBits = this.width * this.columnStride;
+        for (int direction : this.directions) {
+            int count = 1;
+            for (int b = bit + direction;
+                    count < this.winCondition && b < totalBits && isSet(pieces, b);
+                    b += direction) {
+                count++;
+            }
+            for (int b = bit - direction;
+                    count < this.winCondition && b >= 0 && isSet(pieces, b);
+                    b -= direction) {
+                count++;
+            }
+            if (count >= this.winCondition) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether the specified bit mask contains n-in-a-row in any
+     * direction. For each direction, the mask is repeatedly ANDed with itself
+     * shifted one position further along that direction; any bit which
+     * remains set after (n - 1) shifts is the start of a line.
+     */
+    private boolean hasNInARow(long pieces)
+    {
+        for (int direction : this.directions) {
+            long line = pieces;
+            for (int i = 1; i < this.winCondition && line != 0L; i++) {
+                int shift = i * direction;
+                // shifts are taken mod 64 so large shifts must be handled
+                // explicitly; nothing can remain after shifting off the board
+                line = shift < Long.SIZE ? line & (pieces >>> shift) : 0L;
+            }
+            if (line != 0L) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Piece getPieceAt(int col, int row)
+    {
+        checkElementIndex(col, this.width, "column");
+        checkElementIndex(row, this.height, "row");
+
+        int bit = col * this.columnStride + row;
+        if (isSet(this.blackPieces, bit)) {
+            return Piece.BLACK;
+        }
+        if (isSet(this.redPieces, bit)) {
+            return Piece.RED;
+        }
+        return Piece.NONE;
+    }
+
+    private static boolean isSet(long[] pieces, int bit)
+    {
+        return (pieces[bit / Long.SIZE] & (1L << bit)) != 0L;
+    }
+
+    @Override
+    public int getCurrentTurn()
+    {
+        return this.currentTurn;
+    }
+
+    @Override
+    public Piece getNextPiece()
+    {
+        return (this.currentTurn % 2 == 0) ? Piece.BLACK : Piece.RED;
+    }
+
+    @Override
+    public long getHash()
+    {
+        return this.hash;
+    }
+
+    @Override
+    public long getMirrorHash()
+    {
+        return this.mirrorHash;
+    }
+
+    @Override
+    public void play(int col) throws IllegalMoveException
+    {
+        if (!isValidMove(col)) {
+            if (col < 0 || col >= this.width) {
+                throw new IllegalMoveException("Illegal column: " + col);
+            }
+            else {
+                throw new IllegalMoveException("column " + col + " full");
+            }
+        }
+
+        if (!this.quiet) {
+            logger.debug("Playing move on column: {}", col);
+        }
+
+        unshare();
+        int bit = col * this.columnStride + this.columnHeights[col];
+        long[] pieces = (this.currentTurn % 2 == 0) ? this.blackPieces : this.redPieces;
+        pieces[bit / Long.SIZE] |= 1L << bit;
+        this.hash ^= this.zobristKeys.getKey(getNextPiece(), col, this.columnHeights[col]);
+        this.mirrorHash ^= this.zobristKeys.getKey(getNextPiece(), this.width - 1 - col,
+                this.columnHeights[col]);
+
+        // once there is a winner, later plays cannot change it
+        if (this.winner == Piece.NONE && isWinningPlay(pieces, bit)) {
+            this.winner = getNextPiece();
+            this.winningTurn = this.currentTurn;
+        }
+
+        this.columnHeights[col]++;
+        this.playHistory[this.currentTurn] = col;
+        this.currentTurn++;
+        this.notifyListeners();
+    }
+
+    @Override
+    public void undoPlay()
+    {
+        if (this.currentTurn == 0) {
+            throw new IllegalStateException("No moves to undo.");
+        }
+
+        int lastPlayCol = this.playHistory[this.currentTurn - 1];
+
+        if (!this.quiet) {
+            logger.debug("Undoing move on column: {}", lastPlayCol);
+        }
+
+        unshare();
+        this.currentTurn--;
+        this.columnHeights[lastPlayCol]--;
+        if (this.currentTurn == this.winningTurn) {
+            this.winner = Piece.NONE;
+            this.winningTurn = -1;
+        }
+
+        int bit = lastPlayCol * this.columnStride + this.columnHeights[lastPlayCol];
+        long[] pieces = (this.currentTurn % 2 == 0) ? this.blackPieces : this.redPieces;
+        pieces[bit / Long.SIZE] &= ~(1L << bit);
+        this.hash ^= this.zobristKeys.getKey(getNextPiece(), lastPlayCol,
+                this.columnHeights[lastPlayCol]);
+        this.mirrorHash ^= this.zobristKeys.getKey(getNextPiece(), this.width - 1 - lastPlayCol,
+                this.columnHeights[lastPlayCol]);
+
+        this.notifyListeners();
+    }
+
+    @Override
+    public boolean isValidMove(int col)
+    {
+        // invalid index
+        if (col < 0 || col >= this.width) {
+            return false;
+        }
+
+        return this.columnHeights[col] < this.height;
+    }
+
+    @Override
+    public Board getMutableCopy()
+    {
+        // both boards must copy the arrays before modifying them
+        this.shared = true;
+        return new BitBoard(this);
+    }
+
+    /**
+     * Gives this board its own copy of its arrays if they may be shared with
+     * another board. This must be called before modifying any of the arrays.
+     */
+    private void unshare()
+    {
+        if (this.shared) {
+            this.blackPieces = this.blackPieces.clone();
+            this.redPieces = this.redPieces.clone();
+            this.columnHeights = this.columnHeights.clone();
+            this.playHistory = this.playHistory.clone();
+            this.shared = false;
+        }
+    }
+
+    @Override
+    public ImmutableBoard getImmutableView()
+    {
+        return this;
+    }
+
+    @Override
+    public void addBoardListener(BoardListener boardListener)
+    {
+        checkNotNull(boardListener, "boardListener must not be null");
+        this.listeners.add(boardListener);
+    }
+
+    /**
+     * Notifies all listeners that this Board has been changed.
+     */
+    private void notifyListeners()
+    {
+        // copies used for searching rarely have listeners, so avoid creating
+        // an iterator on every play
+        if (this.listeners.isEmpty()) {
+            return;
+        }
+        for (BoardListener bl : this.listeners) {
+            assert bl != null : "BoardListener should not be null";
+            bl.boardChanged();
+        }
+    }
+}
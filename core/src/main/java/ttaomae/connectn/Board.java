@@ -69,6 +69,23 @@ public interface Board
      */
     Piece getNextPiece();
 
+    /**
+     * Returns a Zobrist hash of the pieces on this Board. Boards with the same
+     * dimensions and the same pieces in the same positions have the same hash.
+     *
+     * @return a hash of the pieces on this Board
+     */
+    long getHash();
+
+    /**
+     * Returns the Zobrist hash of the mirror image of this Board, which is
+     * this Board flipped from left to right. A Board which is the same as its
+     * mirror image has the same hash and mirror hash.
+     *
+     * @return a hash of the mirror image of this Board
+     */
+    long getMirrorHash();
+
     /**
      * Plays the next piece in the specified column. Columns start from 0 on the
      * far left and end with (width - 1) on the far right. The next piece is
@@ -0,0 +1,265 @@
+package ttaomae.connectn;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Precomputed information about boards with a particular height, width and
+ * win condition, including every line of spaces which could win the game.
+ * Geometries are immutable and shared between all boards with the same
+ * dimensions, so they are only computed once.
+ * <p>
+ * Spaces are identified by their cell index, {@code col * height + row}.
+ * Lines are stored in flattened arrays, along with a reverse index from each
+ * cell to the lines which pass through it, so that both can be iterated
+ * without allocating.
+ *
+ * @author Todd Taomae
+ */
+public final class BoardGeometry
+{
+    private static final ConcurrentMap<List<Integer>, BoardGeometry> CACHE
+            = new ConcurrentHashMap<>();
+    /** Column and row steps for horizontal, vertical, and both diagonals */
+    private static final int[][] DIRECTIONS = {{1, 0}, {0, 1}, {1, 1}, {1, -1}};
+
+    private final int height;
+    private final int width;
+    private final int winCondition;
+    private final ZobristKeys zobristKeys;
+
+    /** Cells of each line; line i occupies indices [i * n, (i + 1) * n) */
+    private final int[] lineCells;
+    /** Lines through each cell; cell c occupies indices [offsets[c], offsets[c + 1]) */
+    private final int[] cellLines;
+    private final int[] cellLineOffsets;
+
+    private BoardGeometry(int height, int width, int winCondition)
+    {
+        this.height = height;
+        this.width = width;
+        this.winCondition = winCondition;
+        this.zobristKeys = ZobristKeys.forDimensions(height, width);
+
+        // count the lines first so that the arrays can be sized exactly
+        int lineCount = 0;
+        int[] linesPerCell = new int[height * width];
+        for (int[] direction : DIRECTIONS) {
+            for (int col = 0; col < width; col++) {
+                for (int row = 0; row < height; row++) {
+                    if (fits(col, row, direction)) {
+                        lineCount++;
+                        for (int i = 0; i < winCondition; i++) {
+                            linesPerCell[getCell(col + direction[0] * i,
+                                    row + direction[1] * i)]++;
+                        }
+                    }
+                }
+            }
+        }
+
+        this.lineCells = new int[lineCount * winCondition];
+        this.cellLines = new int[lineCount * winCondition];
+        this.cellLineOffsets = new int[height * width + 1];
+        for (int cell = 0; cell < height * width; cell++) {
+            this.cellLineOffsets[cell + 1] = this.cellLineOffsets[cell] + linesPerCell[cell];
+        }
+
+        int line = 0;
+        int[] filled = new int[height * width];
+        for (int[] direction : DIRECTIONS) {
+            for (int col = 0; col < width; col++) {
+                for (int row = 0; row < height; row++) {
+                    if (!fits(col, row, direction)) {
+                        continue;
+                    }
+                    for (int i = 0; i < winCondition; i++) {
+                        int cell = getCell(col + direction[0] * i, row + direction[1] * i);
+                        this.lineCells[line * winCondition + i] = cell;
+                        this.cellLines[this.cellLineOffsets[cell] + filled[cell]++] = line;
+                    }
+                    line++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns whether a line starting at the specified position and going in
+     * the specified direction fits on the board.
+     */
+    private boolean fits(int col, int row, int[] direction)
+    {
+        int endCol = col + direction[0] * (this.winCondition - 1);
+        int endRow = row + direction[1] * (this.winCondition - 1);
+        return endCol < this.width && endRow >= 0 && endRow < this.height;
+    }
+
+    /**
+     * Returns the geometry for boards with the specified height, width and win
+     * condition.
+     *
+     * @param height the height of the board
+     * @param width the width of the board
+     * @param winCondition the number of pieces in a row needed to win
+     * @return the geometry for boards with the specified dimensions
+     */
+    public static BoardGeometry of(int height, int width, int winCondition)
+    {
+        checkArgument(height > 0, "height must be positive");
+        checkArgument(width > 0, "width must be positive");
+        checkArgument(winCondition > 0, "winCondition must be positive");
+
+        return CACHE.computeIfAbsent(ImmutableList.of(height, width, winCondition),
+                key -> new BoardGeometry(height, width, winCondition));
+    }
+
+    /**
+     * Returns the geometry of the specified board.
+     *
+     * @param board the board
+     * @return the geometry of the specified board
+     */
+    public static BoardGeometry of(ImmutableBoard board)
+    {
+        return of(board.getHeight(), board.getWidth(), board.getWinCondition());
+    }
+
+    /**
+     * Returns the height of boards with this geometry.
+     *
+     * @return the height of boards with this geometry
+     */
+    public int getHeight()
+    {
+        return this.height;
+    }
+
+    /**
+     * Returns the width of boards with this geometry.
+     *
+     * @return the width of boards with this geometry
+     */
+    public int getWidth()
+    {
+        return this.width;
+    }
+
+    /**
+     * Returns the number of pieces in a row needed to win.
+     *
+     * @return the win condition of boards with this geometry
+     */
+    public int getWinCondition()
+    {
+        return this.winCondition;
+    }
+
+    /**
+     * Returns the Zobrist keys for boards with this geometry.
+     *
+     * @return the Zobrist keys for boards with this geometry
+     */
+    public ZobristKeys getZobristKeys()
+    {
+        return this.zobristKeys;
+    }
+
+    /**
+     * Returns the number of spaces on the board.
+     *
+     * @return the number of spaces on the board
+     */
+    public int getCellCount()
+    {
+        return this.height * this.width;
+    }
+
+    /**
+     * Returns the cell index of the specified position.
+     *
+     * @param col the column
+     * @param row the row
+     * @return the cell index of the specified position
+     */
+    public int getCell(int col, int row)
+    {
+        return col * this.height + row;
+    }
+
+    /**
+     * Returns the column of the specified cell.
+     *
+     * @param cell the cell index
+     * @return the column of the specified cell
+     */
+    public int getColumn(int cell)
+    {
+        return cell / this.height;
+    }
+
+    /**
+     * Returns the row of the specified cell.
+     *
+     * @param cell the cell index
+     * @return the row of the specified cell
+     */
+    public int getRow(int cell)
+    {
+        return cell % this.height;
+    }
+
+    /**
+     * Returns the number of lines of {@code winCondition} spaces on the board.
+     *
+     * @return the number of lines on the board
+     */
+    public int getLineCount()
+    {
+        return this.lineCells.length / this.winCondition;
+    }
+
+    /**
+     * Returns a cell in the specified line.
+     *
+     * @param line the line index
+     * @param index the position within the line, from 0 to
+     *          {@code winCondition - 1}
+     * @return the cell at the specified position in the line
+     */
+    public int getLineCell(int line, int index)
+    {
+        assert index >= 0 && index < this.winCondition : "index out of range: " + index;
+        return this.lineCells[line * this.winCondition + index];
+    }
+
+    /**
+     * Returns the number of lines which pass through the specified cell.
+     *
+     * @param cell the cell index
+     * @return the number of lines through the specified cell
+     */
+    public int getLineCountThrough(int cell)
+    {
+        return this.cellLineOffsets[cell + 1] - this.cellLineOffsets[cell];
+    }
+
+    /**
+     * Returns one of the lines which pass through the specified cell.
+     *
+     * @param cell the cell index
+     * @param index the index of the line, from 0 to
+     *          {@code getLineCountThrough(cell) - 1}
+     * @return the line index
+     */
+    public int getLineThrough(int cell, int index)
+    {
+        assert index >= 0 && index < getLineCountThrough(cell) : "index out of range: " + index;
+        return this.cellLines[this.cellLineOffsets[cell] + index];
+    }
+}
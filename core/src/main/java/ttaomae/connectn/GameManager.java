@@ -40,7 +40,7 @@ public class GameManager implements Runnable
      */
     public GameManager(Player playerOne, Player playerTwo)
     {
-        this(new ArrayBoard(), playerOne, playerTwo, MAX_ATTEMPTS);
+        this(new BitBoard(), playerOne, playerTwo, MAX_ATTEMPTS);
     }
 
     /**
@@ -54,7 +54,7 @@ public class GameManager implements Runnable
      */
     public GameManager(Player playerOne, Player playerTwo, int attemptsAllowed)
     {
-        this(new ArrayBoard(), playerOne, playerTwo, attemptsAllowed);
+        this(new BitBoard(), playerOne, playerTwo, attemptsAllowed);
     }
 
     /**
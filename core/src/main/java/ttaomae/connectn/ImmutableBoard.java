@@ -75,7 +75,28 @@ public interface ImmutableBoard
     Piece getNextPiece();
 
     /**
-     * Returns a mutable copy of this board.
+     * Returns a Zobrist hash of the pieces on this Board. Boards with the same
+     * dimensions and the same pieces in the same positions have the same hash.
+     *
+     * @return a hash of the pieces on this Board
+     */
+    long getHash();
+
+    /**
+     * Returns the Zobrist hash of the mirror image of this Board, which is
+     * this Board flipped from left to right. A Board which is the same as its
+     * mirror image has the same hash and mirror hash.
+     *
+     * @return a hash of the mirror image of this Board
+     */
+    long getMirrorHash();
+
+    /**
+     * Returns a mutable copy of this board. The copy has the same history as
+     * this board, so moves played before the copy was made can be undone on
+     * the copy without affecting this board. The copy does not have any of
+     * this board's listeners, and does not log its plays, so that it can be
+     * used for searching without slowing down each move.
      *
      * @return a mutable copy of this board
      */
@@ -0,0 +1,79 @@
+package ttaomae.connectn;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Random keys used to compute Zobrist hashes of Connect-N positions. There is
+ * one key for each combination of piece and board position. The hash of a
+ * position is the XOR of the keys of every piece on the board, so it can be
+ * updated incrementally each time a piece is played or removed.
+ * <p>
+ * Keys are generated from a fixed seed so that hashes are stable between runs
+ * and can be persisted.
+ *
+ * @author Todd Taomae
+ */
+public final class ZobristKeys
+{
+    private static final long SEED = 0x436F6E6E6563744EL;
+    private static final ConcurrentMap<List<Integer>, ZobristKeys> CACHE
+            = new ConcurrentHashMap<>();
+
+    private final int height;
+    private final long[] blackKeys;
+    private final long[] redKeys;
+
+    private ZobristKeys(int height, int width)
+    {
+        this.height = height;
+        this.blackKeys = new long[height * width];
+        this.redKeys = new long[height * width];
+
+        // seed with the dimensions so that different boards use different keys
+        SplittableRandom random = new SplittableRandom(SEED ^ (height * 31L + width));
+        for (int i = 0; i < height * width; i++) {
+            this.blackKeys[i] = random.nextLong();
+            this.redKeys[i] = random.nextLong();
+        }
+    }
+
+    /**
+     * Returns the keys for a board with the specified height and width. Keys
+     * are shared between all boards with the same dimensions.
+     *
+     * @param height the height of the board
+     * @param width the width of the board
+     * @return the keys for a board with the specified height and width
+     */
+    public static ZobristKeys forDimensions(int height, int width)
+    {
+        checkArgument(height > 0, "height must be positive");
+        checkArgument(width > 0, "width must be positive");
+
+        return CACHE.computeIfAbsent(ImmutableList.of(height, width),
+                key -> new ZobristKeys(height, width));
+    }
+
+    /**
+     * Returns the key for the specified piece at the specified position.
+     *
+     * @param piece the piece; must be either BLACK or RED
+     * @param col the column
+     * @param row the row
+     * @return the key for the specified piece at the specified position
+     */
+    public long getKey(Piece piece, int col, int row)
+    {
+        assert piece == Piece.BLACK || piece == Piece.RED : "invalid piece: " + piece;
+
+        int index = col * this.height + row;
+        return piece == Piece.BLACK ? this.blackKeys[index] : this.redKeys[index];
+    }
+}
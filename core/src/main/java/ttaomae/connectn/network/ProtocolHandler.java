@@ -1,11 +1,14 @@
 package ttaomae.connectn.network;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
@@ -141,6 +144,60 @@ public class ProtocolHandler
         }
     }
 
+    /**
+     * Listens for a protocol event, waiting at most the specified time. If no
+     * event is received in time, the connection is closed, since a partially
+     * received message would leave the stream in an unknown state.
+     *
+     * @param timeoutMillis the maximum time to wait, in milliseconds
+     * @return the received event
+     * @throws LostConnectionException if the connection was lost while waiting
+     *          for an event, or no event was received in time
+     */
+    public ProtocolEvent receiveEvent(int timeoutMillis) throws LostConnectionException
+    {
+        checkArgument(timeoutMillis > 0, "timeoutMillis must be positive");
+
+        try {
+            this.socket.setSoTimeout(timeoutMillis);
+        }
+        catch (SocketException e) {
+            throw new LostConnectionException(e);
+        }
+
+        try {
+            return receiveEvent();
+        }
+        catch (LostConnectionException e) {
+            if (e.getCause() instanceof SocketTimeoutException) {
+                close();
+            }
+            throw e;
+        }
+        finally {
+            try {
+                this.socket.setSoTimeout(0);
+            }
+            catch (SocketException e) { // NOPMD
+                // the socket has been closed, so there is nothing to reset
+            }
+        }
+    }
+
+    /**
+     * Closes the connection. Any thread waiting for an event will receive a
+     * {@link LostConnectionException}.
+     */
+    public void close()
+    {
+        try {
+            this.socket.close();
+        }
+        catch (IOException e) { // NOPMD
+            // the connection is being discarded either way
+        }
+    }
+
     public boolean isConnected()
     {
         try {
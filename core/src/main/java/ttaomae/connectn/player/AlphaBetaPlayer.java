@@ -3,16 +3,24 @@ package ttaomae.connectn.player;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -23,11 +31,24 @@ import ttaomae.connectn.Board;
 import ttaomae.connectn.ImmutableBoard;
 import ttaomae.connectn.Piece;
 
-import com.google.common.collect.Multimap;
-import com.google.common.collect.Multimaps;
-
 /**
- * An Player which uses a minimax algorithm with alpha-beta pruning.
+ * An Player which uses a minimax algorithm with alpha-beta pruning. The search
+ * either uses a fixed depth or, if created {@linkplain #withTimeBudget(Duration,
+ * ExecutorService) with a time budget}, uses iterative deepening until the
+ * time budget runs out.
+ * <p>
+ * By default, the search is parallelized by searching each move at the root
+ * in a separate task. Players created {@linkplain #withLazySmp(int, int,
+ * ExecutorService) with lazy SMP} instead run a fixed number of search threads
+ * which each search the whole tree, sharing the transposition table and the
+ * best score found at the root.
+ * <p>
+ * Once few enough empty spaces remain, the rest of the game is searched
+ * exactly by an {@link EndgameSolver} instead. The threshold grows with the
+ * search depth, so that the solver only takes over when the heuristic search
+ * would already see most of the remaining game. The solver cannot be stopped
+ * at a deadline, so players with a time budget do not use it; their iterative
+ * deepening reaches the end of the game on its own once few spaces remain.
  *
  * @author Todd Taomae
  */
@@ -37,9 +58,42 @@ public class AlphaBetaPlayer implements Player
 
     private static final double WIN_VALUE = 10000.0;
     private static final int DEFAULT_DEPTH = 5;
+    private static final int DEFAULT_TABLE_SIZE_MB = 16;
+    /** Deadline used when a search should not be time limited */
+    private static final long NO_DEADLINE = Long.MIN_VALUE;
+    /** Maximum number of empty spaces for which the endgame solver is used */
+    private static final int ENDGAME_EMPTY_SPACES = 16;
+    private static final int ENDGAME_TABLE_SIZE_MB = 4;
     private final int maxDepth;
+    /** Time allowed for each move; null if using a fixed depth */
+    private final Duration timeBudget;
+    /** Number of lazy SMP search threads; 0 if splitting at the root */
+    private final int searchThreads;
+    /** Creates an evaluator for each search thread */
+    private final Function<ImmutableBoard, Evaluator> evaluatorFactory;
 
     private ExecutorService executorService;
+    /** Size of the transposition table; 0 if disabled */
+    private final int transpositionTableSizeMB;
+    /**
+     * Shared by all search threads; allocated by the first search, so that
+     * players which are never used do not hold on to the memory. Null until
+     * then, or if disabled
+     */
+    private TranspositionTable transpositionTable;
+    /** Allocated by the first endgame search; null until then */
+    private EndgameSolver endgameSolver;
+    /**
+     * Number of empty spaces at which the endgame solver takes over; only
+     * used without a time budget
+     */
+    private final int endgameThreshold;
+
+    /** Number of nodes visited by all search threads during the current search */
+    private final LongAdder nodeCount;
+    /** Depth of the deepest completed search for the current move */
+    private int completedDepth;
+    private volatile SearchStatistics lastSearchStatistics;
 
     /**
      * Constructs a new AlphaBetaPlayer which uses the default search depth.
@@ -58,14 +112,199 @@ public class AlphaBetaPlayer implements Player
      * @param maxDepth the search depth
      * @param executorService the ExecutorService on which to perform
      *          computations
+     * @throws IllegalArgumentException if the search depth is negative or
+     *          greater than {@link TranspositionTable#MAX_DEPTH}
      */
     public AlphaBetaPlayer(int maxDepth, ExecutorService executorService)
+    {
+        this(maxDepth, DEFAULT_TABLE_SIZE_MB, executorService);
+    }
+
+    /**
+     * Constructs a new AlphaBetaPlayer which uses the specified search depth
+     * and a transposition table of the specified size. The transposition table
+     * is shared by all threads searching for this player's moves.
+     *
+     * @param maxDepth the search depth
+     * @param transpositionTableSizeMB the size of the transposition table in
+     *          megabytes, or 0 to disable the transposition table
+     * @param executorService the ExecutorService on which to perform
+     *          computations
+     * @throws IllegalArgumentException if the search depth is negative or
+     *          greater than {@link TranspositionTable#MAX_DEPTH}
+     */
+    public AlphaBetaPlayer(int maxDepth, int transpositionTableSizeMB,
+            ExecutorService executorService)
+    {
+        this(maxDepth, transpositionTableSizeMB, null, 0,
+                EvaluatorRegistry.getFactory(EvaluatorRegistry.DEFAULT), executorService);
+    }
+
+    private AlphaBetaPlayer(int maxDepth, int transpositionTableSizeMB, Duration timeBudget,
+            int searchThreads, Function<ImmutableBoard, Evaluator> evaluatorFactory,
+            ExecutorService executorService)
     {
         checkArgument(maxDepth >= 0, "maxDepth must be non-negative");
+        checkArgument(maxDepth <= TranspositionTable.MAX_DEPTH,
+                "maxDepth must be at most " + TranspositionTable.MAX_DEPTH);
+        checkArgument(transpositionTableSizeMB >= 0,
+                "transpositionTableSizeMB must be non-negative");
+        checkArgument(searchThreads >= 0, "searchThreads must be non-negative");
         checkNotNull(executorService, "executorService must not be null");
 
         this.maxDepth = maxDepth;
+        this.timeBudget = timeBudget;
+        this.searchThreads = searchThreads;
+        this.evaluatorFactory = evaluatorFactory;
         this.executorService = executorService;
+        this.transpositionTableSizeMB = transpositionTableSizeMB;
+        this.endgameThreshold = Math.min(ENDGAME_EMPTY_SPACES, 2 * maxDepth);
+        this.nodeCount = new LongAdder();
+        this.lastSearchStatistics = SearchStatistics.NONE;
+    }
+
+    /**
+     * Returns a new AlphaBetaPlayer which searches for at most the specified
+     * amount of time per move. The search is repeated with increasing depth
+     * until the time budget runs out, at which point the best move from the
+     * deepest completed search is selected. The first search, with a depth of
+     * one, always runs to completion.
+     *
+     * @param timeBudget the time allowed for each move
+     * @param executorService the ExecutorService on which to perform
+     *          computations
+     * @return a new AlphaBetaPlayer with the specified time budget
+     */
+    public static AlphaBetaPlayer withTimeBudget(Duration timeBudget,
+            ExecutorService executorService)
+    {
+        return withTimeBudget(timeBudget, 0, executorService);
+    }
+
+    /**
+     * Returns a new AlphaBetaPlayer which searches for at most the specified
+     * amount of time per move, using the specified number of lazy SMP search
+     * threads. If the number of search threads is 0, the search is split at
+     * the root instead.
+     *
+     * @param timeBudget the time allowed for each move
+     * @param searchThreads the number of search threads
+     * @param executorService the ExecutorService on which to perform
+     *          computations; should have at least {@code searchThreads}
+     *          threads
+     * @return a new AlphaBetaPlayer with the specified time budget
+     * @see #withTimeBudget(Duration, ExecutorService)
+     * @see #withLazySmp(int, int, ExecutorService)
+     */
+    public static AlphaBetaPlayer withTimeBudget(Duration timeBudget, int searchThreads,
+            ExecutorService executorService)
+    {
+        checkNotNull(timeBudget, "timeBudget must not be null");
+        checkArgument(!timeBudget.isNegative() && !timeBudget.isZero(),
+                "timeBudget must be positive");
+
+        return new AlphaBetaPlayer(TranspositionTable.MAX_DEPTH, DEFAULT_TABLE_SIZE_MB,
+                timeBudget, searchThreads,
+                EvaluatorRegistry.getFactory(EvaluatorRegistry.DEFAULT), executorService);
+    }
+
+    /**
+     * Returns a new AlphaBetaPlayer which uses the specified search depth and
+     * searches with lazy SMP. Each search thread searches every move at the
+     * root, starting from a different move and skipping moves which another
+     * thread has already finished. Threads share the transposition table and
+     * the best score found so far at the root, which is used as the lower
+     * bound for subsequent root moves. Every other thread searches one ply
+     * deeper, only to improve the move ordering of the others. Unlike
+     * splitting at the root, this can make use of more threads than there are
+     * columns.
+     *
+     * @param maxDepth the search depth
+     * @param searchThreads the number of search threads
+     * @param executorService the ExecutorService on which to perform
+     *          computations; should have at least {@code searchThreads}
+     *          threads
+     * @return a new AlphaBetaPlayer which searches with lazy SMP
+     * @throws IllegalArgumentException if the search depth is negative or
+     *          greater than {@link TranspositionTable#MAX_DEPTH}
+     */
+    public static AlphaBetaPlayer withLazySmp(int maxDepth, int searchThreads,
+            ExecutorService executorService)
+    {
+        checkArgument(searchThreads > 0, "searchThreads must be positive");
+
+        return new AlphaBetaPlayer(maxDepth, DEFAULT_TABLE_SIZE_MB, null, searchThreads,
+                EvaluatorRegistry.getFactory(EvaluatorRegistry.DEFAULT), executorService);
+    }
+
+    /**
+     * Returns a new AlphaBetaPlayer which uses the specified search depth and
+     * evaluates positions by analyzing threats, including whether they can be
+     * played immediately and whether they are on rows with favorable parity
+     * for their owner. This is more expensive per position than the default
+     * evaluation, but plays as well as a deeper search. Boards which do not
+     * fit in 64 bits use the default evaluation instead.
+     *
+     * @param maxDepth the search depth
+     * @param executorService the ExecutorService on which to perform
+     *          computations
+     * @return a new AlphaBetaPlayer which uses threat analysis
+     * @throws IllegalArgumentException if the search depth is negative or
+     *          greater than {@link TranspositionTable#MAX_DEPTH}
+     */
+    public static AlphaBetaPlayer withThreatEvaluation(int maxDepth,
+            ExecutorService executorService)
+    {
+        return withEvaluator(maxDepth, EvaluatorRegistry.THREATS, executorService);
+    }
+
+    /**
+     * Returns a new AlphaBetaPlayer which uses the specified search depth and
+     * evaluates positions with the evaluator registered under the specified
+     * name.
+     *
+     * @param maxDepth the search depth
+     * @param evaluatorName the name of the evaluator
+     * @param executorService the ExecutorService on which to perform
+     *          computations
+     * @return a new AlphaBetaPlayer which uses the specified evaluator
+     * @throws IllegalArgumentException if no evaluator with the specified name
+     *          is registered, or if the search depth is negative or greater
+     *          than {@link TranspositionTable#MAX_DEPTH}
+     * @see EvaluatorRegistry
+     */
+    public static AlphaBetaPlayer withEvaluator(int maxDepth, String evaluatorName,
+            ExecutorService executorService)
+    {
+        return new AlphaBetaPlayer(maxDepth, DEFAULT_TABLE_SIZE_MB, null, 0,
+                EvaluatorRegistry.getFactory(evaluatorName), executorService);
+    }
+
+    /**
+     * Removes all results of previous searches from this player's
+     * transposition tables, so that the next search starts from scratch
+     * without allocating new tables. This should not be called while this
+     * player is searching.
+     */
+    public void clearTables()
+    {
+        if (this.transpositionTable != null) {
+            this.transpositionTable.clear();
+        }
+        if (this.endgameSolver != null) {
+            this.endgameSolver.clear();
+        }
+    }
+
+    /**
+     * Returns statistics about the most recent search performed by this
+     * player.
+     *
+     * @return statistics about the most recent search
+     */
+    public SearchStatistics getLastSearchStatistics()
+    {
+        return this.lastSearchStatistics;
     }
 
     @Override
@@ -82,12 +321,37 @@ public class AlphaBetaPlayer implements Player
             return Optional.of(validMoves.get(0));
         }
 
+        int emptySpaces = board.getHeight() * board.getWidth() - board.getCurrentTurn();
+        if (this.timeBudget == null && emptySpaces <= this.endgameThreshold
+                && EndgameSolver.canSolve(board)) {
+            return solveEndgame(board, emptySpaces);
+        }
+
+        if (this.transpositionTableSizeMB > 0) {
+            // search threads see the table, since they are started after this
+            if (this.transpositionTable == null) {
+                this.transpositionTable = new TranspositionTable(this.transpositionTableSizeMB);
+            }
+            this.transpositionTable.newSearch();
+        }
+        long startTime = System.nanoTime();
+        this.nodeCount.reset();
+        this.completedDepth = 0;
+
         try {
-            ArrayList<Integer> bestMoves = new ArrayList<>(
-                    getBestMoves(board, this.maxDepth, myPiece));
+            ArrayList<Integer> bestMoves = new ArrayList<>(this.timeBudget == null
+                    ? getBestMoves(board, this.maxDepth, myPiece, Collections.emptyList(),
+                            NO_DEADLINE)
+                    : iterativeDeepening(board, myPiece));
+            this.lastSearchStatistics = new SearchStatistics(this.completedDepth,
+                    this.nodeCount.sum(), System.nanoTime() - startTime);
             Collections.shuffle(bestMoves);
             return Optional.of(bestMoves.get(0));
         }
+        catch (TimeoutException e) {
+            // this should not happen since there is no deadline
+            throw new AssertionError("search without deadline timed out", e);
+        }
         catch (ExecutionException e) {
             logger.warn("Error occurred while getting move.", e);
             return Optional.empty();
@@ -97,34 +361,325 @@ public class AlphaBetaPlayer implements Player
         }
     }
 
-    private Collection<Integer> getBestMoves(ImmutableBoard board, int depth, Piece myPiece)
-            throws ExecutionException, InterruptedException
+    /**
+     * Selects a move with the exact solver, choosing randomly between moves
+     * with equal scores.
+     */
+    private Optional<Integer> solveEndgame(ImmutableBoard board, int emptySpaces)
+    {
+        if (this.endgameSolver == null) {
+            this.endgameSolver = new EndgameSolver(ENDGAME_TABLE_SIZE_MB);
+        }
+        long startTime = System.nanoTime();
+        long startNodeCount = this.endgameSolver.getNodeCount();
+
+        List<Integer> bestMoves = this.endgameSolver.getBestMoves(board);
+        if (bestMoves.isEmpty()) {
+            // interrupted
+            return Optional.empty();
+        }
+        this.lastSearchStatistics = new SearchStatistics(emptySpaces,
+                this.endgameSolver.getNodeCount() - startNodeCount,
+                System.nanoTime() - startTime);
+
+        Collections.shuffle(bestMoves);
+        return Optional.of(bestMoves.get(0));
+    }
+
+    /**
+     * Repeatedly searches with increasing depth until the time budget runs out
+     * or the whole game tree has been searched. Each search starts with the
+     * best moves from the previous search, and the transposition table
+     * provides the previous principal variation for move ordering at each
+     * node below the root.
+     */
+    private Collection<Integer> iterativeDeepening(ImmutableBoard board, Piece myPiece)
+            throws ExecutionException, InterruptedException, TimeoutException
+    {
+        assert this.timeBudget != null : "iterativeDeepening requires a time budget";
+
+        long deadline = System.nanoTime() + this.timeBudget.toNanos();
+        int emptyCells = board.getHeight() * board.getWidth() - board.getCurrentTurn();
+        int depthLimit = Math.min(emptyCells, this.maxDepth);
+
+        // always complete the first search so that there is a move to return
+        Collection<Integer> bestMoves = getBestMoves(board, 1, myPiece,
+                Collections.emptyList(), NO_DEADLINE);
+        for (int depth = 2; depth <= depthLimit; depth++) {
+            try {
+                bestMoves = getBestMoves(board, depth, myPiece, bestMoves, deadline);
+            }
+            catch (TimeoutException e) {
+                logger.debug("Search to depth {} did not complete in time.", depth);
+                break;
+            }
+        }
+        return bestMoves;
+    }
+
+    /**
+     * Returns the best moves found by searching to the specified depth. The
+     * preferred moves are searched first.
+     *
+     * @throws TimeoutException if the deadline passes before the search
+     *          completes
+     */
+    private Collection<Integer> getBestMoves(ImmutableBoard board, int depth, Piece myPiece,
+            Collection<Integer> preferredMoves, long deadline)
+            throws ExecutionException, InterruptedException, TimeoutException
     {
         assert this.maxDepth > 0 : "getBestMoves should only be used with maxDepth > 0";
 
-        List<Integer> validMoves = getValidMoves(board);
-        Collections.shuffle(validMoves);
+        // randomization is left to the caller, which chooses between moves
+        // with equal scores; the search itself uses a fixed order
+        List<Integer> validMoves = getCenterFirstValidMoves(board);
+        validMoves.removeAll(preferredMoves);
+        validMoves.addAll(0, preferredMoves);
+
+        ThreatBoard rootThreats = createThreatBoard(board);
+        if (rootThreats != null) {
+            if (rootThreats.getWinningMove() != Board.INVALID_MOVE) {
+                // no search can find anything better than winning immediately
+                this.nodeCount.increment();
+                this.completedDepth = depth;
+                return getCenterFirstValidMoves(board).stream()
+                        .filter(rootThreats::isWinningMove)
+                        .collect(Collectors.toList());
+            }
+            int forcedMove = rootThreats.getForcedMove();
+            if (forcedMove != Board.INVALID_MOVE) {
+                // any other move loses immediately
+                validMoves = Collections.singletonList(forcedMove);
+            }
+        }
 
-        Multimap<Double, Integer> moveHeuristics = Multimaps.newListMultimap(
-                new HashMap<>(), () -> new ArrayList<>());
+        // a move and its mirror image have the same score on a symmetric
+        // board, so only one of each pair needs to be searched
+        boolean symmetric = isSymmetric(board);
+        if (symmetric) {
+            validMoves = validMoves.stream()
+                    .map(move -> Math.min(move, board.getWidth() - 1 - move))
+                    .distinct()
+                    .collect(Collectors.toList());
+        }
 
-        Collection<Callable<Void>> tasks = new ArrayList<>();
-        for (int move : validMoves) {
+        Collection<Integer> bestMoves = this.searchThreads > 0
+                ? getBestMovesLazySmp(board, depth, myPiece, validMoves, deadline)
+                : getBestMovesRootSplit(board, depth, myPiece, validMoves, deadline);
+        return symmetric ? withMirrorMoves(bestMoves, board.getWidth()) : bestMoves;
+    }
+
+    /**
+     * Returns the best of the specified root moves found by searching each of
+     * them in a separate task.
+     */
+    private Collection<Integer> getBestMovesRootSplit(ImmutableBoard board, int depth,
+            Piece myPiece, List<Integer> rootMoves, long deadline)
+            throws ExecutionException, InterruptedException, TimeoutException
+    {
+        // each task returns its own result, so that no state is shared
+        // between threads
+        Collection<Callable<ScoredMove>> tasks = new ArrayList<>();
+        for (int move : rootMoves) {
             tasks.add(() -> {
                 Board copy = board.getMutableCopy();
                 copy.play(move);
-                moveHeuristics.put(alphaBeta(copy, depth - 1, Double.NEGATIVE_INFINITY,
-                        Double.POSITIVE_INFINITY, myPiece), move);
+                MoveOrderer moveOrderer = new MoveOrderer(board.getWidth(), depth);
+                Evaluator evaluator = this.evaluatorFactory.apply(copy.getImmutableView());
+                ThreatBoard threatBoard = createThreatBoard(copy.getImmutableView());
+                return new ScoredMove(move, alphaBeta(copy, depth - 1, 1,
+                        Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, myPiece, moveOrderer,
+                        evaluator, threatBoard));
+            });
+        }
+        List<ScoredMove> scoredMoves = invokeSearchTasks(tasks, depth, deadline);
+
+        return ScoredMove.bestMoves(scoredMoves, board.getWidth());
+    }
+
+    /**
+     * Returns whether the specified board is the same as its mirror image.
+     */
+    private static boolean isSymmetric(ImmutableBoard board)
+    {
+        if (board.getHash() != board.getMirrorHash()) {
+            return false;
+        }
+
+        // hashes can collide, so compare the pieces as well
+        int width = board.getWidth();
+        for (int col = 0; col < width / 2; col++) {
+            for (int row = 0; row < board.getHeight(); row++) {
+                if (board.getPieceAt(col, row) != board.getPieceAt(width - 1 - col, row)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the specified moves along with their mirror images, ordered by
+     * their distance from the center column.
+     */
+    private static List<Integer> withMirrorMoves(Collection<Integer> moves, int width)
+    {
+        return Arrays.stream(MoveOrderer.centerFirstOrder(width))
+                .filter(col -> moves.contains(col) || moves.contains(width - 1 - col))
+                .boxed()
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Runs the specified search tasks on the executor service and returns
+     * their results, in the same order as the tasks. If there is a deadline,
+     * tasks which have not completed by the deadline are cancelled and
+     * interrupted, which stops their search.
+     *
+     * @throws TimeoutException if the deadline passes before every task
+     *          completes
+     */
+    private <T> List<T> invokeSearchTasks(Collection<Callable<T>> tasks, int depth,
+            long deadline) throws ExecutionException, InterruptedException, TimeoutException
+    {
+        List<Future<T>> futures;
+        if (deadline == NO_DEADLINE) {
+            futures = this.executorService.invokeAll(tasks);
+        }
+        else {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                throw new TimeoutException("deadline passed before search started");
+            }
+            futures = this.executorService.invokeAll(tasks, remaining, TimeUnit.NANOSECONDS);
+        }
+
+        List<T> results = new ArrayList<>(futures.size());
+        for (Future<T> future : futures) {
+            if (future.isCancelled()) {
+                throw new TimeoutException("search to depth " + depth + " timed out");
+            }
+            // throws an ExecutionException if the task failed
+            results.add(future.get());
+        }
+        // count the root
+        this.nodeCount.increment();
+        this.completedDepth = depth;
+
+        return results;
+    }
+
+    /**
+     * Returns the best moves found by searching to the specified depth with
+     * lazy SMP. Each search thread visits the root moves in the same order,
+     * but starting from a different move, and skips moves which have already
+     * been finished by another thread. Threads which run out of unstarted
+     * moves help search the moves which are still in progress, relying on the
+     * shared transposition table to avoid repeating work.
+     * <p>
+     * Threads which would otherwise search identical trees do little more
+     * than duplicate each other's work, so every odd-numbered thread searches
+     * one ply deeper instead. Its scores are discarded, but the best moves it
+     * stores in the transposition table improve the move ordering of the
+     * other threads. These helper threads are stopped once the search at the
+     * requested depth completes.
+     * <p>
+     * Each root move is searched with a lower bound of one less than the best
+     * score found so far by any thread. Since all heuristic values are whole
+     * numbers, moves which tie with the best move still get an exact score,
+     * while worse moves fail low.
+     */
+    private Collection<Integer> getBestMovesLazySmp(ImmutableBoard board, int depth,
+            Piece myPiece, List<Integer> rootMoves, long deadline)
+            throws ExecutionException, InterruptedException, TimeoutException
+    {
+        Map<Integer, Double> moveHeuristics = new ConcurrentHashMap<>();
+        DoubleAccumulator bestScore = new DoubleAccumulator(Math::max, Double.NEGATIVE_INFINITY);
+        int emptyCells = board.getHeight() * board.getWidth() - board.getCurrentTurn();
+        int helperDepth = Math.min(depth + 1, Math.min(emptyCells, TranspositionTable.MAX_DEPTH));
+
+        Collection<Callable<Void>> tasks = new ArrayList<>();
+        Collection<Callable<Void>> helpers = new ArrayList<>();
+        for (int thread = 0; thread < this.searchThreads; thread++) {
+            int firstMove = thread % rootMoves.size();
+            if ((thread & 1) == 1 && helperDepth > depth) {
+                helpers.add(() -> {
+                    Board copy = board.getMutableCopy();
+                    MoveOrderer moveOrderer = new MoveOrderer(board.getWidth(), helperDepth);
+                    Evaluator evaluator = this.evaluatorFactory.apply(board);
+                    ThreatBoard threatBoard = createThreatBoard(board);
+                    for (int i = 0; i < rootMoves.size(); i++) {
+                        int move = rootMoves.get((firstMove + i) % rootMoves.size());
+                        if (moveHeuristics.containsKey(move)) {
+                            continue;
+                        }
+
+                        // scores from a different depth are not comparable,
+                        // so only the transposition table entries are kept
+                        play(copy, evaluator, threatBoard, move);
+                        alphaBeta(copy, helperDepth - 1, 1, Double.NEGATIVE_INFINITY,
+                                Double.POSITIVE_INFINITY, myPiece, moveOrderer, evaluator,
+                                threatBoard);
+                        undoPlay(copy, evaluator, threatBoard);
+
+                        if (Thread.currentThread().isInterrupted()) {
+                            return null;
+                        }
+                    }
+                    return null;
+                });
+                continue;
+            }
+
+            tasks.add(() -> {
+                Board copy = board.getMutableCopy();
+                MoveOrderer moveOrderer = new MoveOrderer(board.getWidth(), depth);
+                Evaluator evaluator = this.evaluatorFactory.apply(board);
+                ThreatBoard threatBoard = createThreatBoard(board);
+                for (int i = 0; i < rootMoves.size(); i++) {
+                    int move = rootMoves.get((firstMove + i) % rootMoves.size());
+                    if (moveHeuristics.containsKey(move)) {
+                        continue;
+                    }
+
+                    double alpha = bestScore.get() - 1;
+                    play(copy, evaluator, threatBoard, move);
+                    double score = alphaBeta(copy, depth - 1, 1, alpha, Double.POSITIVE_INFINITY,
+                            myPiece, moveOrderer, evaluator, threatBoard);
+                    undoPlay(copy, evaluator, threatBoard);
+
+                    if (Thread.currentThread().isInterrupted()) {
+                        return null;
+                    }
+                    // the first thread to finish a move records its score;
+                    // any other thread's score for the same move is
+                    // consistent with it
+                    moveHeuristics.putIfAbsent(move, score);
+                    if (score > alpha) {
+                        bestScore.accumulate(score);
+                    }
+                }
                 return null;
             });
         }
-        List<Future<Void>> futures = this.executorService.invokeAll(tasks);
-        // check for ExecutionExceptions
-        for (Future<Void> future : futures) {
-            future.get();
+
+        // helpers are not waited for; they are stopped once the searches at
+        // the requested depth are done
+        List<Future<Void>> helperFutures = helpers.stream()
+                .map(this.executorService::submit)
+                .collect(Collectors.toList());
+        try {
+            invokeSearchTasks(tasks, depth, deadline);
+        }
+        finally {
+            for (Future<Void> helperFuture : helperFutures) {
+                helperFuture.cancel(true);
+            }
         }
 
-        return moveHeuristics.get(Collections.max(moveHeuristics.keySet()));
+        return ScoredMove.bestMoves(moveHeuristics.entrySet().stream()
+                .map(entry -> new ScoredMove(entry.getKey(), entry.getValue()))
+                .collect(Collectors.toList()), board.getWidth());
     }
 
     /**
@@ -133,81 +688,240 @@ public class AlphaBetaPlayer implements Player
      *
      * @param board board to analyze
      * @param depth remaining search depth
+     * @param ply distance from the root of the search
      * @param alpha maximum score that maximizing player is assured of
      * @param beta minimum score that minimizing player is assured of
      * @param maxPlayer maximizing player
+     * @param moveOrderer orders the moves at each node; must only be used by
+     *          the current thread
+     * @param evaluator evaluates the specified board; must only be used by
+     *          the current thread
+     * @param threatBoard finds immediate wins on the specified board, or null
+     *          if the board is too large; must only be used by the current
+     *          thread
      * @return the heuristic value for the specified board
      */
-    private double alphaBeta(Board board, int depth, double alpha, double beta, Piece maxPlayer)
+    private double alphaBeta(Board board, int depth, int ply, double alpha, double beta,
+            Piece maxPlayer, MoveOrderer moveOrderer, Evaluator evaluator,
+            ThreatBoard threatBoard)
     {
+        this.nodeCount.increment();
         if (Thread.currentThread().isInterrupted()) {
             return 0;
         }
         Piece winner = board.getWinner();
         if (depth == 0 || winner != Piece.NONE) {
-            return getHeuristic(board, maxPlayer, depth, winner);
+            return getHeuristic(evaluator, maxPlayer, depth, winner);
         }
 
-        // max player
-        if (board.getNextPiece() == maxPlayer) {
-            // create randomly ordered list of possible moves
-            List<Integer> moves = new ArrayList<>();
-            for (int move = 0; move < board.getWidth(); move++) {
-                moves.add(move);
+        // if the player to move can win immediately, that is the best move,
+        // and its value is known without playing it; otherwise, if their
+        // opponent could win immediately, only the block needs to be searched
+        int forcedMove = Board.INVALID_MOVE;
+        if (threatBoard != null) {
+            if (threatBoard.getWinningMove() != Board.INVALID_MOVE) {
+                return getHeuristic(evaluator, maxPlayer, depth - 1, board.getNextPiece());
             }
-            Collections.shuffle(moves);
-
-            // get minimax value for all valid moves
-            for (int move : moves) {
-                if (board.isValidMove(move)) {
-                    board.play(move);
-                    alpha = Math.max(alpha, alphaBeta(board, depth - 1, alpha, beta, maxPlayer));
-                    board.undoPlay();
+            forcedMove = threatBoard.getForcedMove();
+        }
 
-                    // beta cut off
+        // a position and its mirror image share an entry, which is keyed by
+        // the smaller of their hashes; moves are stored for that orientation
+        long hash = Math.min(board.getHash(), board.getMirrorHash());
+        boolean mirrored = hash != board.getHash();
+        int hashMove = Board.INVALID_MOVE;
+        if (this.transpositionTable != null) {
+            long entry = this.transpositionTable.probe(hash);
+            if (entry != TranspositionTable.NO_ENTRY) {
+                hashMove = mirrorMove(TranspositionTable.getMove(entry), mirrored,
+                        board.getWidth());
+
+                // heuristic values are scaled by the remaining depth, so only
+                // use scores from searches with the same remaining depth
+                if (TranspositionTable.getDepth(entry) == depth) {
+                    double score = fromTableScore(TranspositionTable.getScore(entry), maxPlayer);
+                    switch (fromTableBound(TranspositionTable.getBound(entry), maxPlayer)) {
+                        case TranspositionTable.EXACT:
+                            return score;
+                        case TranspositionTable.LOWER_BOUND:
+                            alpha = Math.max(alpha, score);
+                            break;
+                        case TranspositionTable.UPPER_BOUND:
+                            beta = Math.min(beta, score);
+                            break;
+                        default:
+                            break;
+                    }
                     if (beta <= alpha) {
-                        break;
+                        return score;
                     }
                 }
             }
-            return alpha;
         }
+        double windowAlpha = alpha;
+        double windowBeta = beta;
+        int bestMove = Board.INVALID_MOVE;
+        double value;
 
-        // min player
-        else {
-            // create randomly ordered list of possible moves
-            List<Integer> moves = new ArrayList<>();
-            for (int move = 0; move < board.getWidth(); move++) {
-                moves.add(move);
+        int moveCount = forcedMove == Board.INVALID_MOVE
+                ? moveOrderer.orderMoves(board, ply, hashMove)
+                : moveOrderer.forceMove(ply, forcedMove);
+
+        // max player
+        if (board.getNextPiece() == maxPlayer) {
+            // get minimax value for all valid moves
+            for (int i = 0; i < moveCount; i++) {
+                int move = moveOrderer.getMove(ply, i);
+                play(board, evaluator, threatBoard, move);
+                double childValue = alphaBeta(board, depth - 1, ply + 1, alpha, beta, maxPlayer,
+                        moveOrderer, evaluator, threatBoard);
+                undoPlay(board, evaluator, threatBoard);
+
+                if (childValue > alpha) {
+                    alpha = childValue;
+                    bestMove = move;
+                }
+
+                // beta cut off
+                if (beta <= alpha) {
+                    break;
+                }
             }
-            Collections.shuffle(moves);
+            value = alpha;
+        }
 
+        // min player
+        else {
             // get minimax value for all valid moves
-            for (int move : moves) {
-                if (board.isValidMove(move)) {
-                    board.play(move);
-                    beta = Math.min(beta, alphaBeta(board, depth - 1, alpha, beta, maxPlayer));
-                    board.undoPlay();
+            for (int i = 0; i < moveCount; i++) {
+                int move = moveOrderer.getMove(ply, i);
+                play(board, evaluator, threatBoard, move);
+                double childValue = alphaBeta(board, depth - 1, ply + 1, alpha, beta, maxPlayer,
+                        moveOrderer, evaluator, threatBoard);
+                undoPlay(board, evaluator, threatBoard);
+
+                if (childValue < beta) {
+                    beta = childValue;
+                    bestMove = move;
+                }
 
-                    // beta cut off
-                    if (beta <= alpha) {
-                        break;
-                    }
+                // beta cut off
+                if (beta <= alpha) {
+                    break;
                 }
             }
-            return beta;
+            value = beta;
+        }
+
+        // forced moves say nothing about which moves are good elsewhere
+        if (bestMove != Board.INVALID_MOVE && forcedMove == Board.INVALID_MOVE) {
+            moveOrderer.recordCutoff(ply, bestMove, board.getNextPiece(), depth);
+        }
+
+        // results from interrupted searches are incomplete
+        if (this.transpositionTable != null && !Thread.currentThread().isInterrupted()) {
+            int bound;
+            if (value <= windowAlpha) {
+                bound = TranspositionTable.UPPER_BOUND;
+            }
+            else if (value >= windowBeta) {
+                bound = TranspositionTable.LOWER_BOUND;
+            }
+            else {
+                bound = TranspositionTable.EXACT;
+            }
+            this.transpositionTable.store(hash, depth, toTableBound(bound, maxPlayer),
+                    toTableScore(value, maxPlayer),
+                    mirrorMove(bestMove, mirrored, board.getWidth()));
+        }
+        return value;
+    }
+
+    /**
+     * Plays the specified move on the board and keeps the evaluator and
+     * threat board in step with it.
+     */
+    private static void play(Board board, Evaluator evaluator, ThreatBoard threatBoard,
+            int move)
+    {
+        board.play(move);
+        evaluator.play(move);
+        if (threatBoard != null) {
+            threatBoard.play(move);
+        }
+    }
+
+    /**
+     * Undoes the last move on the board and keeps the evaluator and threat
+     * board in step with it.
+     */
+    private static void undoPlay(Board board, Evaluator evaluator, ThreatBoard threatBoard)
+    {
+        if (threatBoard != null) {
+            threatBoard.undoPlay();
+        }
+        evaluator.undoPlay();
+        board.undoPlay();
+    }
+
+    /**
+     * Returns a threat board for the specified board, or null if the board is
+     * too large to be tracked.
+     */
+    private static ThreatBoard createThreatBoard(ImmutableBoard board)
+    {
+        return ThreatBoard.canTrack(board) ? new ThreatBoard(board) : null;
+    }
+
+    /**
+     * Returns the column in the mirror image corresponding to the specified
+     * move if {@code mirror} is true, or the move itself otherwise.
+     */
+    private static int mirrorMove(int move, boolean mirror, int width)
+    {
+        return mirror && move != Board.INVALID_MOVE ? width - 1 - move : move;
+    }
+
+    // Scores in the transposition table are stored from BLACK's perspective so
+    // that they can be shared regardless of which player is searching. Since
+    // all heuristic values are whole numbers they can be stored as ints.
+
+    private static int toTableScore(double score, Piece maxPlayer)
+    {
+        return (int) (maxPlayer == Piece.BLACK ? score : -score);
+    }
+
+    private static double fromTableScore(int score, Piece maxPlayer)
+    {
+        return maxPlayer == Piece.BLACK ? score : -score;
+    }
+
+    private static int toTableBound(int bound, Piece maxPlayer)
+    {
+        if (maxPlayer == Piece.BLACK || bound == TranspositionTable.EXACT) {
+            return bound;
         }
+        return bound == TranspositionTable.LOWER_BOUND
+                ? TranspositionTable.UPPER_BOUND : TranspositionTable.LOWER_BOUND;
+    }
+
+    private static int fromTableBound(int bound, Piece maxPlayer)
+    {
+        // negating a score swaps the bound type, which is its own inverse
+        return toTableBound(bound, maxPlayer);
     }
 
     /**
-     * Returns the heuristic value of the specified board.
+     * Returns the heuristic value of the specified board. Each threat counted
+     * by the evaluator is worth a hundredth of a win.
      *
-     * @param board board to evaluate
+     * @param evaluator evaluates the board
      * @param maxPlayer maximizing player
-     * @param winner the winner of the specified board
+     * @param winner the winner of the board to evaluate
      * @return the heuristic value of the specified board
      */
-    private double getHeuristic(Board board, Piece maxPlayer, int depth, Piece winner)
+    private double getHeuristic(Evaluator evaluator, Piece maxPlayer, int depth,
+            Piece winner)
     {
         if (winner == maxPlayer) {
             return (depth + 1) * WIN_VALUE;
@@ -220,84 +934,22 @@ public class AlphaBetaPlayer implements Player
             return -1.0f;
         }
 
-        // check for n-in-a-row
-        int nInARow = board.getWinCondition() - 1;
-        int maxPlayerNInARow = 0;
-        int minPlayerNInARow = 0;
-        // check each board position
-        for (int row = 0; row < board.getHeight(); row++) {
-            for (int col = 0; col < board.getWidth(); col++) {
-                int maxPlayerHorizontal = 0;
-                int minPlayerHorizontal = 0;
-                int maxPlayerVertical = 0;
-                int minPlayerVertical = 0;
-                int maxPlayerDiagonalA = 0;
-                int minPlayerDiagonalA = 0;
-                int maxPlayerDiagonalB = 0;
-                int minPlayerDiagonalB = 0;
-
-                for (int i = 0; i < nInARow; i++) {
-                    // check horizontal
-                    if (col <= board.getWidth() - nInARow) {
-                        if (board.getPieceAt(col + i, row) == maxPlayer) {
-                            maxPlayerHorizontal++;
-                        }
-                        else if (board.getPieceAt(col + i, row) == maxPlayer.opposite()) {
-                            minPlayerHorizontal++;
-                        }
-                    }
-
-                    // check vertical
-                    if (row <= board.getHeight() - nInARow) {
-                        if (board.getPieceAt(col, row + i) == maxPlayer) {
-                            maxPlayerVertical++;
-                        }
-                        else if (board.getPieceAt(col, row + i) == maxPlayer.opposite()) {
-                            minPlayerVertical++;
-                        }
-                    }
-
-                    // check up-right diagonal
-                    if (col <= board.getWidth() - nInARow && row <= board.getHeight() - nInARow) {
-                        if (board.getPieceAt(col + i, row + i) == maxPlayer) {
-                            maxPlayerDiagonalA++;
-                        }
-                        else if (board.getPieceAt(col + i, row + i) == maxPlayer.opposite()) {
-                            minPlayerDiagonalA++;
-                        }
-                    }
-
-                    // check up-left diagonal
-                    if (col >= board.getWinCondition() - 1 && row <= board.getHeight() - nInARow) {
-                        if (board.getPieceAt(col - i, row + i) == maxPlayer) {
-                            maxPlayerDiagonalB++;
-                        }
-                        else if (board.getPieceAt(col - i, row + i) == maxPlayer.opposite()) {
-                            minPlayerDiagonalB++;
-                        }
-                    }
-                }
-
-                if (maxPlayerHorizontal == nInARow || maxPlayerVertical == nInARow
-                    || maxPlayerDiagonalA == nInARow || maxPlayerDiagonalB == nInARow) {
-                        maxPlayerNInARow++;
-                }
-                if (minPlayerHorizontal == nInARow || minPlayerVertical == nInARow
-                    || minPlayerDiagonalA == nInARow || minPlayerDiagonalB == nInARow) {
-                        maxPlayerNInARow++;
-                }
-            }
-        }
-
-        return (maxPlayerNInARow - minPlayerNInARow) * (WIN_VALUE / 100.0) * (depth + 1);
+        return evaluator.evaluate(maxPlayer) * (WIN_VALUE / 100.0) * (depth + 1);
     }
 
     private List<Integer> getValidMoves(ImmutableBoard board)
     {
-        // create randomly ordered list of possible moves
         return IntStream.range(0, board.getWidth())
                 .filter(board::isValidMove)
                 .boxed()
                 .collect(Collectors.toList());
     }
+
+    private List<Integer> getCenterFirstValidMoves(ImmutableBoard board)
+    {
+        return Arrays.stream(MoveOrderer.centerFirstOrder(board.getWidth()))
+                .filter(board::isValidMove)
+                .boxed()
+                .collect(Collectors.toList());
+    }
 }
@@ -0,0 +1,53 @@
+package ttaomae.connectn.player;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ttaomae.connectn.ImmutableBoard;
+
+/**
+ * A Player which plays moves from an {@link OpeningBook} while the position is
+ * in the book, and otherwise asks another Player for its move.
+ *
+ * @author Todd Taomae
+ */
+public class BookPlayer implements Player
+{
+    private static final Logger logger = LoggerFactory.getLogger(BookPlayer.class);
+
+    private final OpeningBook openingBook;
+    private final Player player;
+
+    /**
+     * Constructs a new BookPlayer which uses the specified opening book and
+     * falls back to the specified Player for positions not in the book.
+     *
+     * @param openingBook the opening book
+     * @param player the Player used for positions not in the book
+     */
+    public BookPlayer(OpeningBook openingBook, Player player)
+    {
+        checkNotNull(openingBook, "openingBook must not be null");
+        checkNotNull(player, "player must not be null");
+
+        this.openingBook = openingBook;
+        this.player = player;
+    }
+
+    @Override
+    public Optional<Integer> getMove(ImmutableBoard board)
+    {
+        checkNotNull(board, "board must not be null");
+
+        Optional<Integer> bookMove = this.openingBook.getMove(board);
+        if (bookMove.isPresent() && board.isValidMove(bookMove.get())) {
+            logger.debug("Playing book move {}.", bookMove.get());
+            return bookMove;
+        }
+        return this.player.getMove(board);
+    }
+}
@@ -0,0 +1,403 @@
+package ttaomae.connectn.player;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import ttaomae.connectn.Board;
+import ttaomae.connectn.ImmutableBoard;
+import ttaomae.connectn.Piece;
+import ttaomae.connectn.ZobristKeys;
+
+/**
+ * An exact solver which searches positions to the end of the game. It is
+ * intended for late-game positions, where the remaining game tree is small
+ * enough to search completely.
+ * <p>
+ * Scores are from the perspective of the player to move. A win which is
+ * completed by the <i>m</i>th piece on a board with <i>c</i> cells scores
+ * {@code c + 1 - m}, so faster wins score higher; a loss scores the negation
+ * of the opponent's win, and a draw scores 0. Since scores depend only on the
+ * number of pieces at the end of the game, they can be stored in the
+ * transposition table without any adjustment.
+ * <p>
+ * Positions are stored in a pair of {@code long} bitboards using the same
+ * column-major layout as {@link ttaomae.connectn.BitBoard}, with one bitboard
+ * for the pieces of the player to move and one for all pieces. Only boards
+ * with at most 64 bits, including the sentinel row above each column, can be
+ * solved.
+ * <p>
+ * An EndgameSolver is safe to use from multiple threads.
+ *
+ * @author Todd Taomae
+ */
+public final class EndgameSolver
+{
+    private final TranspositionTable transpositionTable;
+    private final LongAdder nodeCount;
+
+    /**
+     * Constructs a new EndgameSolver which uses a transposition table of the
+     * specified size.
+     *
+     * @param transpositionTableSizeMB the size of the transposition table in
+     *          megabytes
+     */
+    public EndgameSolver(int transpositionTableSizeMB)
+    {
+        this.transpositionTable = new TranspositionTable(transpositionTableSizeMB);
+        this.nodeCount = new LongAdder();
+    }
+
+    /**
+     * Returns whether the specified board can be solved. The board must fit
+     * in a single {@code long} and the game must not be over.
+     *
+     * @param board the board
+     * @return true if the specified board can be solved
+     */
+    public static boolean canSolve(ImmutableBoard board)
+    {
+        checkNotNull(board, "board must not be null");
+
+        return (board.getHeight() + 1) * board.getWidth() <= Long.SIZE
+                && board.getWinner() == Piece.NONE;
+    }
+
+    /**
+     * Returns the total number of nodes visited by this solver.
+     *
+     * @return the total number of nodes visited
+     */
+    public long getNodeCount()
+    {
+        return this.nodeCount.sum();
+    }
+
+    /**
+     * Removes all positions from this solver's transposition table. This
+     * should not be called while this solver is solving a board.
+     */
+    public void clear()
+    {
+        this.transpositionTable.clear();
+    }
+
+    /**
+     * Returns the exact score of the specified board from the perspective of
+     * the player to move.
+     *
+     * @param board the board to solve
+     * @return the score of the specified board
+     * @throws IllegalArgumentException if the board {@linkplain
+     *          #canSolve(ImmutableBoard) cannot be solved}
+     */
+    public int solve(ImmutableBoard board)
+    {
+        checkArgument(canSolve(board), "board cannot be solved");
+
+        Search search = new Search(board);
+        try {
+            return search.negamax(search.initialPosition, search.initialMask,
+                    board.getCurrentTurn(), -search.infinity, search.infinity);
+        }
+        finally {
+            this.nodeCount.add(search.nodeCount);
+        }
+    }
+
+    /**
+     * Returns all moves on the specified board which have the best score for
+     * the player to move, ordered by their distance from the center column.
+     * If the search is interrupted, the returned list is empty.
+     *
+     * @param board the board to solve
+     * @return the best moves on the specified board
+     * @throws IllegalArgumentException if the board {@linkplain
+     *          #canSolve(ImmutableBoard) cannot be solved}
+     */
+    public List<Integer> getBestMoves(ImmutableBoard board)
+    {
+        checkArgument(canSolve(board), "board cannot be solved");
+
+        Search search = new Search(board);
+        long position = search.initialPosition;
+        long mask = search.initialMask;
+        int moves = board.getCurrentTurn();
+
+        List<Integer> bestMoves = new ArrayList<>();
+        int bestScore = -search.infinity;
+        try {
+            for (int col : MoveOrderer.centerFirstOrder(board.getWidth())) {
+                long move = search.nextMove(mask, col);
+                if (move == 0L) {
+                    continue;
+                }
+
+                int score;
+                if (search.hasWon(position | move)) {
+                    score = search.cells - moves;
+                }
+                else {
+                    // a lower bound of one less than the best score so far
+                    // gives exact scores for ties, while worse moves fail low
+                    score = -search.negamax(position ^ mask, mask | move, moves + 1,
+                            -search.infinity, -(bestScore - 1));
+                }
+                if (Thread.currentThread().isInterrupted()) {
+                    return new ArrayList<>();
+                }
+
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestMoves.clear();
+                }
+                if (score == bestScore) {
+                    bestMoves.add(col);
+                }
+            }
+        }
+        finally {
+            this.nodeCount.add(search.nodeCount);
+        }
+        return bestMoves;
+    }
+
+    /**
+     * The state of a single search, including the geometry of the board being
+     * searched.
+     */
+    private final class Search
+    {
+        /** Number of pieces in a winning line, excluding the first */
+        private final int reach;
+        private final int cells;
+        /** Distinguishes boards with different dimensions in the table */
+        private final long salt;
+        private final int infinity;
+        private final int[] order;
+        /** Shift for each direction: horizontal, vertical and both diagonals */
+        private final int[] directions;
+        /** Bottom cell of each column */
+        private final long[] bottoms;
+        /** Top cell of each column */
+        private final long[] tops;
+        private final long initialPosition;
+        private final long initialMask;
+
+        private long nodeCount;
+
+        Search(ImmutableBoard board)
+        {
+            int height = board.getHeight();
+            int width = board.getWidth();
+            int stride = height + 1;
+            this.reach = board.getWinCondition() - 1;
+            this.salt = ZobristKeys.forDimensions(height, width).getKey(Piece.BLACK, 0, 0)
+                    ^ board.getWinCondition();
+
+            this.cells = height * width;
+            this.infinity = this.cells + 1;
+            this.order = MoveOrderer.centerFirstOrder(width);
+
+            // directions in which a line cannot fit in a long are skipped
+            List<Integer> directions = new ArrayList<>();
+            for (int direction : new int[] {stride, 1, stride + 1, stride - 1}) {
+                if (direction > 0 && (long) direction * this.reach < Long.SIZE) {
+                    directions.add(direction);
+                }
+            }
+            this.directions = directions.stream().mapToInt(Integer::intValue).toArray();
+
+            this.bottoms = new long[width];
+            this.tops = new long[width];
+            for (int col = 0; col < width; col++) {
+                this.bottoms[col] = 1L << (col * stride);
+                this.tops[col] = 1L << (col * stride + height - 1);
+            }
+
+            Piece player = board.getNextPiece();
+            long position = 0L;
+            long mask = 0L;
+            for (int col = 0; col < width; col++) {
+                for (int row = 0; row < height; row++) {
+                    Piece piece = board.getPieceAt(col, row);
+                    if (piece == Piece.NONE) {
+                        break;
+                    }
+                    long bit = 1L << (col * stride + row);
+                    mask |= bit;
+                    if (piece == player) {
+                        position |= bit;
+                    }
+                }
+            }
+            this.initialPosition = position;
+            this.initialMask = mask;
+        }
+
+        /**
+         * Returns the bit of the next piece played in the specified column, or
+         * 0 if the column is full.
+         */
+        long nextMove(long mask, int col)
+        {
+            if ((mask & this.tops[col]) != 0L) {
+                return 0L;
+            }
+            // adding the bottom bit carries up to the first empty cell
+            return (mask + this.bottoms[col]) & ~mask;
+        }
+
+        /**
+         * Returns whether the specified pieces contain a line long enough to
+         * win.
+         */
+        boolean hasWon(long pieces)
+        {
+            for (int direction : this.directions) {
+                long line = pieces;
+                for (int i = 1; i <= this.reach && line != 0L; i++) {
+                    line &= pieces >>> (direction * i);
+                }
+                if (line != 0L) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Returns the score of the specified position from the perspective of
+         * the player to move, assuming the player to move cannot have already
+         * lost.
+         *
+         * @param position pieces of the player to move
+         * @param mask all pieces
+         * @param moves number of pieces on the board
+         */
+        int negamax(long position, long mask, int moves, int alpha, int beta)
+        {
+            this.nodeCount++;
+            if (Thread.currentThread().isInterrupted()) {
+                return 0;
+            }
+            if (moves == this.cells) {
+                return 0;
+            }
+
+            // win immediately if possible, and find the opponent's immediate
+            // wins, which must be blocked
+            long opponent = position ^ mask;
+            long forcedMove = 0L;
+            int opponentWins = 0;
+            for (int col : this.order) {
+                long move = nextMove(mask, col);
+                if (move == 0L) {
+                    continue;
+                }
+                if (hasWon(position | move)) {
+                    return this.cells - moves;
+                }
+                if (hasWon(opponent | move)) {
+                    forcedMove = move;
+                    opponentWins++;
+                }
+            }
+            // the opponent wins with their next piece
+            int fastestLoss = -(this.cells - moves - 1);
+            if (opponentWins > 1) {
+                return fastestLoss;
+            }
+
+            // the next chance to win is with the piece after next
+            alpha = Math.max(alpha, Math.min(fastestLoss, 0));
+            beta = Math.min(beta, Math.max(this.cells - moves - 2, 0));
+            if (alpha >= beta) {
+                return alpha;
+            }
+
+            long key = hash(position, mask) ^ this.salt;
+            int hashMove = Board.INVALID_MOVE;
+            long entry = transpositionTable.probe(key);
+            if (entry != TranspositionTable.NO_ENTRY) {
+                int score = TranspositionTable.getScore(entry);
+                switch (TranspositionTable.getBound(entry)) {
+                    case TranspositionTable.EXACT:
+                        return score;
+                    case TranspositionTable.LOWER_BOUND:
+                        alpha = Math.max(alpha, score);
+                        break;
+                    case TranspositionTable.UPPER_BOUND:
+                        beta = Math.min(beta, score);
+                        break;
+                    default:
+                        throw new AssertionError("invalid bound");
+                }
+                if (alpha >= beta) {
+                    return score;
+                }
+                hashMove = TranspositionTable.getMove(entry);
+            }
+
+            int originalAlpha = alpha;
+            int bestScore = -this.infinity;
+            int bestMove = Board.INVALID_MOVE;
+            // search the hash move first, followed by the other moves in
+            // center-first order
+            for (int i = -1; i < this.order.length; i++) {
+                int col = i < 0 ? hashMove : this.order[i];
+                if (col < 0 || (i >= 0 && col == hashMove)) {
+                    continue;
+                }
+                long move = nextMove(mask, col);
+                if (move == 0L || (forcedMove != 0L && move != forcedMove)) {
+                    continue;
+                }
+
+                int score = -negamax(opponent, mask | move, moves + 1, -beta, -alpha);
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestMove = col;
+                }
+                if (score > alpha) {
+                    alpha = score;
+                }
+                if (alpha >= beta) {
+                    break;
+                }
+            }
+
+            // results from interrupted searches are incomplete
+            if (!Thread.currentThread().isInterrupted()) {
+                int bound;
+                if (bestScore <= originalAlpha) {
+                    bound = TranspositionTable.UPPER_BOUND;
+                }
+                else if (bestScore >= beta) {
+                    bound = TranspositionTable.LOWER_BOUND;
+                }
+                else {
+                    bound = TranspositionTable.EXACT;
+                }
+                transpositionTable.store(key, this.cells - moves, bound, bestScore, bestMove);
+            }
+            return bestScore;
+        }
+    }
+
+    /**
+     * Returns a hash of the specified position. Since every column has a
+     * sentinel bit above its pieces, {@code position + mask} identifies the
+     * position uniquely for a given board size. It is mixed so that every
+     * column affects the slot in the transposition table, which is chosen by
+     * the low bits.
+     */
+    private static long hash(long position, long mask)
+    {
+        return TranspositionTable.mix(position + mask);
+    }
+}
@@ -0,0 +1,44 @@
+package ttaomae.connectn.player;
+
+import ttaomae.connectn.Piece;
+
+/**
+ * Evaluates positions at the leaves of a search. An Evaluator is created for
+ * the position at the root of a search and is kept in step with the search's
+ * board by calling {@link #play(int)} and {@link #undoPlay()} alongside the
+ * corresponding methods of the board, so that it can update its state
+ * incrementally.
+ * <p>
+ * Scores are measured in threats, where one threat is worth a hundredth of a
+ * win. Evaluators are not thread-safe; each search thread should use its own.
+ * <p>
+ * Implementations are made available to players by name through the
+ * {@link EvaluatorRegistry}.
+ *
+ * @author Todd Taomae
+ */
+public interface Evaluator
+{
+    /**
+     * Updates this evaluator for a piece played in the specified column by the
+     * player to move.
+     *
+     * @param col the column
+     */
+    void play(int col);
+
+    /**
+     * Updates this evaluator for the last piece played being removed.
+     */
+    void undoPlay();
+
+    /**
+     * Returns the score of the current position from the perspective of the
+     * specified player. This is only used for positions which have not been
+     * won.
+     *
+     * @param player the player
+     * @return the score of the current position
+     */
+    int evaluate(Piece player);
+}
@@ -0,0 +1,164 @@
+package ttaomae.connectn.player;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cost-per-call metrics for an evaluator registered with the
+ * {@link EvaluatorRegistry}. Every call to {@link Evaluator#evaluate(Piece)}
+ * is counted, as is every incremental update by {@link Evaluator#play(int)}
+ * or {@link Evaluator#undoPlay()}, but only one in every
+ * {@value #SAMPLE_INTERVAL} of each is timed, so that measuring the cost does
+ * not dominate the cost of cheap evaluators.
+ * <p>
+ * Incremental evaluators do most of their work in their updates, so
+ * evaluators should be compared by their {@linkplain #getTotalNanosPerCall()
+ * total cost per call}, which includes the updates.
+ * <p>
+ * Metrics are shared by every evaluator created under the same name and are
+ * safe to update from multiple threads.
+ *
+ * @author Todd Taomae
+ */
+public final class EvaluatorMetrics
+{
+    /** Number of calls per timed call; must be a power of two */
+    static final int SAMPLE_INTERVAL = 64;
+
+    private final String name;
+    private final LongAdder callCount;
+    private final LongAdder sampleCount;
+    private final LongAdder sampleNanos;
+    private final LongAdder updateCount;
+    private final LongAdder updateSampleCount;
+    private final LongAdder updateSampleNanos;
+
+    EvaluatorMetrics(String name)
+    {
+        this.name = name;
+        this.callCount = new LongAdder();
+        this.sampleCount = new LongAdder();
+        this.sampleNanos = new LongAdder();
+        this.updateCount = new LongAdder();
+        this.updateSampleCount = new LongAdder();
+        this.updateSampleNanos = new LongAdder();
+    }
+
+    /**
+     * Returns the name of the evaluator these metrics are for.
+     *
+     * @return the name of the evaluator
+     */
+    public String getName()
+    {
+        return this.name;
+    }
+
+    /**
+     * Returns the number of positions which have been evaluated.
+     *
+     * @return the number of calls to {@code evaluate}
+     */
+    public long getCallCount()
+    {
+        return this.callCount.sum();
+    }
+
+    /**
+     * Returns the average time taken to evaluate a position, estimated from
+     * the timed calls.
+     *
+     * @return the average cost per call in nanoseconds, or {@code NaN} if no
+     *          calls have been timed
+     */
+    public double getAverageNanosPerCall()
+    {
+        long samples = this.sampleCount.sum();
+        return samples == 0 ? Double.NaN : (double) this.sampleNanos.sum() / samples;
+    }
+
+    /**
+     * Returns the number of incremental updates, by {@code play} or
+     * {@code undoPlay}, which have been made.
+     *
+     * @return the number of updates
+     */
+    public long getUpdateCount()
+    {
+        return this.updateCount.sum();
+    }
+
+    /**
+     * Returns the average time taken by an incremental update, estimated from
+     * the timed updates.
+     *
+     * @return the average cost per update in nanoseconds, or {@code NaN} if no
+     *          updates have been timed
+     */
+    public double getAverageNanosPerUpdate()
+    {
+        long samples = this.updateSampleCount.sum();
+        return samples == 0 ? Double.NaN : (double) this.updateSampleNanos.sum() / samples;
+    }
+
+    /**
+     * Returns the estimated total time spent in the evaluator, including
+     * incremental updates, divided by the number of positions evaluated. This
+     * is the cost which should be compared between evaluators.
+     *
+     * @return the total cost per call in nanoseconds, or {@code NaN} if no
+     *          calls have been timed
+     */
+    public double getTotalNanosPerCall()
+    {
+        long calls = getCallCount();
+        long updates = getUpdateCount();
+        double evaluateNanos = calls * getAverageNanosPerCall();
+        double updateNanos = updates == 0 ? 0.0 : updates * getAverageNanosPerUpdate();
+        return calls == 0 ? Double.NaN : (evaluateNanos + updateNanos) / calls;
+    }
+
+    /**
+     * Resets these metrics, so that subsequent calls can be measured
+     * separately.
+     */
+    public void reset()
+    {
+        this.callCount.reset();
+        this.sampleCount.reset();
+        this.sampleNanos.reset();
+        this.updateCount.reset();
+        this.updateSampleCount.reset();
+        this.updateSampleNanos.reset();
+    }
+
+    void recordUpdate()
+    {
+        this.updateCount.increment();
+    }
+
+    void recordUpdateSample(long nanos)
+    {
+        this.updateSampleCount.increment();
+        this.updateSampleNanos.add(nanos);
+    }
+
+    void recordCall()
+    {
+        this.callCount.increment();
+    }
+
+    void recordSample(long nanos)
+    {
+        this.sampleCount.increment();
+        this.sampleNanos.add(nanos);
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s: %d calls, %.1f ns/call, %d updates, %.1f ns/update, "
+                + "%.1f ns/call including updates", this.name, getCallCount(),
+                getAverageNanosPerCall(), getUpdateCount(), getAverageNanosPerUpdate(),
+                getTotalNanosPerCall());
+    }
+}
@@ -0,0 +1,146 @@
+package ttaomae.connectn.player;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import com.google.common.collect.ImmutableSortedSet;
+
+import ttaomae.connectn.ImmutableBoard;
+
+/**
+ * A registry of {@link Evaluator} implementations by name, so that players
+ * can be configured with an evaluator without depending on its class. The
+ * following evaluators are always registered:
+ * <ul>
+ * <li>{@value #SCAN}: scans the entire board for runs of (n - 1) pieces</li>
+ * <li>{@value #LINES}: counts threats incrementally from the pieces in each
+ * line; this is the default</li>
+ * <li>{@value #THREATS}: analyzes threats, including whether they can be
+ * played immediately and their parity; boards which do not fit in 64 bits
+ * fall back to {@value #LINES}</li>
+ * </ul>
+ * Evaluators created by the registry record {@linkplain EvaluatorMetrics
+ * metrics} about their cost, so that evaluators can be compared under real
+ * searches.
+ *
+ * @author Todd Taomae
+ */
+public final class EvaluatorRegistry
+{
+    public static final String SCAN = "scan";
+    public static final String LINES = "lines";
+    public static final String THREATS = "threats";
+    public static final String DEFAULT = LINES;
+
+    private static final Map<String, Registration> REGISTRATIONS = new ConcurrentHashMap<>();
+
+    static {
+        register(SCAN, ScanEvaluator::new);
+        register(LINES, LineCountEvaluator::new);
+        register(THREATS, board -> ThreatEvaluator.canEvaluate(board)
+                ? new ThreatEvaluator(board) : new LineCountEvaluator(board));
+    }
+
+    private EvaluatorRegistry()
+    {
+    }
+
+    /**
+     * Registers an evaluator under the specified name.
+     *
+     * @param name the name of the evaluator
+     * @param factory creates an evaluator for the position at the root of a
+     *          search
+     * @throws IllegalArgumentException if an evaluator with the specified name
+     *          is already registered
+     */
+    public static void register(String name, Function<ImmutableBoard, ? extends Evaluator> factory)
+    {
+        checkNotNull(name, "name must not be null");
+        checkNotNull(factory, "factory must not be null");
+
+        Registration registration = new Registration(factory, new EvaluatorMetrics(name));
+        checkArgument(REGISTRATIONS.putIfAbsent(name, registration) == null,
+                "evaluator already registered: %s", name);
+    }
+
+    /**
+     * Returns the names of all registered evaluators, in alphabetical order.
+     *
+     * @return the names of all registered evaluators
+     */
+    public static Set<String> getNames()
+    {
+        return ImmutableSortedSet.copyOf(REGISTRATIONS.keySet());
+    }
+
+    /**
+     * Returns whether an evaluator with the specified name is registered.
+     *
+     * @param name the name of the evaluator
+     * @return true if an evaluator with the specified name is registered
+     */
+    public static boolean isRegistered(String name)
+    {
+        checkNotNull(name, "name must not be null");
+
+        return REGISTRATIONS.containsKey(name);
+    }
+
+    /**
+     * Returns a factory which creates evaluators with the specified name. The
+     * evaluators record their cost in the {@linkplain #getMetrics(String)
+     * metrics} for that name.
+     *
+     * @param name the name of the evaluator
+     * @return a factory for the specified evaluator
+     * @throws IllegalArgumentException if no evaluator with the specified name
+     *          is registered
+     */
+    public static Function<ImmutableBoard, Evaluator> getFactory(String name)
+    {
+        Registration registration = getRegistration(name);
+        return board -> new MeteredEvaluator(registration.factory.apply(board),
+                registration.metrics);
+    }
+
+    /**
+     * Returns the metrics for evaluators with the specified name.
+     *
+     * @param name the name of the evaluator
+     * @return the metrics for the specified evaluator
+     * @throws IllegalArgumentException if no evaluator with the specified name
+     *          is registered
+     */
+    public static EvaluatorMetrics getMetrics(String name)
+    {
+        return getRegistration(name).metrics;
+    }
+
+    private static Registration getRegistration(String name)
+    {
+        checkNotNull(name, "name must not be null");
+        Registration registration = REGISTRATIONS.get(name);
+        checkArgument(registration != null, "unknown evaluator: %s", name);
+
+        return registration;
+    }
+
+    private static final class Registration
+    {
+        private final Function<ImmutableBoard, ? extends Evaluator> factory;
+        private final EvaluatorMetrics metrics;
+
+        Registration(Function<ImmutableBoard, ? extends Evaluator> factory,
+                EvaluatorMetrics metrics)
+        {
+            this.factory = factory;
+            this.metrics = metrics;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package ttaomae.connectn.player;
+
+import ttaomae.connectn.BoardGeometry;
+import ttaomae.connectn.ImmutableBoard;
+import ttaomae.connectn.Piece;
+
+/**
+ * An {@link Evaluator} which counts threats by keeping track of the number of pieces
+ * each player has in every line of n spaces which could win the game. A line
+ * which contains (n - 1) of one player's pieces and none of the other
+ * player's is a threat for that player.
+ * <p>
+ * The counts are updated incrementally as moves are played and undone, which
+ * only touches the lines through the space that changed, so the number of
+ * threats is available in constant time.
+ * <p>
+ * The lines are taken from the shared {@link BoardGeometry} of the board. The
+ * counts duplicate those kept by {@link ttaomae.connectn.ArrayBoard}, but are
+ * kept separately since evaluators must work with any board, including a
+ * {@link ttaomae.connectn.BitBoard}, which has no line counts, and since the
+ * threat totals must be updated at the same time as the counts. A
+ * LineCountEvaluator is not thread-safe; each search thread should use its
+ * own.
+ *
+ * @author Todd Taomae
+ */
+final class LineCountEvaluator implements Evaluator
+{
+    private final BoardGeometry geometry;
+    private final int winCondition;
+    private final int[] blackCounts;
+    private final int[] redCounts;
+    private final int[] columnHeights;
+    /** Columns played since this evaluator was created */
+    private final int[] playHistory;
+    private int playCount;
+    private Piece nextPiece;
+    private int blackThreats;
+    private int redThreats;
+
+    /**
+     * Constructs a new LineCountEvaluator for the current position of the
+     * specified board.
+     *
+     * @param board the board being searched
+     */
+    LineCountEvaluator(ImmutableBoard board)
+    {
+        this.geometry = BoardGeometry.of(board);
+        this.winCondition = board.getWinCondition();
+        this.blackCounts = new int[this.geometry.getLineCount()];
+        this.redCounts = new int[this.geometry.getLineCount()];
+        this.columnHeights = new int[board.getWidth()];
+        this.playHistory = new int[board.getHeight() * board.getWidth()];
+        this.playCount = 0;
+        this.nextPiece = board.getNextPiece();
+
+        for (int col = 0; col < board.getWidth(); col++) {
+            for (int row = 0; row < board.getHeight(); row++) {
+                Piece piece = board.getPieceAt(col, row);
+                if (piece == Piece.NONE) {
+                    break;
+                }
+                addPiece(col, row, piece, 1);
+                this.columnHeights[col]++;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of threats for the specified player minus the number
+     * of threats for their opponent.
+     */
+    @Override
+    public int evaluate(Piece player)
+    {
+        int difference = this.blackThreats - this.redThreats;
+        return player == Piece.BLACK ? difference : -difference;
+    }
+
+    @Override
+    public void play(int col)
+    {
+        addPiece(col, this.columnHeights[col], this.nextPiece, 1);
+        this.columnHeights[col]++;
+        this.playHistory[this.playCount++] = col;
+        this.nextPiece = this.nextPiece.opposite();
+    }
+
+    @Override
+    public void undoPlay()
+    {
+        assert this.playCount > 0 : "no moves to undo";
+
+        int col = this.playHistory[--this.playCount];
+        this.nextPiece = this.nextPiece.opposite();
+        this.columnHeights[col]--;
+        addPiece(col, this.columnHeights[col], this.nextPiece, -1);
+    }
+
+    private void addPiece(int col, int row, Piece piece, int delta)
+    {
+        int[] ownCounts = piece == Piece.BLACK ? this.blackCounts : this.redCounts;
+        int cell = this.geometry.getCell(col, row);
+        for (int i = 0; i < this.geometry.getLineCountThrough(cell); i++) {
+            int line = this.geometry.getLineThrough(cell, i);
+            // remove the line's old contribution, then add the new one
+            countThreats(line, -1);
+            ownCounts[line] += delta;
+            countThreats(line, 1);
+        }
+    }
+
+    private void countThreats(int line, int sign)
+    {
+        int black = this.blackCounts[line];
+        int red = this.redCounts[line];
+        if (black == this.winCondition - 1 && red == 0) {
+            this.blackThreats += sign;
+        }
+        else if (red == this.winCondition - 1 && black == 0) {
+            this.redThreats += sign;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package ttaomae.connectn.player;
+
+import ttaomae.connectn.Piece;
+
+/**
+ * An {@link Evaluator} which records the cost of each evaluation and each
+ * incremental update in an {@link EvaluatorMetrics} before delegating to
+ * another evaluator.
+ *
+ * @author Todd Taomae
+ */
+final class MeteredEvaluator implements Evaluator
+{
+    private final Evaluator evaluator;
+    private final EvaluatorMetrics metrics;
+    private int calls;
+    private int updates;
+
+    MeteredEvaluator(Evaluator evaluator, EvaluatorMetrics metrics)
+    {
+        this.evaluator = evaluator;
+        this.metrics = metrics;
+        this.calls = 0;
+        this.updates = 0;
+    }
+
+    @Override
+    public void play(int col)
+    {
+        this.metrics.recordUpdate();
+        if ((this.updates++ & (EvaluatorMetrics.SAMPLE_INTERVAL - 1)) != 0) {
+            this.evaluator.play(col);
+            return;
+        }
+
+        long start = System.nanoTime();
+        this.evaluator.play(col);
+        this.metrics.recordUpdateSample(System.nanoTime() - start);
+    }
+
+    @Override
+    public void undoPlay()
+    {
+        this.metrics.recordUpdate();
+        if ((this.updates++ & (EvaluatorMetrics.SAMPLE_INTERVAL - 1)) != 0) {
+            this.evaluator.undoPlay();
+            return;
+        }
+
+        long start = System.nanoTime();
+        this.evaluator.undoPlay();
+        this.metrics.recordUpdateSample(System.nanoTime() - start);
+    }
+
+    @Override
+    public int evaluate(Piece player)
+    {
+        this.metrics.recordCall();
+        if ((this.calls++ & (EvaluatorMetrics.SAMPLE_INTERVAL - 1)) != 0) {
+            return this.evaluator.evaluate(player);
+        }
+
+        long start = System.nanoTime();
+        int score = this.evaluator.evaluate(player);
+        this.metrics.recordSample(System.nanoTime() - start);
+        return score;
+    }
+}
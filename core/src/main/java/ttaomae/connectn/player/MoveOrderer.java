@@ -0,0 +1,193 @@
+package ttaomae.connectn.player;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import ttaomae.connectn.Board;
+import ttaomae.connectn.Piece;
+
+/**
+ * Orders moves during a search so that the moves most likely to cause a cutoff
+ * are searched first. Moves are ordered as follows:
+ * <ol>
+ * <li>the best move from the transposition table</li>
+ * <li>killer moves, which recently caused a cutoff at the same ply</li>
+ * <li>all other moves by their history score, with ties broken by their
+ * distance from the center column</li>
+ * </ol>
+ * All state is stored in preallocated primitive arrays, so ordering moves does
+ * not allocate. A MoveOrderer is not thread-safe; each search thread should use
+ * its own.
+ *
+ * @author Todd Taomae
+ */
+final class MoveOrderer
+{
+    private static final int KILLERS_PER_PLY = 2;
+    /** Cache of center-first column orders, keyed by board width */
+    private static final ConcurrentMap<Integer, int[]> CENTER_FIRST_ORDERS
+            = new ConcurrentHashMap<>();
+
+    private final int width;
+    private final int[] centerFirstOrder;
+    /** Buffer of ordered moves for each ply */
+    private final int[][] moves;
+    /** Scores of the moves in the buffer for each ply, used while sorting */
+    private final int[][] scores;
+    private final int[][] killers;
+    /** History scores indexed by player and column */
+    private final int[][] history;
+
+    /**
+     * Constructs a new MoveOrderer for searches of up to the specified number
+     * of plies on boards with the specified width.
+     *
+     * @param width the width of the board
+     * @param maxPly the maximum number of plies that will be searched
+     */
+    MoveOrderer(int width, int maxPly)
+    {
+        this.width = width;
+        this.centerFirstOrder = centerFirstOrder(width);
+        this.moves = new int[maxPly + 1][width];
+        this.scores = new int[maxPly + 1][width];
+        this.killers = new int[maxPly + 1][KILLERS_PER_PLY];
+        for (int[] plyKillers : this.killers) {
+            plyKillers[0] = Board.INVALID_MOVE;
+            plyKillers[1] = Board.INVALID_MOVE;
+        }
+        this.history = new int[2][width];
+    }
+
+    /**
+     * Returns the columns of a board with the specified width, ordered by their
+     * distance from the center. The returned array is shared and must not be
+     * modified.
+     *
+     * @param width the width of the board
+     * @return the columns ordered from the center outwards
+     */
+    static int[] centerFirstOrder(int width)
+    {
+        return CENTER_FIRST_ORDERS.computeIfAbsent(width, w -> {
+            int[] order = new int[w];
+            for (int i = 0; i < w; i++) {
+                // alternate between left and right of center
+                int offset = (i + 1) / 2;
+                order[i] = w / 2 + (i % 2 == 0 ? offset : -offset);
+            }
+            return order;
+        });
+    }
+
+    /**
+     * Fills the move buffer for the specified ply with the valid moves on the
+     * specified board, in the order that they should be searched.
+     *
+     * @param board the board being searched
+     * @param ply the distance from the root of the search
+     * @param hashMove the best move from the transposition table, or
+     *          {@link Board#INVALID_MOVE}
+     * @return the number of valid moves
+     */
+    int orderMoves(Board board, int ply, int hashMove)
+    {
+        int[] plyMoves = this.moves[ply];
+        int[] plyScores = this.scores[ply];
+        int[] plyKillers = this.killers[ply];
+        int[] playerHistory = this.history[playerIndex(board.getNextPiece())];
+
+        int count = 0;
+        for (int col : this.centerFirstOrder) {
+            if (!board.isValidMove(col)) {
+                continue;
+            }
+
+            int score;
+            if (col == hashMove) {
+                score = Integer.MAX_VALUE;
+            }
+            else if (col == plyKillers[0]) {
+                score = Integer.MAX_VALUE - 1;
+            }
+            else if (col == plyKillers[1]) {
+                score = Integer.MAX_VALUE - 2;
+            }
+            else {
+                score = Math.min(playerHistory[col], Integer.MAX_VALUE - 3);
+            }
+
+            // insertion sort; stable so that ties remain in center-first order
+            int i = count;
+            while (i > 0 && plyScores[i - 1] < score) {
+                plyMoves[i] = plyMoves[i - 1];
+                plyScores[i] = plyScores[i - 1];
+                i--;
+            }
+            plyMoves[i] = col;
+            plyScores[i] = score;
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Fills the move buffer for the specified ply with a single move which
+     * must be played, such as a move which blocks an immediate win.
+     *
+     * @param ply the distance from the root of the search
+     * @param move the move which must be played
+     * @return the number of moves, which is always 1
+     */
+    int forceMove(int ply, int move)
+    {
+        this.moves[ply][0] = move;
+        return 1;
+    }
+
+    /**
+     * Returns the move at the specified index of the move buffer for the
+     * specified ply.
+     *
+     * @param ply the distance from the root of the search
+     * @param index the index of the move
+     * @return the move at the specified index
+     */
+    int getMove(int ply, int index)
+    {
+        return this.moves[ply][index];
+    }
+
+    /**
+     * Records that the specified move caused a cutoff, or was the best move,
+     * at the specified ply.
+     *
+     * @param ply the distance from the root of the search
+     * @param move the move which caused the cutoff
+     * @param piece the piece which was played
+     * @param depth the remaining search depth
+     */
+    void recordCutoff(int ply, int move, Piece piece, int depth)
+    {
+        int[] plyKillers = this.killers[ply];
+        if (plyKillers[0] != move) {
+            plyKillers[1] = plyKillers[0];
+            plyKillers[0] = move;
+        }
+
+        // deeper cutoffs save more work, so they are weighted more heavily
+        int[] playerHistory = this.history[playerIndex(piece)];
+        playerHistory[move] += depth * depth;
+        // keep scores from overflowing by halving all of them
+        if (playerHistory[move] > Integer.MAX_VALUE / 2) {
+            for (int col = 0; col < this.width; col++) {
+                playerHistory[col] /= 2;
+            }
+        }
+    }
+
+    private static int playerIndex(Piece piece)
+    {
+        return piece == Piece.BLACK ? 0 : 1;
+    }
+}
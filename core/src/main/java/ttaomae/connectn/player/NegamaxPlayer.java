@@ -0,0 +1,354 @@
+package ttaomae.connectn.player;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Optional;
+
+import ttaomae.connectn.Board;
+import ttaomae.connectn.BoardGeometry;
+import ttaomae.connectn.ImmutableBoard;
+import ttaomae.connectn.Piece;
+
+/**
+ * A Player which uses a negamax search with principal variation search (PVS).
+ * <p>
+ * Scores are integers from the perspective of the player to move. Wins are
+ * scored by their distance from the root, so that faster wins and slower
+ * losses are preferred, which also allows mate-distance pruning. The first
+ * move at each node is searched with the full window and the remaining moves
+ * with a null window, which are only re-searched if they turn out to be
+ * better than the first.
+ * <p>
+ * The search is run with iterative deepening up to the maximum depth, sharing
+ * a transposition table between iterations. Statistics about the most recent
+ * search are available from {@link #getLastSearchStatistics()}.
+ *
+ * @author Todd Taomae
+ */
+public class NegamaxPlayer implements Player
+{
+    private static final int DEFAULT_DEPTH = 5;
+    private static final int DEFAULT_TABLE_SIZE_MB = 16;
+
+    /** Score of a win at the root; wins further from the root score less */
+    static final int WIN_SCORE = 1_000_000;
+    /** Scores with an absolute value above this are wins or losses */
+    static final int WIN_THRESHOLD = WIN_SCORE - TranspositionTable.MAX_DEPTH - 1;
+    private static final int INFINITY = WIN_SCORE + 1;
+    /** Score of each (n - 1)-in-a-row which can be completed */
+    private static final int THREAT_SCORE = 100;
+
+    private final int maxDepth;
+    /** Null if disabled */
+    private final TranspositionTable transpositionTable;
+
+    private long nodeCount;
+    /** Lines of the board being searched by the current search */
+    private BoardGeometry geometry;
+    private volatile SearchStatistics lastSearchStatistics;
+
+    /**
+     * Constructs a new NegamaxPlayer which uses the default search depth.
+     */
+    public NegamaxPlayer()
+    {
+        this(DEFAULT_DEPTH);
+    }
+
+    /**
+     * Constructs a new NegamaxPlayer which uses the specified search depth.
+     *
+     * @param maxDepth the search depth
+     */
+    public NegamaxPlayer(int maxDepth)
+    {
+        this(maxDepth, DEFAULT_TABLE_SIZE_MB);
+    }
+
+    /**
+     * Constructs a new NegamaxPlayer which uses the specified search depth and
+     * a transposition table of the specified size.
+     *
+     * @param maxDepth the search depth
+     * @param transpositionTableSizeMB the size of the transposition table in
+     *          megabytes, or 0 to disable the transposition table
+     */
+    public NegamaxPlayer(int maxDepth, int transpositionTableSizeMB)
+    {
+        checkArgument(maxDepth > 0, "maxDepth must be positive");
+        checkArgument(maxDepth <= TranspositionTable.MAX_DEPTH,
+                "maxDepth must be at most " + TranspositionTable.MAX_DEPTH);
+        checkArgument(transpositionTableSizeMB >= 0,
+                "transpositionTableSizeMB must be non-negative");
+
+        this.maxDepth = maxDepth;
+        this.transpositionTable = transpositionTableSizeMB == 0
+                ? null : new TranspositionTable(transpositionTableSizeMB);
+        this.lastSearchStatistics = SearchStatistics.NONE;
+    }
+
+    /**
+     * Returns statistics about the most recent search performed by this
+     * player.
+     *
+     * @return statistics about the most recent search
+     */
+    public SearchStatistics getLastSearchStatistics()
+    {
+        return this.lastSearchStatistics;
+    }
+
+    @Override
+    public Optional<Integer> getMove(ImmutableBoard board)
+    {
+        checkNotNull(board, "board must not be null");
+
+        long startTime = System.nanoTime();
+        this.nodeCount = 0L;
+        // the lines of the board are looked up once, rather than at every leaf
+        this.geometry = BoardGeometry.of(board);
+        if (this.transpositionTable != null) {
+            this.transpositionTable.newSearch();
+        }
+
+        Board copy = board.getMutableCopy();
+        int emptyCells = board.getHeight() * board.getWidth() - board.getCurrentTurn();
+        int depthLimit = Math.min(this.maxDepth, emptyCells);
+        MoveOrderer moveOrderer = new MoveOrderer(board.getWidth(), depthLimit);
+
+        int bestMove = Board.INVALID_MOVE;
+        int completedDepth = 0;
+        for (int depth = 1; depth <= depthLimit; depth++) {
+            int move = searchRoot(copy, depth, moveOrderer);
+            if (Thread.currentThread().isInterrupted()) {
+                return Optional.empty();
+            }
+            bestMove = move;
+            completedDepth = depth;
+        }
+
+        this.lastSearchStatistics = new SearchStatistics(completedDepth, this.nodeCount,
+                System.nanoTime() - startTime);
+
+        return bestMove == Board.INVALID_MOVE ? Optional.empty() : Optional.of(bestMove);
+    }
+
+    /**
+     * Searches each move at the root and returns the best one.
+     */
+    private int searchRoot(Board board, int depth, MoveOrderer moveOrderer)
+    {
+        this.nodeCount++;
+        int hashMove = this.transpositionTable == null ? Board.INVALID_MOVE
+                : TranspositionTable.getMove(this.transpositionTable.probe(board.getHash()));
+        int moveCount = moveOrderer.orderMoves(board, 0, hashMove);
+
+        int alpha = -INFINITY;
+        int bestMove = Board.INVALID_MOVE;
+        for (int i = 0; i < moveCount; i++) {
+            int move = moveOrderer.getMove(0, i);
+            board.play(move);
+            int score = principalVariationSearch(board, depth - 1, 1, alpha, INFINITY, i == 0,
+                    moveOrderer);
+            board.undoPlay();
+
+            if (score > alpha) {
+                alpha = score;
+                bestMove = move;
+            }
+        }
+
+        if (this.transpositionTable != null && !Thread.currentThread().isInterrupted()) {
+            this.transpositionTable.store(board.getHash(), depth, TranspositionTable.EXACT,
+                    toTableScore(alpha, 0), bestMove);
+        }
+        return bestMove;
+    }
+
+    /**
+     * Returns the score of a child node from the perspective of its parent.
+     * Unless it is the first child, the child is first searched with a null
+     * window and only re-searched with the full window if it might improve on
+     * alpha.
+     */
+    private int principalVariationSearch(Board board, int depth, int ply, int alpha, int beta,
+            boolean firstChild, MoveOrderer moveOrderer)
+    {
+        if (firstChild) {
+            return -negamax(board, depth, ply, -beta, -alpha, moveOrderer);
+        }
+
+        int score = -negamax(board, depth, ply, -alpha - 1, -alpha, moveOrderer);
+        if (score > alpha && score < beta) {
+            score = -negamax(board, depth, ply, -beta, -alpha, moveOrderer);
+        }
+        return score;
+    }
+
+    /**
+     * Returns the score of the specified board from the perspective of the
+     * player to move.
+     *
+     * @param board board to analyze
+     * @param depth remaining search depth
+     * @param ply distance from the root of the search
+     * @param alpha minimum score that the player to move is assured of
+     * @param beta maximum score that the opponent will allow
+     * @param moveOrderer orders the moves at each node
+     * @return the score of the specified board
+     */
+    private int negamax(Board board, int depth, int ply, int alpha, int beta,
+            MoveOrderer moveOrderer)
+    {
+        this.nodeCount++;
+        if (Thread.currentThread().isInterrupted()) {
+            return 0;
+        }
+
+        Piece winner = board.getWinner();
+        if (winner == Piece.DRAW) {
+            return 0;
+        }
+        // the previous player made the winning move
+        if (winner != Piece.NONE) {
+            return -(WIN_SCORE - ply);
+        }
+        if (depth == 0) {
+            return evaluate(board, this.geometry);
+        }
+
+        // mate-distance pruning; even a win on the next move cannot do better
+        // than this, and a shorter loss must already have been avoided
+        alpha = Math.max(alpha, -(WIN_SCORE - ply));
+        beta = Math.min(beta, WIN_SCORE - ply - 1);
+        if (alpha >= beta) {
+            return alpha;
+        }
+
+        long hash = board.getHash();
+        int hashMove = Board.INVALID_MOVE;
+        if (this.transpositionTable != null) {
+            long entry = this.transpositionTable.probe(hash);
+            if (entry != TranspositionTable.NO_ENTRY) {
+                hashMove = TranspositionTable.getMove(entry);
+                if (TranspositionTable.getDepth(entry) >= depth) {
+                    int score = fromTableScore(TranspositionTable.getScore(entry), ply);
+                    int bound = TranspositionTable.getBound(entry);
+                    if (bound == TranspositionTable.EXACT
+                            || (bound == TranspositionTable.LOWER_BOUND && score >= beta)
+                            || (bound == TranspositionTable.UPPER_BOUND && score <= alpha)) {
+                        return score;
+                    }
+                }
+            }
+        }
+
+        int originalAlpha = alpha;
+        int bestScore = -INFINITY;
+        int bestMove = Board.INVALID_MOVE;
+        int moveCount = moveOrderer.orderMoves(board, ply, hashMove);
+        for (int i = 0; i < moveCount; i++) {
+            int move = moveOrderer.getMove(ply, i);
+            board.play(move);
+            int score = principalVariationSearch(board, depth - 1, ply + 1, alpha, beta, i == 0,
+                    moveOrderer);
+            board.undoPlay();
+
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+            }
+            if (score > alpha) {
+                alpha = score;
+            }
+            if (alpha >= beta) {
+                moveOrderer.recordCutoff(ply, move, board.getNextPiece(), depth);
+                break;
+            }
+        }
+
+        // results from interrupted searches are incomplete
+        if (this.transpositionTable != null && !Thread.currentThread().isInterrupted()) {
+            int bound;
+            if (bestScore <= originalAlpha) {
+                bound = TranspositionTable.UPPER_BOUND;
+            }
+            else if (bestScore >= beta) {
+                bound = TranspositionTable.LOWER_BOUND;
+            }
+            else {
+                bound = TranspositionTable.EXACT;
+            }
+            this.transpositionTable.store(hash, depth, bound, toTableScore(bestScore, ply),
+                    bestMove);
+        }
+        return bestScore;
+    }
+
+    /**
+     * Returns a heuristic score of the specified board from the perspective of
+     * the player to move. Each line of n spaces which contains (n - 1) of one
+     * player's pieces and one empty space is a threat for that player.
+     */
+    private static int evaluate(Board board, BoardGeometry geometry)
+    {
+        Piece player = board.getNextPiece();
+        int score = 0;
+        for (int line = 0; line < geometry.getLineCount(); line++) {
+            score += evaluateLine(board, geometry, line, player);
+        }
+        return score;
+    }
+
+    private static int evaluateLine(Board board, BoardGeometry geometry, int line, Piece player)
+    {
+        int n = geometry.getWinCondition();
+        int own = 0;
+        int opponent = 0;
+        for (int i = 0; i < n; i++) {
+            int cell = geometry.getLineCell(line, i);
+            Piece piece = board.getPieceAt(geometry.getColumn(cell), geometry.getRow(cell));
+            if (piece == player) {
+                own++;
+            }
+            else if (piece != Piece.NONE) {
+                opponent++;
+            }
+        }
+
+        if (own == n - 1 && opponent == 0) {
+            return THREAT_SCORE;
+        }
+        if (opponent == n - 1 && own == 0) {
+            return -THREAT_SCORE;
+        }
+        return 0;
+    }
+
+    // Win scores depend on the distance from the root, but entries in the
+    // transposition table may be reached at different distances from the
+    // root, so they are stored relative to the node instead.
+
+    private static int toTableScore(int score, int ply)
+    {
+        if (score > WIN_THRESHOLD) {
+            return score + ply;
+        }
+        if (score < -WIN_THRESHOLD) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    private static int fromTableScore(int score, int ply)
+    {
+        if (score > WIN_THRESHOLD) {
+            return score - ply;
+        }
+        if (score < -WIN_THRESHOLD) {
+            return score + ply;
+        }
+        return score;
+    }
+}
@@ -0,0 +1,225 @@
+package ttaomae.connectn.player;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import ttaomae.connectn.ImmutableBoard;
+
+/**
+ * A read-only table of precomputed moves for early positions, stored in a
+ * memory-mapped file. Books are created by {@link OpeningBookGenerator}.
+ * <p>
+ * A position and its mirror image share an entry. Entries are keyed by the
+ * canonical hash of a position, which is the smaller of the Zobrist hashes of
+ * the position and its mirror image, and the stored move is the move for
+ * whichever of the two has the smaller hash.
+ * <p>
+ * The file consists of a header followed by the entries sorted by key:
+ * <pre>
+ * int magic, int version, int height, int width, int winCondition, int count
+ * count * (long key, short move)
+ * </pre>
+ * An OpeningBook is safe to use from multiple threads.
+ *
+ * @author Todd Taomae
+ */
+public final class OpeningBook
+{
+    static final int MAGIC = 0x434E4F42; // "CNOB"
+    static final int VERSION = 1;
+    private static final int HEADER_BYTES = 6 * Integer.BYTES;
+    private static final int ENTRY_BYTES = Long.BYTES + Short.BYTES;
+
+    private final int height;
+    private final int width;
+    private final int winCondition;
+    private final int size;
+    /** Entries only; absolute reads do not change the buffer's position */
+    private final ByteBuffer entries;
+
+    private OpeningBook(int height, int width, int winCondition, int size,
+            ByteBuffer entries)
+    {
+        this.height = height;
+        this.width = width;
+        this.winCondition = winCondition;
+        this.size = size;
+        this.entries = entries;
+    }
+
+    /**
+     * Opens the opening book stored in the specified file. The file is
+     * memory-mapped, so entries are only read from disk as they are needed.
+     *
+     * @param path the book file
+     * @return the opening book stored in the specified file
+     * @throws IOException if the file could not be read or is not a valid
+     *          opening book
+     */
+    public static OpeningBook open(Path path) throws IOException
+    {
+        checkNotNull(path, "path must not be null");
+
+        // the mapping remains valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size());
+            if (buffer.remaining() < HEADER_BYTES) {
+                throw new IOException("Opening book is missing its header: " + path);
+            }
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not an opening book: " + path);
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported opening book version " + version + ": " + path);
+            }
+            int height = buffer.getInt();
+            int width = buffer.getInt();
+            int winCondition = buffer.getInt();
+            int size = buffer.getInt();
+            if (size < 0 || buffer.remaining() != (long) size * ENTRY_BYTES) {
+                throw new IOException("Opening book is truncated: " + path);
+            }
+
+            return new OpeningBook(height, width, winCondition, size, buffer.slice());
+        }
+    }
+
+    /**
+     * Writes an opening book with the specified entries to the specified file.
+     *
+     * @param path the file to write to
+     * @param height the height of the board
+     * @param width the width of the board
+     * @param winCondition the number of pieces in a row needed to win
+     * @param moves the move for each position, keyed by
+     *          {@linkplain #canonicalHash(ImmutableBoard) canonical hash}; each
+     *          move is for the position with the smaller hash
+     * @throws IOException if the file could not be written
+     */
+    static void write(Path path, int height, int width, int winCondition,
+            Map<Long, Integer> moves) throws IOException
+    {
+        // entries must be sorted for binary search; compare keys as signed
+        // longs, matching the search in findEntry
+        SortedMap<Long, Integer> sortedMoves = new TreeMap<>(moves);
+        try (OutputStream file = Files.newOutputStream(path);
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(height);
+            out.writeInt(width);
+            out.writeInt(winCondition);
+            out.writeInt(sortedMoves.size());
+            for (Map.Entry<Long, Integer> entry : sortedMoves.entrySet()) {
+                out.writeLong(entry.getKey());
+                out.writeShort(entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Returns the number of positions in this book, counting a position and
+     * its mirror image once.
+     *
+     * @return the number of positions in this book
+     */
+    public int size()
+    {
+        return this.size;
+    }
+
+    /**
+     * Returns the book move for the specified board, if there is one. Boards
+     * with different dimensions or win conditions than this book never have a
+     * book move.
+     *
+     * @param board the board
+     * @return the book move for the specified board, or an empty Optional if
+     *          the position is not in this book
+     */
+    public Optional<Integer> getMove(ImmutableBoard board)
+    {
+        checkNotNull(board, "board must not be null");
+
+        if (board.getHeight() != this.height || board.getWidth() != this.width
+                || board.getWinCondition() != this.winCondition) {
+            return Optional.empty();
+        }
+
+        long hash = board.getHash();
+        long mirrorHash = board.getMirrorHash();
+        int index = findEntry(Math.min(hash, mirrorHash));
+        if (index < 0) {
+            return Optional.empty();
+        }
+
+        int move = this.entries.getShort(index * ENTRY_BYTES + Long.BYTES);
+        // the stored move is for the mirror image
+        if (mirrorHash < hash) {
+            move = this.width - 1 - move;
+        }
+        return Optional.of(move);
+    }
+
+    /**
+     * Returns the index of the entry with the specified key, or -1 if there
+     * is none.
+     */
+    private int findEntry(long key)
+    {
+        int low = 0;
+        int high = this.size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midKey = this.entries.getLong(mid * ENTRY_BYTES);
+            if (midKey < key) {
+                low = mid + 1;
+            }
+            else if (midKey > key) {
+                high = mid - 1;
+            }
+            else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the canonical hash of the specified board, which is the same for
+     * a position and its mirror image.
+     *
+     * @param board the board
+     * @return the canonical hash of the specified board
+     */
+    static long canonicalHash(ImmutableBoard board)
+    {
+        return Math.min(board.getHash(), board.getMirrorHash());
+    }
+
+    /**
+     * Returns whether the specified board is the canonical orientation of its
+     * position; that is, its mirror image does not have a smaller hash.
+     *
+     * @param board the board
+     * @return true if the specified board is in canonical orientation
+     */
+    static boolean isCanonical(ImmutableBoard board)
+    {
+        return board.getHash() <= board.getMirrorHash();
+    }
+}
@@ -0,0 +1,152 @@
+package ttaomae.connectn.player;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ttaomae.connectn.BitBoard;
+import ttaomae.connectn.Board;
+import ttaomae.connectn.Piece;
+
+/**
+ * Generates {@linkplain OpeningBook opening books} offline by asking a Player
+ * for its move in every position reachable within a number of plies. The book
+ * is only as good as the Player used to generate it. A book generated with a
+ * depth-limited search, such as a {@link NegamaxPlayer}, is heuristic. An
+ * {@linkplain #exactPlayer(EndgameSolver) exact Player} gives exact moves, but
+ * solving from the first few plies is only practical on small boards; on the
+ * standard 6x7 board, books are heuristic.
+ * <p>
+ * Positions are enumerated once per canonical hash, so a position and its
+ * mirror image are only searched once. Positions which have already been won
+ * are skipped.
+ *
+ * @author Todd Taomae
+ */
+public final class OpeningBookGenerator
+{
+    private static final Logger logger = LoggerFactory.getLogger(OpeningBookGenerator.class);
+
+    private final Player player;
+    private final int plies;
+
+    /**
+     * Constructs a new OpeningBookGenerator which uses the specified Player
+     * to choose the move in every position with fewer than the specified
+     * number of pieces.
+     *
+     * @param player the Player used to choose moves
+     * @param plies the number of plies covered by the book
+     */
+    public OpeningBookGenerator(Player player, int plies)
+    {
+        checkNotNull(player, "player must not be null");
+        checkArgument(plies > 0, "plies must be positive");
+
+        this.player = player;
+        this.plies = plies;
+    }
+
+    /**
+     * Generates an opening book for boards with the specified dimensions and
+     * writes it to the specified file.
+     *
+     * @param path the file to write to
+     * @param height the height of the board
+     * @param width the width of the board
+     * @param winCondition the number of pieces in a row needed to win
+     * @return the number of positions in the book
+     * @throws IOException if the file could not be written
+     */
+    public int generate(Path path, int height, int width, int winCondition) throws IOException
+    {
+        checkNotNull(path, "path must not be null");
+
+        Map<Long, Integer> moves = new HashMap<>();
+        addPositions(new BitBoard(height, width, winCondition), moves);
+        OpeningBook.write(path, height, width, winCondition, moves);
+
+        logger.info("Wrote {} positions to {}.", moves.size(), path);
+        return moves.size();
+    }
+
+    /**
+     * Adds the specified position and all positions reachable from it within
+     * the remaining plies to the specified moves.
+     */
+    private void addPositions(Board board, Map<Long, Integer> moves)
+    {
+        if (board.getCurrentTurn() >= this.plies || board.getWinner() != Piece.NONE) {
+            return;
+        }
+        long canonicalHash = OpeningBook.canonicalHash(board.getImmutableView());
+        if (moves.containsKey(canonicalHash)) {
+            return;
+        }
+
+        Optional<Integer> move = this.player.getMove(board.getImmutableView());
+        if (!move.isPresent() || !board.isValidMove(move.get())) {
+            logger.warn("No valid move for position with hash {}; skipping.", canonicalHash);
+            return;
+        }
+        // store the move for the canonical orientation
+        moves.put(canonicalHash, OpeningBook.isCanonical(board.getImmutableView())
+                ? move.get() : board.getWidth() - 1 - move.get());
+        if (moves.size() % 1000 == 0) {
+            logger.info("Generated {} positions.", moves.size());
+        }
+
+        for (int col = 0; col < board.getWidth(); col++) {
+            if (board.isValidMove(col)) {
+                board.play(col);
+                addPositions(board, moves);
+                board.undoPlay();
+            }
+        }
+    }
+
+    /**
+     * Returns a Player which plays a move with the best exact score, as found
+     * by the specified solver. Each move is solved to the end of the game, so
+     * this is only practical for small boards, or for positions late enough
+     * that the solver finishes quickly.
+     *
+     * @param solver the solver used to score moves
+     * @return a Player which plays exact moves
+     */
+    public static Player exactPlayer(EndgameSolver solver)
+    {
+        checkNotNull(solver, "solver must not be null");
+
+        return board -> solver.getBestMoves(board).stream().findFirst();
+    }
+
+    /**
+     * Generates a heuristic opening book for the standard 6x7 board. Moves
+     * are found by a NegamaxPlayer searching to the specified depth.
+     *
+     * @param args the output file, the number of plies, and the search depth
+     * @throws IOException if the book could not be written
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length != 3) {
+            System.err.println("usage: OpeningBookGenerator <output file> <plies> <depth>");
+            System.exit(1);
+        }
+
+        Path path = Paths.get(args[0]);
+        int plies = Integer.parseInt(args[1]);
+        int depth = Integer.parseInt(args[2]);
+        new OpeningBookGenerator(new NegamaxPlayer(depth), plies).generate(path, 6, 7, 4);
+    }
+}
@@ -0,0 +1,98 @@
+package ttaomae.connectn.player;
+
+import ttaomae.connectn.Board;
+import ttaomae.connectn.ImmutableBoard;
+import ttaomae.connectn.Piece;
+
+/**
+ * An {@link Evaluator} which scans the entire board every time a position is
+ * evaluated. Each space which starts a run of (n - 1) of a player's pieces in
+ * any direction counts as one threat for that player.
+ * <p>
+ * This is the original heuristic used by {@link AlphaBetaPlayer}. It does not
+ * keep any incremental state other than a copy of the board, so it is simple
+ * but much slower than the other evaluators.
+ *
+ * @author Todd Taomae
+ */
+final class ScanEvaluator implements Evaluator
+{
+    /** Column and row steps for horizontal, vertical, and both diagonals */
+    private static final int[][] DIRECTIONS = {{1, 0}, {0, 1}, {1, 1}, {-1, 1}};
+
+    private final Board board;
+
+    /**
+     * Constructs a new ScanEvaluator for the current position of the specified
+     * board.
+     *
+     * @param board the board being searched
+     */
+    ScanEvaluator(ImmutableBoard board)
+    {
+        this.board = board.getMutableCopy();
+    }
+
+    @Override
+    public void play(int col)
+    {
+        this.board.play(col);
+    }
+
+    @Override
+    public void undoPlay()
+    {
+        this.board.undoPlay();
+    }
+
+    @Override
+    public int evaluate(Piece player)
+    {
+        int runLength = this.board.getWinCondition() - 1;
+        int playerRuns = 0;
+        int opponentRuns = 0;
+        for (int col = 0; col < this.board.getWidth(); col++) {
+            for (int row = 0; row < this.board.getHeight(); row++) {
+                Piece piece = this.board.getPieceAt(col, row);
+                if (piece == Piece.NONE) {
+                    // every space above is also empty
+                    break;
+                }
+
+                for (int[] direction : DIRECTIONS) {
+                    if (isRun(col, row, direction, piece, runLength)) {
+                        if (piece == player) {
+                            playerRuns++;
+                        }
+                        else {
+                            opponentRuns++;
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+        return playerRuns - opponentRuns;
+    }
+
+    /**
+     * Returns whether there is a run of the specified length of the specified
+     * piece, starting at the specified position and going in the specified
+     * direction.
+     */
+    private boolean isRun(int col, int row, int[] direction, Piece piece, int length)
+    {
+        int endCol = col + direction[0] * (length - 1);
+        int endRow = row + direction[1] * (length - 1);
+        if (endCol < 0 || endCol >= this.board.getWidth() || endRow >= this.board.getHeight()) {
+            return false;
+        }
+
+        for (int i = 1; i < length; i++) {
+            if (this.board.getPieceAt(col + direction[0] * i, row + direction[1] * i) != piece) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
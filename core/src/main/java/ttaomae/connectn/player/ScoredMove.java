@@ -0,0 +1,68 @@
+package ttaomae.connectn.player;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * A move at the root of a search and the score found for it. ScoredMoves are
+ * immutable, so they can be returned from search tasks and combined by the
+ * calling thread without any synchronization.
+ *
+ * @author Todd Taomae
+ */
+final class ScoredMove
+{
+    private final int move;
+    private final double score;
+
+    ScoredMove(int move, double score)
+    {
+        this.move = move;
+        this.score = score;
+    }
+
+    int getMove()
+    {
+        return this.move;
+    }
+
+    double getScore()
+    {
+        return this.score;
+    }
+
+    /**
+     * Returns the moves with the highest score, ordered by their distance
+     * from the center column, so that the result does not depend on the order
+     * in which the scores were computed.
+     *
+     * @param scoredMoves the scored moves; must not be empty
+     * @param width the width of the board
+     * @return the moves with the highest score
+     */
+    static List<Integer> bestMoves(Collection<ScoredMove> scoredMoves, int width)
+    {
+        assert !scoredMoves.isEmpty() : "no moves to choose from";
+
+        double best = scoredMoves.stream()
+                .mapToDouble(ScoredMove::getScore)
+                .max().getAsDouble();
+        Set<Integer> bestMoves = scoredMoves.stream()
+                .filter(scoredMove -> scoredMove.getScore() == best)
+                .map(ScoredMove::getMove)
+                .collect(Collectors.toSet());
+        return Arrays.stream(MoveOrderer.centerFirstOrder(width))
+                .filter(bestMoves::contains)
+                .boxed()
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.move + ": " + this.score;
+    }
+}
@@ -0,0 +1,93 @@
+package ttaomae.connectn.player;
+
+import java.time.Duration;
+
+/**
+ * Statistics about a single search for a move. These can be used to compare
+ * search engines on the same positions.
+ *
+ * @author Todd Taomae
+ */
+public final class SearchStatistics
+{
+    /** Statistics used before any search has been performed */
+    static final SearchStatistics NONE = new SearchStatistics(0, 0L, 0L);
+
+    private final int depth;
+    private final long nodeCount;
+    private final long elapsedNanos;
+
+    SearchStatistics(int depth, long nodeCount, long elapsedNanos)
+    {
+        this.depth = depth;
+        this.nodeCount = nodeCount;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Returns the depth of the deepest completed search.
+     *
+     * @return the search depth
+     */
+    public int getDepth()
+    {
+        return this.depth;
+    }
+
+    /**
+     * Returns the total number of nodes visited, including the root and any
+     * leaf nodes.
+     *
+     * @return the number of nodes visited
+     */
+    public long getNodeCount()
+    {
+        return this.nodeCount;
+    }
+
+    /**
+     * Returns the time taken by the search.
+     *
+     * @return the time taken by the search
+     */
+    public Duration getElapsedTime()
+    {
+        return Duration.ofNanos(this.elapsedNanos);
+    }
+
+    /**
+     * Returns the number of nodes visited per second.
+     *
+     * @return the number of nodes visited per second
+     */
+    public double getNodesPerSecond()
+    {
+        if (this.elapsedNanos == 0L) {
+            return 0.0;
+        }
+        return this.nodeCount * 1e9 / this.elapsedNanos;
+    }
+
+    /**
+     * Returns the effective branching factor of the search, which is the
+     * branching factor of a uniform tree with the same depth and number of
+     * nodes. Lower values indicate better pruning.
+     *
+     * @return the effective branching factor
+     */
+    public double getEffectiveBranchingFactor()
+    {
+        if (this.depth == 0) {
+            return 0.0;
+        }
+        return Math.pow(this.nodeCount, 1.0 / this.depth);
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("depth: %d, nodes: %d, time: %.1f ms, nps: %.0f, ebf: %.2f",
+                this.depth, this.nodeCount, this.elapsedNanos / 1e6, getNodesPerSecond(),
+                getEffectiveBranchingFactor());
+    }
+}
@@ -0,0 +1,256 @@
+package ttaomae.connectn.player;
+
+import ttaomae.connectn.Board;
+import ttaomae.connectn.ImmutableBoard;
+import ttaomae.connectn.Piece;
+
+/**
+ * A bitboard which is kept in step with a search's board and finds the
+ * threats for each player: the empty spaces which would complete a line of
+ * their pieces. Threats which can be played immediately are wins for the
+ * player to move, or moves which must be blocked.
+ * <p>
+ * The bitboard uses the same column-major layout as
+ * {@link ttaomae.connectn.BitBoard}, with a sentinel row above each column.
+ * Only boards which fit in 64 bits, including the sentinel rows, can be
+ * tracked. A ThreatBoard is not thread-safe; each search thread should use its
+ * own.
+ *
+ * @author Todd Taomae
+ */
+final class ThreatBoard
+{
+    private final int reach;
+    private final int columnStride;
+    /** Bit shifts for each direction: vertical, horizontal, and both diagonals */
+    private final int[] directions;
+    private final long boardMask;
+    private final long bottomMask;
+
+    private long blackPieces;
+    private long redPieces;
+    private final int[] columnHeights;
+    /** Columns played since this board was created */
+    private final int[] playHistory;
+    private int playCount;
+    private Piece nextPiece;
+
+    /**
+     * Constructs a new ThreatBoard for the current position of the specified
+     * board.
+     *
+     * @param board the board being searched; must be
+     *          {@linkplain #canTrack(ImmutableBoard) small enough}
+     */
+    ThreatBoard(ImmutableBoard board)
+    {
+        assert canTrack(board) : "board does not fit in a long";
+
+        int height = board.getHeight();
+        int width = board.getWidth();
+        this.reach = board.getWinCondition() - 1;
+        this.columnStride = height + 1;
+        this.directions = new int[] {1, this.columnStride, this.columnStride - 1,
+                this.columnStride + 1};
+
+        long cells = 0L;
+        long bottom = 0L;
+        for (int col = 0; col < width; col++) {
+            for (int row = 0; row < height; row++) {
+                cells |= 1L << (col * this.columnStride + row);
+            }
+            bottom |= 1L << (col * this.columnStride);
+        }
+        this.boardMask = cells;
+        this.bottomMask = bottom;
+
+        this.columnHeights = new int[width];
+        this.playHistory = new int[height * width];
+        this.playCount = 0;
+        this.nextPiece = board.getNextPiece();
+        for (int col = 0; col < width; col++) {
+            for (int row = 0; row < height; row++) {
+                Piece piece = board.getPieceAt(col, row);
+                if (piece == Piece.NONE) {
+                    break;
+                }
+                long bit = 1L << (col * this.columnStride + row);
+                if (piece == Piece.BLACK) {
+                    this.blackPieces |= bit;
+                }
+                else {
+                    this.redPieces |= bit;
+                }
+                this.columnHeights[col]++;
+            }
+        }
+    }
+
+    /**
+     * Returns whether the specified board is small enough to be tracked.
+     *
+     * @param board the board
+     * @return true if the specified board fits in a long
+     */
+    static boolean canTrack(ImmutableBoard board)
+    {
+        return (board.getHeight() + 1) * board.getWidth() <= Long.SIZE;
+    }
+
+    /**
+     * Updates this board for a piece played in the specified column by the
+     * player to move.
+     *
+     * @param col the column
+     */
+    void play(int col)
+    {
+        long bit = 1L << (col * this.columnStride + this.columnHeights[col]);
+        if (this.nextPiece == Piece.BLACK) {
+            this.blackPieces |= bit;
+        }
+        else {
+            this.redPieces |= bit;
+        }
+        this.columnHeights[col]++;
+        this.playHistory[this.playCount++] = col;
+        this.nextPiece = this.nextPiece.opposite();
+    }
+
+    /**
+     * Updates this board for the last piece played being removed.
+     */
+    void undoPlay()
+    {
+        assert this.playCount > 0 : "no moves to undo";
+
+        int col = this.playHistory[--this.playCount];
+        this.nextPiece = this.nextPiece.opposite();
+        this.columnHeights[col]--;
+        long bit = 1L << (col * this.columnStride + this.columnHeights[col]);
+        if (this.nextPiece == Piece.BLACK) {
+            this.blackPieces &= ~bit;
+        }
+        else {
+            this.redPieces &= ~bit;
+        }
+    }
+
+    /**
+     * Returns the player to move.
+     *
+     * @return the player to move
+     */
+    Piece getNextPiece()
+    {
+        return this.nextPiece;
+    }
+
+    /**
+     * Returns the empty spaces which can be played immediately, which are
+     * the lowest empty space of each column.
+     *
+     * @return the playable spaces
+     */
+    long getPlayable()
+    {
+        // adding the bottom bit of each column carries up to its first empty space
+        return ((this.blackPieces | this.redPieces) + this.bottomMask) & this.boardMask;
+    }
+
+    /**
+     * Returns the empty spaces which would complete a line for the specified
+     * player.
+     *
+     * @param player the player
+     * @return the threats for the specified player
+     */
+    long getThreats(Piece player)
+    {
+        long empty = this.boardMask & ~(this.blackPieces | this.redPieces);
+        return threats(player == Piece.BLACK ? this.blackPieces : this.redPieces, empty);
+    }
+
+    /**
+     * Returns a column in which the player to move wins immediately.
+     *
+     * @return a winning column, or {@link Board#INVALID_MOVE} if there is none
+     */
+    int getWinningMove()
+    {
+        return getColumn(getThreats(this.nextPiece) & getPlayable());
+    }
+
+    /**
+     * Returns whether the player to move wins immediately by playing in the
+     * specified column.
+     *
+     * @param col the column
+     * @return true if playing in the specified column wins
+     */
+    boolean isWinningMove(int col)
+    {
+        // the space above a full column is a sentinel, which is never a threat
+        long cell = 1L << (col * this.columnStride + this.columnHeights[col]);
+        return (getThreats(this.nextPiece) & cell) != 0L;
+    }
+
+    /**
+     * Returns a column which the player to move must play to stop their
+     * opponent from winning immediately. If the opponent has more than one
+     * immediate win, only one of them is returned, since the game is lost
+     * either way.
+     *
+     * @return a column which must be blocked, or {@link Board#INVALID_MOVE}
+     *          if there is none
+     */
+    int getForcedMove()
+    {
+        return getColumn(getThreats(this.nextPiece.opposite()) & getPlayable());
+    }
+
+    /**
+     * Returns the column of the lowest of the specified spaces.
+     *
+     * @param cells the spaces
+     * @return the column of the lowest space, or {@link Board#INVALID_MOVE}
+     *          if there are none
+     */
+    int getColumn(long cells)
+    {
+        return cells == 0L
+                ? Board.INVALID_MOVE : Long.numberOfTrailingZeros(cells) / this.columnStride;
+    }
+
+    /**
+     * Returns the empty spaces which would complete a line for the specified
+     * pieces. For each direction and each position of the empty space within
+     * a line, the pieces are shifted so that every other space of the line
+     * lines up with the empty space, and ANDed together.
+     */
+    private long threats(long pieces, long empty)
+    {
+        long threats = 0L;
+        for (int direction : this.directions) {
+            for (int gap = 0; gap <= this.reach; gap++) {
+                long line = -1L;
+                for (int i = 0; i <= this.reach && line != 0L; i++) {
+                    if (i == gap) {
+                        continue;
+                    }
+                    int shift = (i - gap) * direction;
+                    // shifts are taken mod 64 so large shifts must be handled
+                    // explicitly; nothing can remain after shifting off the board
+                    if (Math.abs(shift) >= Long.SIZE) {
+                        line = 0L;
+                    }
+                    else {
+                        line &= shift > 0 ? pieces >>> shift : pieces << -shift;
+                    }
+                }
+                threats |= line;
+            }
+        }
+        return threats & empty;
+    }
+}
@@ -0,0 +1,129 @@
+package ttaomae.connectn.player;
+
+import ttaomae.connectn.ImmutableBoard;
+import ttaomae.connectn.Piece;
+
+/**
+ * An {@link Evaluator} based on Connect-4 threat analysis. A threat is an
+ * empty space which would complete a line for one of the players. Threats are
+ * found for all lines at once by a {@link ThreatBoard}.
+ * <p>
+ * Positions are scored as follows:
+ * <ul>
+ * <li>If the player to move has a threat which can be played immediately,
+ * they win on their next move.</li>
+ * <li>If the opponent has two immediately playable threats, or one with
+ * another of their threats directly above it, the player to move must block
+ * and then loses.</li>
+ * <li>Otherwise, each threat is worth one point, and threats on rows with
+ * the favorable parity for their owner are worth three. When the columns are
+ * filled in zugzwang, the first player can eventually claim threats on odd
+ * rows (counting from one at the bottom) and the second player can claim
+ * threats on even rows. Parity only applies to boards with an even height.</li>
+ * </ul>
+ * Only boards which fit in 64 bits, including the sentinel row above each
+ * column, can be evaluated.
+ *
+ * @author Todd Taomae
+ */
+final class ThreatEvaluator implements Evaluator
+{
+    /** Score of a position which will be won within the next two moves */
+    private static final int FORCED_WIN_SCORE = 50;
+    private static final int THREAT_SCORE = 1;
+    private static final int PARITY_THREAT_SCORE = 3;
+
+    private final ThreatBoard threatBoard;
+    /** Rows with favorable parity for the first player; 0 if parity is not used */
+    private final long oddRowMask;
+    /** Rows with favorable parity for the second player; 0 if parity is not used */
+    private final long evenRowMask;
+
+    /**
+     * Constructs a new ThreatEvaluator for the current position of the
+     * specified board.
+     *
+     * @param board the board being searched; must be
+     *          {@linkplain #canEvaluate(ImmutableBoard) small enough}
+     */
+    ThreatEvaluator(ImmutableBoard board)
+    {
+        assert canEvaluate(board) : "board does not fit in a long";
+
+        this.threatBoard = new ThreatBoard(board);
+
+        int height = board.getHeight();
+        int columnStride = height + 1;
+        long oddRows = 0L;
+        long evenRows = 0L;
+        for (int col = 0; col < board.getWidth(); col++) {
+            for (int row = 0; row < height; row++) {
+                long bit = 1L << (col * columnStride + row);
+                if (row % 2 == 0) {
+                    oddRows |= bit;
+                }
+                else {
+                    evenRows |= bit;
+                }
+            }
+        }
+        boolean useParity = height % 2 == 0;
+        this.oddRowMask = useParity ? oddRows : 0L;
+        this.evenRowMask = useParity ? evenRows : 0L;
+    }
+
+    /**
+     * Returns whether the specified board is small enough to be evaluated.
+     *
+     * @param board the board
+     * @return true if the specified board fits in a long
+     */
+    static boolean canEvaluate(ImmutableBoard board)
+    {
+        return ThreatBoard.canTrack(board);
+    }
+
+    @Override
+    public void play(int col)
+    {
+        this.threatBoard.play(col);
+    }
+
+    @Override
+    public void undoPlay()
+    {
+        this.threatBoard.undoPlay();
+    }
+
+    @Override
+    public int evaluate(Piece player)
+    {
+        Piece nextPiece = this.threatBoard.getNextPiece();
+        long playable = this.threatBoard.getPlayable();
+        long ownThreats = this.threatBoard.getThreats(nextPiece);
+        long opponentThreats = this.threatBoard.getThreats(nextPiece.opposite());
+
+        int score;
+        long forcedBlocks = opponentThreats & playable;
+        if ((ownThreats & playable) != 0L) {
+            score = FORCED_WIN_SCORE;
+        }
+        else if (Long.bitCount(forcedBlocks) > 1
+                || ((forcedBlocks << 1) & opponentThreats) != 0L) {
+            score = -FORCED_WIN_SCORE;
+        }
+        else {
+            boolean blackToMove = nextPiece == Piece.BLACK;
+            score = threatScore(ownThreats, blackToMove)
+                    - threatScore(opponentThreats, !blackToMove);
+        }
+        return player == nextPiece ? score : -score;
+    }
+
+    private int threatScore(long threats, boolean firstPlayer)
+    {
+        long favorableRows = firstPlayer ? this.oddRowMask : this.evenRowMask;
+        return Long.bitCount(threats) * THREAT_SCORE
+                + Long.bitCount(threats & favorableRows) * (PARITY_THREAT_SCORE - THREAT_SCORE);
+    }
+}
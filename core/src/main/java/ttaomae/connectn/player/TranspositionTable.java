@@ -0,0 +1,250 @@
+package ttaomae.connectn.player;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A fixed-size transposition table which stores the results of previous
+ * searches, keyed by the {@linkplain ttaomae.connectn.Board#getHash() hash} of
+ * a position.
+ * <p>
+ * Each entry is packed into a single {@code long} containing the score, search
+ * depth, bound type and best move. Entries are stored alongside their key XORed
+ * with the entry, which allows the table to be shared between threads without
+ * locking; an entry which was torn by a concurrent write will not match its key
+ * and is treated as a miss. When two positions map to the same slot, the entry
+ * from the deeper search is kept, unless the existing entry was stored during
+ * a previous search.
+ * <p>
+ * Use {@link #probe(long)} to look up an entry and the static accessors, such
+ * as {@link #getScore(long)}, to unpack it. A probe which misses returns
+ * {@link #NO_ENTRY}.
+ *
+ * @author Todd Taomae
+ */
+public final class TranspositionTable
+{
+    /** Returned by {@link #probe(long)} if there is no entry for a position. */
+    public static final long NO_ENTRY = 0L;
+
+    /** The stored score is the exact score of the position. */
+    public static final int EXACT = 1;
+    /** The stored score is a lower bound on the score of the position. */
+    public static final int LOWER_BOUND = 2;
+    /** The stored score is an upper bound on the score of the position. */
+    public static final int UPPER_BOUND = 3;
+
+    /** Size of a single entry, including its key */
+    private static final int ENTRY_BYTES = 2 * Long.BYTES;
+    private static final int BYTES_PER_MB = 1024 * 1024;
+
+    // entry layout, from the least significant bit:
+    // score (32) | depth (10) | bound (2) | move + 1 (14) | generation (6)
+    private static final int DEPTH_SHIFT = 32;
+    private static final int BOUND_SHIFT = 42;
+    private static final int MOVE_SHIFT = 44;
+    private static final int GENERATION_SHIFT = 58;
+    private static final long DEPTH_MASK = (1L << 10) - 1;
+    private static final long BOUND_MASK = (1L << 2) - 1;
+    private static final long MOVE_MASK = (1L << 14) - 1;
+    private static final long GENERATION_MASK = (1L << 6) - 1;
+
+    /** The maximum depth which can be stored in an entry */
+    public static final int MAX_DEPTH = (int) DEPTH_MASK;
+
+    private final long[] keys;
+    private final long[] entries;
+    private final int indexMask;
+
+    private volatile int generation;
+
+    /**
+     * Constructs a new TranspositionTable which uses at most the specified
+     * amount of memory. The number of entries is rounded down to a power of
+     * two.
+     *
+     * @param sizeMB the size of this table in megabytes
+     * @throws IllegalArgumentException if the size is not positive
+     */
+    public TranspositionTable(int sizeMB)
+    {
+        checkArgument(sizeMB > 0, "sizeMB must be positive");
+
+        long maxEntries = (long) sizeMB * BYTES_PER_MB / ENTRY_BYTES;
+        int size = Integer.highestOneBit((int) Math.min(maxEntries, 1 << 30));
+
+        this.keys = new long[size];
+        this.entries = new long[size];
+        this.indexMask = size - 1;
+        this.generation = 0;
+    }
+
+    /**
+     * Returns the number of entries which this table can hold.
+     *
+     * @return the number of entries which this table can hold
+     */
+    public int capacity()
+    {
+        return this.entries.length;
+    }
+
+    /**
+     * Marks the start of a new search. Entries stored during previous searches
+     * may be replaced by any new entry.
+     */
+    public void newSearch()
+    {
+        this.generation = (int) ((this.generation + 1) & GENERATION_MASK);
+    }
+
+    /**
+     * Removes all entries from this table. This should not be called while
+     * the table is being used by a search.
+     */
+    public void clear()
+    {
+        for (int i = 0; i < this.entries.length; i++) {
+            this.keys[i] = 0L;
+            this.entries[i] = 0L;
+        }
+    }
+
+    /**
+     * Returns the slot in which the entry for the specified hash is stored.
+     * Slots are chosen by the low bits of the hash, so hashes must be well
+     * mixed; see {@link #mix(long)}.
+     *
+     * @param hash the hash of a position
+     * @return the index of the slot for the hash
+     */
+    public int getIndex(long hash)
+    {
+        return (int) hash & this.indexMask;
+    }
+
+    /**
+     * Mixes the bits of the specified key, so that every bit of the key
+     * affects the low bits of the result. This should be used to turn a
+     * structured key, such as a bitboard, into a hash; Zobrist hashes are
+     * already well mixed.
+     * <p>
+     * This is the finalizer of the SplitMix64 generator.
+     *
+     * @param key the key to mix
+     * @return the mixed key
+     */
+    public static long mix(long key)
+    {
+        long z = key;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Returns the entry for the position with the specified hash, or
+     * {@link #NO_ENTRY} if there is none.
+     *
+     * @param hash the hash of the position
+     * @return the packed entry for the position
+     */
+    public long probe(long hash)
+    {
+        int index = getIndex(hash);
+        long entry = this.entries[index];
+        long key = this.keys[index];
+
+        if ((key ^ entry) != hash || getBound(entry) == 0) {
+            return NO_ENTRY;
+        }
+        return entry;
+    }
+
+    /**
+     * Stores the result of a search of the position with the specified hash.
+     *
+     * @param hash the hash of the position
+     * @param depth the remaining search depth
+     * @param bound the bound type of the score; one of {@link #EXACT},
+     *          {@link #LOWER_BOUND} or {@link #UPPER_BOUND}
+     * @param score the score of the position
+     * @param move the best move found, or {@link ttaomae.connectn.Board#INVALID_MOVE}
+     */
+    public void store(long hash, int depth, int bound, int score, int move)
+    {
+        assert depth >= 0 && depth <= MAX_DEPTH : "depth out of range: " + depth;
+        assert bound >= EXACT && bound <= UPPER_BOUND : "invalid bound: " + bound;
+
+        int index = getIndex(hash);
+        long existing = this.entries[index];
+        int currentGeneration = this.generation;
+
+        // replace by depth, but always replace entries for the same position
+        // and entries left over from previous searches
+        boolean replace = getBound(existing) == 0
+                || (this.keys[index] ^ existing) == hash
+                || getGeneration(existing) != currentGeneration
+                || depth >= getDepth(existing);
+        if (!replace) {
+            return;
+        }
+
+        long entry = (score & 0xFFFFFFFFL)
+                | (depth & DEPTH_MASK) << DEPTH_SHIFT
+                | (bound & BOUND_MASK) << BOUND_SHIFT
+                | ((move + 1) & MOVE_MASK) << MOVE_SHIFT
+                | (currentGeneration & GENERATION_MASK) << GENERATION_SHIFT;
+        this.entries[index] = entry;
+        this.keys[index] = hash ^ entry;
+    }
+
+    /**
+     * Returns the score stored in the specified entry.
+     *
+     * @param entry a packed entry
+     * @return the score stored in the specified entry
+     */
+    public static int getScore(long entry)
+    {
+        return (int) entry;
+    }
+
+    /**
+     * Returns the search depth stored in the specified entry.
+     *
+     * @param entry a packed entry
+     * @return the search depth stored in the specified entry
+     */
+    public static int getDepth(long entry)
+    {
+        return (int) ((entry >>> DEPTH_SHIFT) & DEPTH_MASK);
+    }
+
+    /**
+     * Returns the bound type stored in the specified entry.
+     *
+     * @param entry a packed entry
+     * @return the bound type stored in the specified entry
+     */
+    public static int getBound(long entry)
+    {
+        return (int) ((entry >>> BOUND_SHIFT) & BOUND_MASK);
+    }
+
+    /**
+     * Returns the best move stored in the specified entry, or
+     * {@link ttaomae.connectn.Board#INVALID_MOVE} if there is none.
+     *
+     * @param entry a packed entry
+     * @return the best move stored in the specified entry
+     */
+    public static int getMove(long entry)
+    {
+        return (int) ((entry >>> MOVE_SHIFT) & MOVE_MASK) - 1;
+    }
+
+    private static int getGeneration(long entry)
+    {
+        return (int) ((entry >>> GENERATION_SHIFT) & GENERATION_MASK);
+    }
+}
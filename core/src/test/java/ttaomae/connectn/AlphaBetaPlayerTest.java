@@ -1,7 +1,11 @@
 package ttaomae.connectn;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 import org.junit.Before;
@@ -9,6 +13,7 @@ import org.junit.Test;
 
 import ttaomae.connectn.player.AlphaBetaPlayer;
 import ttaomae.connectn.player.Player;
+import ttaomae.connectn.player.TranspositionTable;
 
 public class AlphaBetaPlayerTest
 {
@@ -22,6 +27,20 @@ public class AlphaBetaPlayerTest
         this.player = new AlphaBetaPlayer(Executors.newSingleThreadExecutor());
     }
 
+    @Test
+    public void testConstructor_illegalDepth()
+    {
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            new AlphaBetaPlayer(TranspositionTable.MAX_DEPTH + 1, executorService);
+            fail("constructor with depth beyond transposition table limit");
+        } catch (IllegalArgumentException e) {
+            assertEquals("failure - depth beyond transposition table limit",
+                    "maxDepth must be at most " + TranspositionTable.MAX_DEPTH, e.getMessage());
+        }
+        executorService.shutdownNow();
+    }
+
     @Test
     public void testBlackDepthOne()
     {
@@ -147,4 +166,149 @@ public class AlphaBetaPlayerTest
 
 
     }
+
+    @Test
+    public void testTimeBudget()
+    {
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        player = AlphaBetaPlayer.withTimeBudget(Duration.ofMillis(200), executorService);
+
+        board.play(0); // black
+        board.play(1);
+        board.play(0); // black
+        board.play(1);
+        board.play(0); // black
+        board.play(6);
+        board.play(6); // black
+        assertEquals("failure - red blocks black with time budget",
+                Integer.valueOf(0), player.getMove(board.getImmutableView()).get());
+
+        // an empty board would take far longer than the budget to search fully
+        board = new ArrayBoard();
+        long start = System.nanoTime();
+        assertTrue("failure - move selected on empty board",
+                board.isValidMove(player.getMove(board.getImmutableView()).get()));
+        long elapsedMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+        assertTrue("failure - search exceeded time budget: " + elapsedMillis + "ms",
+                elapsedMillis < 1000);
+
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void testLazySmp()
+    {
+        // more search threads than columns
+        ExecutorService executorService = Executors.newFixedThreadPool(9);
+        player = AlphaBetaPlayer.withLazySmp(6, 9, executorService);
+
+        board.play(0); // black
+        board.play(1);
+        board.play(0); // black
+        board.play(1);
+        board.play(0); // black
+        board.play(6);
+        board.play(6); // black
+        assertEquals("failure - red blocks black with lazy SMP",
+                Integer.valueOf(0), player.getMove(board.getImmutableView()).get());
+
+        board = new ArrayBoard();
+        board.play(0);
+        board.play(1); // red
+        board.play(0);
+        board.play(1); // red
+        board.play(0);
+        board.play(1); // red
+        board.play(6);
+        assertEquals("failure - red wins instead of blocking with lazy SMP",
+                Integer.valueOf(1), player.getMove(board.getImmutableView()).get());
+
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void testConcurrentSearch()
+    {
+        // one thread per column, so every root move is searched concurrently
+        ExecutorService executorService = Executors.newFixedThreadPool(7);
+        player = new AlphaBetaPlayer(4, executorService);
+
+        board.play(0); // black
+        board.play(1);
+        board.play(0); // black
+        board.play(1);
+        board.play(0); // black
+        board.play(6);
+        board.play(6); // black
+        for (int i = 0; i < 20; i++) {
+            assertEquals("failure - red blocks black when searching concurrently",
+                    Integer.valueOf(0), player.getMove(board.getImmutableView()).get());
+        }
+
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void testThreatEvaluation()
+    {
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        player = AlphaBetaPlayer.withThreatEvaluation(1, executorService);
+
+        board.play(0); // black
+        board.play(1);
+        board.play(2); // black
+        board.play(0);
+        board.play(6); // black
+        board.play(1);
+        board.play(6); // black
+        board.play(2);
+        // red wins at (3, 1) if black plays in column 3
+        for (int i = 0; i < 20; i++) {
+            assertTrue("failure - black does not play below red's threat",
+                    player.getMove(board.getImmutableView()).get() != 3);
+        }
+
+        player = AlphaBetaPlayer.withThreatEvaluation(3, executorService);
+        board = new ArrayBoard();
+        board.play(0); // black
+        board.play(1);
+        board.play(0); // black
+        board.play(1);
+        board.play(0); // black
+        board.play(6);
+        board.play(6); // black
+        assertEquals("failure - red blocks black with threat evaluation",
+                Integer.valueOf(0), player.getMove(board.getImmutableView()).get());
+
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void testImmediateWinShortcut()
+    {
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        AlphaBetaPlayer deepPlayer = new AlphaBetaPlayer(8, executorService);
+
+        board.play(3); // black
+        board.play(3);
+        board.play(4); // black
+        board.play(4);
+        board.play(5); // black
+        board.play(5);
+        int move = deepPlayer.getMove(board.getImmutableView()).get();
+        assertTrue("failure - black takes an immediate win", move == 2 || move == 6);
+        assertEquals("failure - immediate win is found without searching",
+                1, deepPlayer.getLastSearchStatistics().getNodeCount());
+
+        board = new ArrayBoard();
+        board.play(0); // black
+        board.play(0);
+        board.play(1); // black
+        board.play(1);
+        board.play(2); // black
+        assertEquals("failure - red blocks the only immediate threat",
+                Integer.valueOf(3), deepPlayer.getMove(board.getImmutableView()).get());
+
+        executorService.shutdownNow();
+    }
 }
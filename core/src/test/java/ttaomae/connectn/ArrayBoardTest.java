@@ -10,6 +10,7 @@ import static org.hamcrest.core.StringContains.containsString;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 public class ArrayBoardTest
@@ -604,6 +605,33 @@ public class ArrayBoardTest
         assertEquals("failure - board full draw", Piece.DRAW, board.getWinner());
     }
 
+    @Test
+    public void testUndoWinningPlay()
+    {
+        board.play(0); // black
+        board.play(1);
+        board.play(0); // black
+        board.play(1);
+        board.play(0); // black
+        board.play(1);
+        board.play(0); // black
+        assertEquals("failure - black vertical winner", Piece.BLACK, board.getWinner());
+
+        // plays after the winning play do not change the winner
+        board.play(1);
+        assertEquals("failure - winner after extra play", Piece.BLACK, board.getWinner());
+        board.undoPlay();
+        assertEquals("failure - winner after undoing extra play", Piece.BLACK, board.getWinner());
+
+        board.undoPlay();
+        assertEquals("failure - no winner after undoing winning play", Piece.NONE,
+                board.getWinner());
+
+        board.play(2); // black
+        board.play(1);
+        assertEquals("failure - red vertical winner", Piece.RED, board.getWinner());
+    }
+
     @Test
     public void testUndoSinglePlay() {
         for (int col = 0; col < board.getWidth(); col++) {
@@ -692,6 +720,71 @@ public class ArrayBoardTest
         }
     }
 
+    @Test
+    public void testHash()
+    {
+        assertEquals("failure - empty board hash", 0L, board.getHash());
+
+        board.play(0);
+        board.play(1);
+        board.play(2);
+        long hash = board.getHash();
+
+        // the same position reached by a different order has the same hash
+        Board other = new ArrayBoard();
+        other.play(2);
+        other.play(1);
+        other.play(0);
+        assertEquals("failure - transposition has the same hash", hash, other.getHash());
+
+        // the same columns played by different players is a different position
+        other = new ArrayBoard();
+        other.play(1);
+        other.play(0);
+        other.play(2);
+        assertNotEquals("failure - different position has a different hash", hash,
+                other.getHash());
+
+        board.play(3);
+        board.undoPlay();
+        assertEquals("failure - hash after undo", hash, board.getHash());
+        assertEquals("failure - hash of copy", hash,
+                board.getImmutableView().getMutableCopy().getHash());
+    }
+
+    @Test
+    public void testMirrorHash()
+    {
+        assertEquals("failure - empty board mirror hash", 0L, board.getMirrorHash());
+
+        board.play(0);
+        board.play(1);
+        board.play(3);
+        Board mirror = new ArrayBoard();
+        mirror.play(6);
+        mirror.play(5);
+        mirror.play(3);
+        assertEquals("failure - mirror hash is the hash of the mirror image",
+                mirror.getHash(), board.getMirrorHash());
+        assertEquals("failure - hash is the mirror hash of the mirror image",
+                board.getHash(), mirror.getMirrorHash());
+
+        board.play(6);
+        board.undoPlay();
+        assertEquals("failure - mirror hash after undo", mirror.getHash(),
+                board.getMirrorHash());
+        assertEquals("failure - mirror hash of copy", mirror.getHash(),
+                board.getImmutableView().getMutableCopy().getMirrorHash());
+
+        board = new ArrayBoard();
+        board.play(2);
+        board.play(2);
+        board.play(4);
+        board.play(4);
+        assertEquals("failure - symmetric position has the same hash and mirror hash",
+                board.getHash(), board.getMirrorHash());
+    }
+
     @Test
     public void testListener()
     {
@@ -715,6 +808,56 @@ public class ArrayBoardTest
         assertEquals(10, eventCount[0]);
     }
 
+    @Test
+    public void testCopyHistory()
+    {
+        board.play(0);
+        board.play(1);
+        board.play(1);
+        long hash = board.getHash();
+
+        Board copy = board.getImmutableView().getMutableCopy();
+        copy.play(3);
+        assertEquals("failure - original is not changed by its copy", Piece.NONE,
+                board.getPieceAt(3, 0));
+        board.play(4);
+        assertEquals("failure - copy is not changed by its original", Piece.NONE,
+                copy.getPieceAt(4, 0));
+        board.undoPlay();
+
+        // undo moves played before the copy was made
+        copy.undoPlay();
+        assertEquals("failure - copy has the same hash after undo", hash, copy.getHash());
+        copy.undoPlay();
+        copy.undoPlay();
+        copy.undoPlay();
+        assertEquals("failure - copy can undo moves played before it was made",
+                Piece.NONE, copy.getPieceAt(0, 0));
+        assertEquals("failure - copy has an empty hash after undoing every move",
+                0L, copy.getHash());
+        assertEquals("failure - original is not changed by undoing its copy",
+                Piece.BLACK, board.getPieceAt(0, 0));
+        assertEquals("failure - original keeps its history", 3, board.getCurrentTurn());
+    }
+
+    @Test
+    public void testCopyListeners()
+    {
+        final int[] eventCount = {0};
+        board.addBoardListener(() -> eventCount[0]++);
+        board.play(0);
+
+        Board copy = board.getImmutableView().getMutableCopy();
+        copy.play(1);
+        copy.undoPlay();
+        assertEquals("failure - copy does not notify the original's listeners",
+                1, eventCount[0]);
+
+        copy.addBoardListener(() -> eventCount[0]++);
+        copy.play(1);
+        assertEquals("failure - copy notifies its own listeners", 2, eventCount[0]);
+    }
+
     @Test
     public void testAddNullListener()
     {
@@ -0,0 +1,945 @@
+package ttaomae.connectn;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.allOf;
+
+import static org.hamcrest.core.StringContains.containsString;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Random;
+
+public class BitBoardTest
+{
+    private Board board;
+
+    @Before
+    public void init()
+    {
+        this.board = new BitBoard();
+    }
+
+    @Test
+    public void testNewBoard()
+    {
+        assertEquals("failure - new board height", 6, board.getHeight());
+        assertEquals("failure - new board width", 7, board.getWidth());
+        assertEquals("failure - new board win condition", 4, board.getWinCondition());
+
+        assertEquals("failure - first piece is black", Piece.BLACK, board.getNextPiece());
+
+        for (int row = 0; row < board.getHeight(); row++) {
+            for (int col = 0; col < board.getWidth(); col++) {
+                assertEquals("failure - new board is empty", Piece.NONE, board.getPieceAt(col, row));
+            }
+        }
+
+        assertEquals("failure - no winner for new board", Piece.NONE, board.getWinner());
+    }
+
+    @Test
+    public void testBoardConstructor()
+    {
+        board = new BitBoard(5, 5, 5);
+        assertEquals("failure - new Board(5, 5, 5) height", 5, board.getHeight());
+        assertEquals("failure - new Board(5, 5, 5) width", 5, board.getWidth());
+        assertEquals("failure - new Board(5, 5, 5) win condition", 5, board.getWinCondition());
+
+        try {
+            new BitBoard(1, 5, 5);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            assertEquals("failure - illegal height", "height must be at least 2", expected.getMessage());
+        }
+        try {
+            new BitBoard(5, 1, 5);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            assertEquals("failure - illegal width", "width must be at least 2", expected.getMessage());
+        }
+        try {
+            new BitBoard(5, 5, 6);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            assertEquals("failure - illegal win condition",
+                    "winCondition must be between 2 and max(height, width)", expected.getMessage());
+        }
+        try {
+            new BitBoard(5, 5, 1);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            assertEquals("failure - illegal win condition",
+                    "winCondition must be between 2 and max(height, width)", expected.getMessage());
+        }
+        try {
+            new BitBoard(5, 5, -1);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            assertEquals("failure - illegal win condition",
+                    "winCondition must be between 2 and max(height, width)", expected.getMessage());
+        }
+    }
+
+    @Test
+    public void testOnePlay()
+    {
+        for (int col = 0; col < board.getWidth(); col++) {
+            board = new BitBoard();
+            board.play(col);
+            assertEquals("failure - first play is black", Piece.BLACK, board.getPieceAt(col, 0));
+            assertEquals("failure - second piece is red", Piece.RED, board.getNextPiece());
+        }
+    }
+
+    @Test(expected = IllegalMoveException.class)
+    public void testPlaySingleColumn()
+    {
+        for (int row = 0; row < this.board.getHeight(); row++) {
+            Piece lastPiece = this.board.getNextPiece();
+            board.play(0);
+            assertEquals("failure - last piece is opposite of next piece", lastPiece, board
+                    .getNextPiece().opposite());
+            assertEquals("failure - play on a single column", lastPiece, board.getPieceAt(0, row));
+        }
+
+        // illegal move
+        board.play(0);
+    }
+
+    @Test
+    public void testIllegalPlay()
+    {
+        try {
+            board.play(-1);
+            fail();
+        } catch (IllegalMoveException expected) {
+            assertEquals("failure - illegal move: -1", "Illegal column: -1", expected.getMessage());
+        }
+
+        try {
+            board.play(board.getWidth());
+            fail();
+        } catch (IllegalMoveException expected) {
+            assertEquals("failure - illegal move: 7", "Illegal column: 7", expected.getMessage());
+        }
+    }
+
+    @Test
+    public void testIllegalPieceAt()
+    {
+        try {
+            board.getPieceAt(-1, 0);
+            fail();
+        } catch (IndexOutOfBoundsException expected) {
+            Assert.assertThat("failure - get piece at (-1, 0)", expected.getMessage(),
+                    allOf(containsString("-1"), containsString("must not be negative")));
+        }
+
+        try {
+            board.getPieceAt(board.getWidth(), 0);
+            fail();
+        } catch (IndexOutOfBoundsException expected) {
+            Assert.assertThat("failure - get piece at (7, 0)", expected.getMessage(),
+                    allOf(containsString("7"), containsString("must be less than")));
+        }
+
+        try {
+            board.getPieceAt(0, -1);
+            fail();
+        } catch (IndexOutOfBoundsException expected) {
+            Assert.assertThat("failure - get piece at (0, -1)", expected.getMessage(),
+                    allOf(containsString("-1"), containsString("must not be negative")));
+        }
+
+        try {
+            board.getPieceAt(0, board.getHeight());
+            fail();
+        } catch (IndexOutOfBoundsException expected) {
+            Assert.assertThat("failure - get piece at (0, 6)", expected.getMessage(),
+                    allOf(containsString("6"), containsString("must be less than")));
+        }
+    }
+
+    @Test
+    public void testIsValidMove()
+    {
+        assertFalse("failure - isValidMove: -1", board.isValidMove(-1));
+        assertFalse("failure - isValidMove: 7", board.isValidMove(7));
+        for (int i = 0; i < board.getWidth(); i++) {
+            assertTrue("failure - isValidMove for empty board", board.isValidMove(i));
+        }
+
+        for (int i = 0; i < board.getWidth(); i++) {
+            board = new BitBoard();
+            // fill a single column
+            for (int j = 0; j < board.getHeight(); j++) {
+                board.play(i);
+            }
+            assertFalse("failure - isValidMove for full column", board.isValidMove(i));
+        }
+    }
+
+    @Test
+    public void testBlackHorizontalWin()
+    {
+        board.play(0); // black
+        board.play(0);
+        board.play(1); // black
+        board.play(1);
+        board.play(2); // black
+        board.play(2);
+        board.play(3); // black
+        assertEquals("failure - black horizontal winner, bottom left", Piece.BLACK,
+                board.getWinner());
+
+        board = new BitBoard();
+        board.play(3); // black
+        board.play(3);
+        board.play(4); // black
+        board.play(4);
+        board.play(5); // black
+        board.play(5);
+        board.play(6); // black
+        assertEquals("failure - black horizontal winner, bottom right", Piece.BLACK,
+                board.getWinner());
+
+        board = new BitBoard();
+        // fill left side of board without a winner
+        for (int i = 0; i < 3; i++) {
+            board.play(0);
+            board.play(1);
+            board.play(2);
+            board.play(3);
+        }
+        for (int i = 0; i < 2; i++) {
+            board.play(1);
+            board.play(0);
+            board.play(3);
+            board.play(2);
+        }
+        // black plays 0, 1, 2, 3
+        board.play(0); // black
+        board.play(6);
+        board.play(1); // black
+        board.play(6);
+        board.play(2); // black
+        board.play(5);
+        board.play(3); // black
+        assertEquals("failure - black horizontal winner, top left", Piece.BLACK, board.getWinner());
+
+
+        board = new BitBoard();
+        // fill right side of board without a winner
+        for (int i = 0; i < 3; i++) {
+            board.play(3);
+            board.play(4);
+            board.play(5);
+            board.play(6);
+        }
+        for (int i = 0; i < 2; i++) {
+            board.play(4);
+            board.play(3);
+            board.play(6);
+            board.play(5);
+        }
+        // black plays 3, 4, 5, 6
+        board.play(3); // black
+        board.play(0);
+        board.play(4); // black
+        board.play(0);
+        board.play(5); // black
+        board.play(1);
+        board.play(6); // black
+        assertEquals("failure - black horizontal winner, top right", Piece.BLACK, board.getWinner());
+    }
+
+    @Test
+    public void testBlackVerticalWin()
+    {
+        board.play(0); // black
+        board.play(1);
+        board.play(0); // black
+        board.play(1);
+        board.play(0); // black
+        board.play(1);
+        board.play(0); // black
+        assertEquals("failure - black vertical winner, bottom left", Piece.BLACK, board.getWinner());
+
+        board = new BitBoard();
+        board.play(6); // black
+        board.play(0);
+        board.play(6); // black
+        board.play(0);
+        board.play(6); // black
+        board.play(0);
+        board.play(6); // black
+        assertEquals("failure - black vertical winner, bottom right", Piece.BLACK,
+                board.getWinner());
+
+        board = new BitBoard();
+        // fill left side of board without a winner
+        for (int i = 0; i < 2; i++) {
+            board.play(1);
+            board.play(0);
+        }
+        board.play(0); // black
+        board.play(1);
+        board.play(0); // black
+        board.play(1);
+        board.play(0); // black
+        board.play(1);
+        board.play(0); // black
+        assertEquals("failure - black vertical winner, top left", Piece.BLACK, board.getWinner());
+
+        board = new BitBoard();
+        // fill right side of board without a winner
+        for (int i = 0; i < 2; i++) {
+            board.play(5);
+            board.play(6);
+        }
+        board.play(6); // black
+        board.play(0);
+        board.play(6); // black
+        board.play(0);
+        board.play(6); // black
+        board.play(0);
+        board.play(6); // black
+        assertEquals("failure - black vertical winner, top left", Piece.BLACK,
+                board.getWinner());
+    }
+
+    @Test
+    public void testBlackDiagonalWin()
+    {
+        board.play(0); // black
+        board.play(1);
+        board.play(1); // black
+        board.play(2);
+        board.play(2);
+        board.play(3);
+        board.play(2); // black
+        board.play(3);
+        board.play(4);
+        board.play(3);
+        board.play(3); // black
+        assertEquals("failure - black diagonal winner, bottom left", Piece.BLACK, board.getWinner());
+
+        board = new BitBoard();
+        board.play(6); // black
+        board.play(5);
+        board.play(5); // black
+        board.play(4);
+        board.play(4);
+        board.play(3);
+        board.play(4); // black
+        board.play(3);
+        board.play(2);
+        board.play(3);
+        board.play(3); // black
+        assertEquals("failure - black diagonal winner, bottom right", Piece.BLACK,
+                board.getWinner());
+
+        board = new BitBoard();
+        for (int i = 0; i < 5; i++) {
+            board.play(0);
+        }
+        board.play(1);
+        board.play(0); // black
+        for (int i = 0; i < 3; i++) {
+            board.play(1);
+        }
+        board.play(1); // black
+        for (int i = 0; i < 3; i++) {
+            board.play(2);
+        }
+        board.play(2); // black
+        board.play(3);
+        board.play(4);
+        board.play(3);
+        board.play(3); // black
+        assertEquals("failure - black diagonal winner, top left", Piece.BLACK, board.getWinner());
+
+
+        board = new BitBoard();
+        for (int i = 0; i < 5; i++) {
+            board.play(6);
+        }
+        board.play(5);
+        board.play(6); // black
+        for (int i = 0; i < 3; i++) {
+            board.play(5);
+        }
+        board.play(5); // black
+        for (int i = 0; i < 3; i++) {
+            board.play(4);
+        }
+        board.play(4); // black
+        board.play(3);
+        board.play(2);
+        board.play(3);
+        board.play(3); // black
+        assertEquals("failure - black diagonal winner, top right", Piece.BLACK, board.getWinner());
+    }
+
+    @Test
+    public void testRedHorizontalWin()
+    {
+        board.play(6);
+        board.play(0); // red
+        board.play(5);
+        board.play(1); // red
+        board.play(6);
+        board.play(2); // red
+        board.play(5);
+        board.play(3); // red
+        assertEquals("failure - red horizontal winner, bottom left", Piece.RED, board.getWinner());
+
+        board = new BitBoard();
+        board.play(0);
+        board.play(3); // red
+        board.play(1);
+        board.play(4); // red
+        board.play(0);
+        board.play(5); // red
+        board.play(1);
+        board.play(6); // red
+
+        assertEquals("failure - red horizontal winner, bottom right", Piece.RED,
+                board.getWinner());
+
+        board = new BitBoard();
+        // fill left side of board without a winner
+        for (int i = 0; i < 3; i++) {
+            board.play(0);
+            board.play(1);
+            board.play(2);
+            board.play(3);
+        }
+        for (int i = 0; i < 2; i++) {
+            board.play(1);
+            board.play(0);
+            board.play(3);
+            board.play(2);
+        }
+        // red plays 0, 1, 2, 3
+        board.play(6);
+        board.play(0); // red
+        board.play(6);
+        board.play(1); // red
+        board.play(5);
+        board.play(2); // red
+        board.play(5);
+        board.play(3); // red
+        assertEquals("failure - red horizontal winner, top left", Piece.RED, board.getWinner());
+
+        board = new BitBoard();
+        // fill right side of board without a winner
+        for (int i = 0; i < 3; i++) {
+            board.play(3);
+            board.play(4);
+            board.play(5);
+            board.play(6);
+        }
+        for (int i = 0; i < 2; i++) {
+            board.play(4);
+            board.play(3);
+            board.play(6);
+            board.play(5);
+        }
+        // red plays 3, 4, 5, 6
+        board.play(0);
+        board.play(3); // red
+        board.play(0);
+        board.play(4); // red
+        board.play(1);
+        board.play(5); // red
+        board.play(1);
+        board.play(6); // red
+        assertEquals("failure - red horizontal winner, top right", Piece.RED, board.getWinner());
+    }
+
+    @Test
+    public void testRedVerticalWin()
+    {
+        board.play(1);
+        board.play(0); // red
+        board.play(1);
+        board.play(0); // red
+        board.play(1);
+        board.play(0); // red
+        board.play(2);
+        board.play(0); // red
+        assertEquals("failure - red vertical winner, bottom left", Piece.RED, board.getWinner());
+
+        board = new BitBoard();
+        board.play(0);
+        board.play(6); // red
+        board.play(0);
+        board.play(6); // red
+        board.play(0);
+        board.play(6); // red
+        board.play(1);
+        board.play(6); // red
+        assertEquals("failure - red vertical winner, bottom right", Piece.RED, board.getWinner());
+
+        board = new BitBoard();
+        // fill left side of board without a winner
+        for (int i = 0; i < 2; i++) {
+            board.play(0);
+            board.play(1);
+        }
+        board.play(1);
+        board.play(0); // red
+        board.play(1);
+        board.play(0); // red
+        board.play(1);
+        board.play(0); // red
+        board.play(2);
+        board.play(0); // red
+        assertEquals("failure - red vertical winner, top left", Piece.RED, board.getWinner());
+
+        board = new BitBoard();
+        // fill right side of board without a winner
+        for (int i = 0; i < 2; i++) {
+            board.play(6);
+            board.play(5);
+        }
+        board.play(0);
+        board.play(6); // red
+        board.play(0);
+        board.play(6); // red
+        board.play(0);
+        board.play(6); // red
+        board.play(1);
+        board.play(6); // red
+        assertEquals("failure - red vertical winner, top left", Piece.RED, board.getWinner());
+    }
+
+    @Test
+    public void testRedDiagonalWin()
+    {
+        board.play(1);
+        board.play(0); // red
+        board.play(2);
+        board.play(1); // red
+        board.play(2);
+        board.play(2); // red
+        board.play(3);
+        board.play(3);
+        board.play(3);
+        board.play(3); // red
+        assertEquals("failure - red diagonal winner, bottom left", Piece.RED, board.getWinner());
+
+        board = new BitBoard();
+        board.play(5);
+        board.play(6); // red
+        board.play(4);
+        board.play(5); // red
+        board.play(4);
+        board.play(4); // red
+        board.play(3);
+        board.play(3);
+        board.play(3);
+        board.play(3); // red
+        assertEquals("failure - red diagonal winner, bottom right", Piece.RED, board.getWinner());
+
+        board = new BitBoard();
+        for (int i = 0; i < 5; i++) {
+            board.play(0);
+        }
+        board.play(0); // red
+        for (int i = 0; i < 4; i++) {
+            board.play(1);
+        }
+        board.play(2);
+        board.play(1); // red
+        board.play(2);
+        board.play(3);
+        board.play(2);
+        board.play(2); // red
+        board.play(3);
+        board.play(3); // red
+        assertEquals("failure - red diagonal winner, top left", Piece.RED, board.getWinner());
+
+        board = new BitBoard();
+        for (int i = 0; i < 5; i++) {
+            board.play(6);
+        }
+        board.play(6); // red
+        for (int i = 0; i < 4; i++) {
+            board.play(5);
+        }
+        board.play(4);
+        board.play(5); // red
+        board.play(4);
+        board.play(3);
+        board.play(4);
+        board.play(4); // red
+        board.play(3);
+        board.play(3); // red
+        assertEquals("failure - red diagonal winner, top right", Piece.RED, board.getWinner());
+    }
+
+    @Test
+    public void testDraw()
+    {
+        // play pattern twice
+        for (int i = 0; i < 2; i++) {
+            // play three rows
+            for (int j = 0; j < 3; j++) {
+                // play first six columns
+                for (int k = 0; k < 6; k++) {
+                    board.play(k);
+                }
+            }
+            // play last column
+            board.play(6);
+            board.play(6);
+            board.play(6);
+        }
+
+        assertEquals("failure - board full draw", Piece.DRAW, board.getWinner());
+    }
+
+    @Test
+    public void testUndoWinningPlay()
+    {
+        board.play(0); // black
+        board.play(1);
+        board.play(0); // black
+        board.play(1);
+        board.play(0); // black
+        board.play(1);
+        board.play(0); // black
+        assertEquals("failure - black vertical winner", Piece.BLACK, board.getWinner());
+
+        // plays after the winning play do not change the winner
+        board.play(1);
+        assertEquals("failure - winner after extra play", Piece.BLACK, board.getWinner());
+        board.undoPlay();
+        assertEquals("failure - winner after undoing extra play", Piece.BLACK, board.getWinner());
+
+        board.undoPlay();
+        assertEquals("failure - no winner after undoing winning play", Piece.NONE,
+                board.getWinner());
+
+        board.play(2); // black
+        board.play(1);
+        assertEquals("failure - red vertical winner", Piece.RED, board.getWinner());
+    }
+
+    @Test
+    public void testUndoSinglePlay() {
+        for (int col = 0; col < board.getWidth(); col++) {
+            board.play(col);
+            board.undoPlay();
+
+            assertEquals("failure - undo single play " + col, Piece.NONE, board.getPieceAt(col, 0));
+            // should be first player's turn now
+            assertEquals("failure - next piece after undo single play",
+                    Piece.BLACK, board.getNextPiece());
+        }
+    }
+
+    @Test
+    public void testUndoTwoPlaysSameColumn() {
+        for(int col = 0; col < board.getWidth(); col++) {
+            board.play(col);
+            board.play(col);
+
+            board.undoPlay();
+            // should be second player's turn now
+            assertEquals("failure - undo second play " + col, Piece.NONE, board.getPieceAt(col, 1));
+            assertEquals("failure - next piece after undo single play",
+                    Piece.RED, board.getNextPiece());
+
+            board.undoPlay();
+            // should be first player's turn now
+
+            assertEquals("failure - undo first play " + col, Piece.NONE, board.getPieceAt(col, 0));
+            assertEquals("failure - next piece after undo single play",
+                    Piece.BLACK, board.getNextPiece());
+        }
+    }
+
+    @Test
+    public void testUndoFullColumn() {
+        for (int col = 0; col < board.getWidth(); col++) {
+            // fill a single column
+            for (int row = 0; row < board.getHeight(); row++) {
+                board.play(col);
+            }
+
+            for (int row = board.getHeight() - 1; row >= 0; row--) {
+                board.undoPlay();
+                assertEquals(String.format("failure - undo col: %d, row: %d%n", col, row),
+                        Piece.NONE, board.getPieceAt(col, row));
+            }
+        }
+    }
+
+    @Test
+    public void testUndoWithNoPlays() {
+        try {
+            board.undoPlay();
+            fail();
+        } catch (IllegalStateException expected) {
+            assertEquals("No moves to undo.", expected.getMessage());
+        }
+    }
+
+    @Test
+    public void testUndoExtraPlays() {
+        board.play(0);
+        board.play(1);
+        board.play(2);
+        board.play(3);
+        board.play(4);
+        board.play(5);
+        board.play(6);
+
+        // undo all plays
+        board.undoPlay();
+        board.undoPlay();
+        board.undoPlay();
+        board.undoPlay();
+        board.undoPlay();
+        board.undoPlay();
+        board.undoPlay();
+
+        try {
+            // undo extra play
+            board.undoPlay();
+            fail();
+        } catch (IllegalStateException expected) {
+            assertEquals("No moves to undo.", expected.getMessage());
+        }
+    }
+
+    @Test
+    public void testHash()
+    {
+        assertEquals("failure - empty board hash", 0L, board.getHash());
+
+        board.play(0);
+        board.play(1);
+        board.play(2);
+        long hash = board.getHash();
+
+        // the same position reached by a different order has the same hash
+        Board other = new BitBoard();
+        other.play(2);
+        other.play(1);
+        other.play(0);
+        assertEquals("failure - transposition has the same hash", hash, other.getHash());
+
+        // the same columns played by different players is a different position
+        other = new BitBoard();
+        other.play(1);
+        other.play(0);
+        other.play(2);
+        assertNotEquals("failure - different position has a different hash", hash,
+                other.getHash());
+
+        board.play(3);
+        board.undoPlay();
+        assertEquals("failure - hash after undo", hash, board.getHash());
+        assertEquals("failure - hash of copy", hash,
+                board.getImmutableView().getMutableCopy().getHash());
+    }
+
+    @Test
+    public void testMirrorHash()
+    {
+        assertEquals("failure - empty board mirror hash", 0L, board.getMirrorHash());
+
+        board.play(0);
+        board.play(1);
+        board.play(3);
+        Board mirror = new BitBoard();
+        mirror.play(6);
+        mirror.play(5);
+        mirror.play(3);
+        assertEquals("failure - mirror hash is the hash of the mirror image",
+                mirror.getHash(), board.getMirrorHash());
+        assertEquals("failure - hash is the mirror hash of the mirror image",
+                board.getHash(), mirror.getMirrorHash());
+
+        board.play(6);
+        board.undoPlay();
+        assertEquals("failure - mirror hash after undo", mirror.getHash(),
+                board.getMirrorHash());
+        assertEquals("failure - mirror hash of copy", mirror.getHash(),
+                board.getImmutableView().getMutableCopy().getMirrorHash());
+
+        board = new BitBoard();
+        board.play(2);
+        board.play(2);
+        board.play(4);
+        board.play(4);
+        assertEquals("failure - symmetric position has the same hash and mirror hash",
+                board.getHash(), board.getMirrorHash());
+    }
+
+    @Test
+    public void testListener()
+    {
+        // this is a workaround for Java's restriction of only being able to
+        // capture final variables in anonymous classes/lambdas
+        final int[] eventCount = {0};
+        board.addBoardListener(() -> eventCount[0]++);
+
+        board.play(0);
+        board.play(1);
+        board.play(2);
+        board.play(3);
+        board.play(4);
+
+        board.undoPlay();
+        board.undoPlay();
+        board.undoPlay();
+        board.undoPlay();
+        board.undoPlay();
+
+        assertEquals(10, eventCount[0]);
+    }
+
+    @Test
+    public void testCopyHistory()
+    {
+        board.play(0);
+        board.play(1);
+        board.play(1);
+        long hash = board.getHash();
+
+        Board copy = board.getImmutableView().getMutableCopy();
+        copy.play(3);
+        assertEquals("failure - original is not changed by its copy", Piece.NONE,
+                board.getPieceAt(3, 0));
+        board.play(4);
+        assertEquals("failure - copy is not changed by its original", Piece.NONE,
+                copy.getPieceAt(4, 0));
+        board.undoPlay();
+
+        // undo moves played before the copy was made
+        copy.undoPlay();
+        assertEquals("failure - copy has the same hash after undo", hash, copy.getHash());
+        copy.undoPlay();
+        copy.undoPlay();
+        copy.undoPlay();
+        assertEquals("failure - copy can undo moves played before it was made",
+                Piece.NONE, copy.getPieceAt(0, 0));
+        assertEquals("failure - copy has an empty hash after undoing every move",
+                0L, copy.getHash());
+        assertEquals("failure - original is not changed by undoing its copy",
+                Piece.BLACK, board.getPieceAt(0, 0));
+        assertEquals("failure - original keeps its history", 3, board.getCurrentTurn());
+    }
+
+    @Test
+    public void testCopyListeners()
+    {
+        final int[] eventCount = {0};
+        board.addBoardListener(() -> eventCount[0]++);
+        board.play(0);
+
+        Board copy = board.getImmutableView().getMutableCopy();
+        copy.play(1);
+        copy.undoPlay();
+        assertEquals("failure - copy does not notify the original's listeners",
+                1, eventCount[0]);
+
+        copy.addBoardListener(() -> eventCount[0]++);
+        copy.play(1);
+        assertEquals("failure - copy notifies its own listeners", 2, eventCount[0]);
+    }
+
+    @Test
+    public void testAddNullListener()
+    {
+        try {
+            board.addBoardListener(null);
+            fail();
+        } catch (NullPointerException expected) {
+            assertEquals("boardListener must not be null", expected.getMessage());
+        }
+    }
+
+    @Test
+    public void testMatchesArrayBoard()
+    {
+        // 6x7 fits in a single word, the others require multiple words
+        int[][] geometries = {{6, 7, 4}, {12, 14, 6}, {9, 9, 5}, {2, 30, 20}, {30, 2, 3}};
+        Random random = new Random(42);
+        for (int[] geometry : geometries) {
+            for (int game = 0; game < 50; game++) {
+                Board bitBoard = new BitBoard(geometry[0], geometry[1], geometry[2]);
+                Board arrayBoard = new ArrayBoard(geometry[0], geometry[1], geometry[2]);
+
+                while (arrayBoard.getWinner() == Piece.NONE) {
+                    int col = random.nextInt(arrayBoard.getWidth());
+                    assertEquals("failure - isValidMove matches ArrayBoard",
+                            arrayBoard.isValidMove(col), bitBoard.isValidMove(col));
+                    if (arrayBoard.isValidMove(col)) {
+                        arrayBoard.play(col);
+                        bitBoard.play(col);
+                        assertEquals("failure - winner matches ArrayBoard",
+                                arrayBoard.getWinner(), bitBoard.getWinner());
+                    }
+                }
+                assertBoardsEqual(arrayBoard, bitBoard);
+
+                // undo part of the game and check that the boards still match
+                int undoCount = random.nextInt(arrayBoard.getCurrentTurn() + 1);
+                for (int i = 0; i < undoCount; i++) {
+                    arrayBoard.undoPlay();
+                    bitBoard.undoPlay();
+                }
+                assertBoardsEqual(arrayBoard, bitBoard);
+                assertEquals("failure - winner after undo matches ArrayBoard",
+                        arrayBoard.getWinner(), bitBoard.getWinner());
+            }
+        }
+    }
+
+    @Test
+    public void testMutableCopy()
+    {
+        board.play(3);
+        board.play(3);
+        board.play(4);
+
+        Board copy = board.getImmutableView().getMutableCopy();
+        assertBoardsEqual(board, copy);
+
+        // copies are independent of the original
+        copy.play(0);
+        assertEquals("failure - copy was modified", Piece.RED, copy.getPieceAt(0, 0));
+        assertEquals("failure - original was not modified", Piece.NONE, board.getPieceAt(0, 0));
+
+        // copies can undo plays made before the copy
+        copy.undoPlay();
+        copy.undoPlay();
+        assertEquals("failure - undo play made before copy", Piece.NONE, copy.getPieceAt(4, 0));
+        assertEquals("failure - original was not modified", Piece.BLACK, board.getPieceAt(4, 0));
+    }
+
+    private static void assertBoardsEqual(Board expected, Board actual)
+    {
+        assertEquals("failure - current turn", expected.getCurrentTurn(), actual.getCurrentTurn());
+        assertEquals("failure - next piece", expected.getNextPiece(), actual.getNextPiece());
+        for (int row = 0; row < expected.getHeight(); row++) {
+            for (int col = 0; col < expected.getWidth(); col++) {
+                assertEquals(String.format("failure - piece at (%d, %d)", col, row),
+                        expected.getPieceAt(col, row), actual.getPieceAt(col, row));
+            }
+        }
+    }
+}
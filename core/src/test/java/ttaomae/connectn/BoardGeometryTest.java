@@ -0,0 +1,60 @@
+package ttaomae.connectn;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class BoardGeometryTest
+{
+    @Test
+    public void testSharedInstance()
+    {
+        assertSame("failure - geometry is shared",
+                BoardGeometry.of(6, 7, 4), BoardGeometry.of(6, 7, 4));
+        assertSame("failure - geometry of board is shared",
+                BoardGeometry.of(6, 7, 4), BoardGeometry.of(new BitBoard().getImmutableView()));
+    }
+
+    @Test
+    public void testLineCount()
+    {
+        // 24 horizontal, 21 vertical and 12 in each diagonal direction
+        assertEquals("failure - 6x7 connect 4 line count",
+                69, BoardGeometry.of(6, 7, 4).getLineCount());
+        assertEquals("failure - 3x3 connect 3 line count",
+                8, BoardGeometry.of(3, 3, 3).getLineCount());
+    }
+
+    @Test
+    public void testLinesThroughCell()
+    {
+        BoardGeometry geometry = BoardGeometry.of(6, 7, 4);
+        assertEquals("failure - lines through corner",
+                3, geometry.getLineCountThrough(geometry.getCell(0, 0)));
+        assertEquals("failure - lines through center",
+                13, geometry.getLineCountThrough(geometry.getCell(3, 2)));
+
+        // every line through a cell contains that cell
+        for (int cell = 0; cell < geometry.getCellCount(); cell++) {
+            for (int i = 0; i < geometry.getLineCountThrough(cell); i++) {
+                int line = geometry.getLineThrough(cell, i);
+                boolean containsCell = false;
+                for (int j = 0; j < geometry.getWinCondition(); j++) {
+                    containsCell |= geometry.getLineCell(line, j) == cell;
+                }
+                assertTrue("failure - line " + line + " contains cell " + cell, containsCell);
+            }
+        }
+    }
+
+    @Test
+    public void testCellIndex()
+    {
+        BoardGeometry geometry = BoardGeometry.of(6, 7, 4);
+        int cell = geometry.getCell(4, 3);
+        assertEquals("failure - column of cell", 4, geometry.getColumn(cell));
+        assertEquals("failure - row of cell", 3, geometry.getRow(cell));
+    }
+}
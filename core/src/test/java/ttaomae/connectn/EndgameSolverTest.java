@@ -0,0 +1,155 @@
+package ttaomae.connectn;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import ttaomae.connectn.player.AlphaBetaPlayer;
+import ttaomae.connectn.player.EndgameSolver;
+
+public class EndgameSolverTest
+{
+    private EndgameSolver solver;
+
+    @Before
+    public void init()
+    {
+        this.solver = new EndgameSolver(1);
+    }
+
+    @Test
+    public void testCanSolve()
+    {
+        assertTrue("failure - 6x7 board can be solved",
+                EndgameSolver.canSolve(new BitBoard().getImmutableView()));
+        assertFalse("failure - 12x14 board cannot be solved",
+                EndgameSolver.canSolve(new BitBoard(12, 14, 6).getImmutableView()));
+
+        Board board = new BitBoard();
+        for (int i = 0; i < 3; i++) {
+            board.play(0); // black
+            board.play(1);
+        }
+        board.play(0); // black
+        assertFalse("failure - finished game cannot be solved",
+                EndgameSolver.canSolve(board.getImmutableView()));
+    }
+
+    @Test
+    public void testWinInOne()
+    {
+        Board board = new BitBoard();
+        board.play(0); // black
+        board.play(0);
+        board.play(1); // black
+        board.play(1);
+        board.play(2); // black
+        board.play(2);
+
+        // black wins with the 7th piece
+        assertEquals("failure - black wins with next piece",
+                42 + 1 - 7, solver.solve(board.getImmutableView()));
+        assertEquals("failure - black plays winning move",
+                List.of(3), solver.getBestMoves(board.getImmutableView()));
+    }
+
+    @Test
+    public void testMatchesExhaustiveSearch()
+    {
+        Random random = new Random(42L);
+        int[][] geometries = {{4, 4, 3}, {4, 5, 4}, {5, 4, 3}, {3, 6, 3}};
+        for (int[] geometry : geometries) {
+            for (int game = 0; game < 20; game++) {
+                Board board = new BitBoard(geometry[0], geometry[1], geometry[2]);
+                int cells = geometry[0] * geometry[1];
+                while (cells - board.getCurrentTurn() > 9
+                        && board.getWinner() == Piece.NONE) {
+                    int move = random.nextInt(board.getWidth());
+                    if (board.isValidMove(move)) {
+                        board.play(move);
+                    }
+                }
+                if (board.getWinner() != Piece.NONE) {
+                    continue;
+                }
+
+                int expected = exhaustiveSearch(board);
+                assertEquals("failure - solved score matches exhaustive search",
+                        expected, solver.solve(board.getImmutableView()));
+
+                List<Integer> bestMoves = solver.getBestMoves(board.getImmutableView());
+                assertFalse("failure - best moves found", bestMoves.isEmpty());
+                for (int move : bestMoves) {
+                    board.play(move);
+                    int score = board.getWinner() == Piece.NONE
+                            ? -exhaustiveSearch(board)
+                            : cells + 1 - board.getCurrentTurn();
+                    board.undoPlay();
+                    assertEquals("failure - best move has best score", expected, score);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testAlphaBetaPlayerUsesSolver()
+    {
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        AlphaBetaPlayer player = new AlphaBetaPlayer(8, executorService);
+
+        // fill all but the last 6 spaces without a winner
+        Board board = new BitBoard();
+        int[] moves = {0, 1, 0, 1, 0, 1, 1, 0, 1, 0, 1, 0,
+                       2, 3, 2, 3, 2, 3, 3, 2, 3, 2, 3, 2,
+                       4, 5, 4, 5, 4, 5, 5, 4, 5, 4, 5, 4};
+        for (int move : moves) {
+            board.play(move);
+        }
+        assertEquals("failure - no winner before endgame", Piece.NONE, board.getWinner());
+
+        int move = player.getMove(board.getImmutableView()).get();
+        assertTrue("failure - solver selects best move",
+                solver.getBestMoves(board.getImmutableView()).contains(move));
+        assertEquals("failure - endgame searched to the end",
+                6, player.getLastSearchStatistics().getDepth());
+
+        executorService.shutdownNow();
+    }
+
+    /**
+     * Returns the score of the specified board from the perspective of the
+     * player to move by searching every move.
+     */
+    private static int exhaustiveSearch(Board board)
+    {
+        int cells = board.getHeight() * board.getWidth();
+        int best = Integer.MIN_VALUE;
+        for (int col = 0; col < board.getWidth(); col++) {
+            if (!board.isValidMove(col)) {
+                continue;
+            }
+            board.play(col);
+            int score;
+            if (board.getWinner() == Piece.DRAW) {
+                score = 0;
+            }
+            else if (board.getWinner() != Piece.NONE) {
+                score = cells + 1 - board.getCurrentTurn();
+            }
+            else {
+                score = -exhaustiveSearch(board);
+            }
+            board.undoPlay();
+            best = Math.max(best, score);
+        }
+        return best;
+    }
+}
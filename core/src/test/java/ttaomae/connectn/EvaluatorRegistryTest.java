@@ -0,0 +1,120 @@
+package ttaomae.connectn;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+import org.junit.Test;
+
+import ttaomae.connectn.player.AlphaBetaPlayer;
+import ttaomae.connectn.player.Evaluator;
+import ttaomae.connectn.player.EvaluatorMetrics;
+import ttaomae.connectn.player.EvaluatorRegistry;
+
+public class EvaluatorRegistryTest
+{
+    @Test
+    public void testBuiltInEvaluators()
+    {
+        assertTrue("failure - scan evaluator is registered",
+                EvaluatorRegistry.getNames().contains(EvaluatorRegistry.SCAN));
+        assertTrue("failure - lines evaluator is registered",
+                EvaluatorRegistry.getNames().contains(EvaluatorRegistry.LINES));
+        assertTrue("failure - threats evaluator is registered",
+                EvaluatorRegistry.getNames().contains(EvaluatorRegistry.THREATS));
+        assertTrue("failure - default evaluator is registered",
+                EvaluatorRegistry.isRegistered(EvaluatorRegistry.DEFAULT));
+        assertFalse("failure - unknown evaluator is not registered",
+                EvaluatorRegistry.isRegistered("unknown"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownEvaluator()
+    {
+        EvaluatorRegistry.getFactory("unknown");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicateRegistration()
+    {
+        EvaluatorRegistry.register(EvaluatorRegistry.LINES, board -> null);
+    }
+
+    @Test
+    public void testEvaluatorsFavorThreats()
+    {
+        Board board = new ArrayBoard();
+        board.play(0); // black
+        board.play(6);
+        board.play(1); // black
+        board.play(6);
+        board.play(2); // black
+        board.play(5);
+
+        for (String name : EvaluatorRegistry.getNames()) {
+            Function<ImmutableBoard, Evaluator> factory = EvaluatorRegistry.getFactory(name);
+            Evaluator evaluator = factory.apply(board.getImmutableView());
+            int score = evaluator.evaluate(Piece.BLACK);
+            assertTrue("failure - " + name + " favors black with three in a row", score > 0);
+            assertEquals("failure - " + name + " is symmetric",
+                    -score, evaluator.evaluate(Piece.RED));
+
+            evaluator.play(4); // black
+            evaluator.play(3);
+            evaluator.undoPlay();
+            evaluator.undoPlay();
+            assertEquals("failure - " + name + " is restored by undo",
+                    score, evaluator.evaluate(Piece.BLACK));
+        }
+    }
+
+    @Test
+    public void testMetrics()
+    {
+        EvaluatorMetrics metrics = EvaluatorRegistry.getMetrics(EvaluatorRegistry.SCAN);
+        metrics.reset();
+        assertEquals("failure - no calls after reset", 0, metrics.getCallCount());
+        assertEquals("failure - no updates after reset", 0, metrics.getUpdateCount());
+        assertTrue("failure - no cost without samples",
+                Double.isNaN(metrics.getAverageNanosPerCall()));
+
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        AlphaBetaPlayer player = AlphaBetaPlayer.withEvaluator(3, EvaluatorRegistry.SCAN,
+                executorService);
+        Board board = new ArrayBoard();
+        board.play(3);
+        player.getMove(board.getImmutableView());
+        executorService.shutdownNow();
+
+        assertTrue("failure - search calls the evaluator", metrics.getCallCount() > 0);
+        assertTrue("failure - evaluator cost is measured",
+                metrics.getAverageNanosPerCall() >= 0.0);
+        assertTrue("failure - search updates the evaluator", metrics.getUpdateCount() > 0);
+        assertTrue("failure - update cost is measured",
+                metrics.getAverageNanosPerUpdate() >= 0.0);
+        assertTrue("failure - total cost includes updates",
+                metrics.getTotalNanosPerCall() >= metrics.getAverageNanosPerCall());
+    }
+
+    @Test
+    public void testEvaluatorsBlockWins()
+    {
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        for (String name : EvaluatorRegistry.getNames()) {
+            AlphaBetaPlayer player = AlphaBetaPlayer.withEvaluator(2, name, executorService);
+            Board board = new ArrayBoard();
+            board.play(0); // black
+            board.play(6);
+            board.play(1); // black
+            board.play(6);
+            board.play(2); // black
+            assertEquals("failure - red blocks black with " + name + " evaluator",
+                    Integer.valueOf(3), player.getMove(board.getImmutableView()).get());
+        }
+        executorService.shutdownNow();
+    }
+}
@@ -0,0 +1,47 @@
+package ttaomae.connectn;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+import java.util.function.Function;
+
+import org.junit.Test;
+
+import ttaomae.connectn.player.Evaluator;
+import ttaomae.connectn.player.EvaluatorRegistry;
+
+public class LineCountEvaluatorTest
+{
+    @Test
+    public void testIncrementalCounts()
+    {
+        Function<ImmutableBoard, Evaluator> factory
+                = EvaluatorRegistry.getFactory(EvaluatorRegistry.LINES);
+        Random random = new Random(0);
+
+        for (Board board : new Board[] {new ArrayBoard(), new BitBoard(), new BitBoard(7, 8, 5)}) {
+            Evaluator evaluator = factory.apply(board.getImmutableView());
+            for (int step = 0; step < 2000; step++) {
+                boolean gameOver = board.getWinner() != Piece.NONE;
+                if (board.getCurrentTurn() > 0 && (gameOver || random.nextInt(3) == 0)) {
+                    board.undoPlay();
+                    evaluator.undoPlay();
+                }
+                else {
+                    int col;
+                    do {
+                        col = random.nextInt(board.getWidth());
+                    } while (!board.isValidMove(col));
+                    board.play(col);
+                    evaluator.play(col);
+                }
+
+                Evaluator fresh = factory.apply(board.getImmutableView());
+                assertEquals("failure - incremental score for black at step " + step,
+                        fresh.evaluate(Piece.BLACK), evaluator.evaluate(Piece.BLACK));
+                assertEquals("failure - incremental score for red at step " + step,
+                        fresh.evaluate(Piece.RED), evaluator.evaluate(Piece.RED));
+            }
+        }
+    }
+}
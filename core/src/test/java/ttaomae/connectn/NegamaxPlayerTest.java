@@ -0,0 +1,187 @@
+package ttaomae.connectn;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import ttaomae.connectn.player.AlphaBetaPlayer;
+import ttaomae.connectn.player.NegamaxPlayer;
+import ttaomae.connectn.player.SearchStatistics;
+import ttaomae.connectn.player.Player;
+
+public class NegamaxPlayerTest
+{
+    private Board board;
+    private Player player;
+
+    @Before
+    public void init()
+    {
+        this.board = new ArrayBoard();
+        this.player = new NegamaxPlayer();
+    }
+
+    @Test
+    public void testBlackDepthOne()
+    {
+        board.play(0); // black
+        board.play(0);
+        board.play(1); // black
+        board.play(1);
+        board.play(2); // black
+        board.play(2);
+        assertEquals("failure - black selects horizontal winning move",
+                Integer.valueOf(3), player.getMove(board.getImmutableView()).get());
+
+        board = new ArrayBoard();
+        board.play(0); // black
+        board.play(1);
+        board.play(0); // black
+        board.play(1);
+        board.play(0); // black
+        board.play(1);
+        assertEquals("failure - black selects vertical winning move",
+                Integer.valueOf(0), player.getMove(board.getImmutableView()).get());
+
+
+        board = new ArrayBoard();
+        board.play(0); // black
+        board.play(1);
+        board.play(1); // black
+        board.play(2);
+        board.play(2);
+        board.play(3);
+        board.play(2); // black
+        board.play(3);
+        board.play(4);
+        board.play(3);
+        assertEquals("failure - black selects diagonal winning move",
+                Integer.valueOf(3), player.getMove(board.getImmutableView()).get());
+    }
+
+    @Test
+    public void testRedDepthOne()
+    {
+        board.play(6);
+        board.play(0); // red
+        board.play(5);
+        board.play(1); // red
+        board.play(6);
+        board.play(2); // red
+        board.play(5);
+        assertEquals("failure - red selects horizontal winning move",
+                Integer.valueOf(3), player.getMove(board.getImmutableView()).get());
+
+        board = new ArrayBoard();
+        board.play(1);
+        board.play(0); // red
+        board.play(1);
+        board.play(0); // red
+        board.play(1);
+        board.play(0); // red
+        board.play(2);
+        assertEquals("failure - red selects vertical winning move",
+                Integer.valueOf(0), player.getMove(board.getImmutableView()).get());
+
+        board = new ArrayBoard();
+        board.play(1);
+        board.play(0); // red
+        board.play(2);
+        board.play(1); // red
+        board.play(2);
+        board.play(2); // red
+        board.play(3);
+        board.play(3);
+        board.play(3);
+        assertEquals("failure - red selects diagonal winning move",
+                Integer.valueOf(3), player.getMove(board.getImmutableView()).get());
+    }
+
+    @Test
+    public void testBlockOpponentWin()
+    {
+        board.play(0); // black
+        board.play(1);
+        board.play(0); // black
+        board.play(1);
+        board.play(0); // black
+        board.play(6);
+        board.play(6); // black
+        assertEquals("failure - red blocks black",
+                Integer.valueOf(0), player.getMove(board.getImmutableView()).get());
+
+        board = new ArrayBoard();
+        board.play(1);
+        board.play(0); // red
+        board.play(1);
+        board.play(0); // red
+        board.play(2);
+        board.play(0); // red
+        assertEquals("failure - black blocks red",
+                Integer.valueOf(0), player.getMove(board.getImmutableView()).get());
+    }
+
+    @Test
+    public void testWinOverBlock()
+    {
+        board.play(0); // black
+        board.play(1);
+        board.play(0); // black
+        board.play(1);
+        board.play(0); // black
+        board.play(1);
+        assertEquals("failure - black wins instead of blocking",
+                Integer.valueOf(0), player.getMove(board.getImmutableView()).get());
+
+        board = new ArrayBoard();
+        board.play(0);
+        board.play(1); // red
+        board.play(0);
+        board.play(1); // red
+        board.play(0);
+        board.play(1); // red
+        board.play(6);
+        assertEquals("failure - red wins instead of blocking",
+                Integer.valueOf(1), player.getMove(board.getImmutableView()).get());
+
+
+    }
+
+    @Test
+    public void testSearchStatistics()
+    {
+        for (int move : new int[] {3, 3, 2, 2}) {
+            board.play(move);
+        }
+
+        NegamaxPlayer negamaxPlayer = new NegamaxPlayer(7);
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        AlphaBetaPlayer alphaBetaPlayer = new AlphaBetaPlayer(7, executorService);
+
+        // black can win by making three in a row which is open on both ends
+        int negamaxMove = negamaxPlayer.getMove(board.getImmutableView()).get();
+        int alphaBetaMove = alphaBetaPlayer.getMove(board.getImmutableView()).get();
+        assertTrue("failure - negamax finds winning move", negamaxMove == 1 || negamaxMove == 4);
+        assertTrue("failure - alpha-beta finds winning move",
+                alphaBetaMove == 1 || alphaBetaMove == 4);
+
+        SearchStatistics negamaxStatistics = negamaxPlayer.getLastSearchStatistics();
+        SearchStatistics alphaBetaStatistics = alphaBetaPlayer.getLastSearchStatistics();
+        assertEquals("failure - negamax search depth", 7, negamaxStatistics.getDepth());
+        assertEquals("failure - alpha-beta search depth", 7, alphaBetaStatistics.getDepth());
+        assertTrue("failure - negamax visits nodes", negamaxStatistics.getNodeCount() > 0);
+        assertTrue("failure - negamax visits fewer nodes: " + negamaxStatistics
+                + " vs " + alphaBetaStatistics,
+                negamaxStatistics.getNodeCount() < alphaBetaStatistics.getNodeCount());
+        assertTrue("failure - effective branching factor below board width",
+                negamaxStatistics.getEffectiveBranchingFactor() < board.getWidth());
+
+        executorService.shutdownNow();
+    }
+}
@@ -0,0 +1,129 @@
+package ttaomae.connectn;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import ttaomae.connectn.player.BookPlayer;
+import ttaomae.connectn.player.EndgameSolver;
+import ttaomae.connectn.player.OpeningBook;
+import ttaomae.connectn.player.OpeningBookGenerator;
+import ttaomae.connectn.player.Player;
+import ttaomae.connectn.player.SequentialPlayer;
+
+public class OpeningBookTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path bookFile;
+    private int bookSize;
+
+    @Before
+    public void init() throws IOException
+    {
+        this.bookFile = folder.newFile("book.bin").toPath();
+        this.bookSize = new OpeningBookGenerator(new SequentialPlayer(), 3)
+                .generate(bookFile, 6, 7, 4);
+    }
+
+    @Test
+    public void testOpen() throws IOException
+    {
+        OpeningBook book = OpeningBook.open(bookFile);
+        assertEquals("failure - book size", bookSize, book.size());
+        assertEquals("failure - book move on empty board",
+                Optional.of(0), book.getMove(new BitBoard().getImmutableView()));
+    }
+
+    @Test
+    public void testMirroredPositions() throws IOException
+    {
+        OpeningBook book = OpeningBook.open(bookFile);
+
+        Board board = new BitBoard();
+        board.play(0);
+        assertEquals("failure - book move for generated position",
+                Optional.of(0), book.getMove(board.getImmutableView()));
+
+        // the mirror image shares the entry of the generated position
+        board = new BitBoard();
+        board.play(6);
+        assertEquals("failure - book move for mirrored position",
+                Optional.of(6), book.getMove(board.getImmutableView()));
+
+        board = new ArrayBoard();
+        board.play(5);
+        board.play(6);
+        assertEquals("failure - book move for mirrored position on ArrayBoard",
+                Optional.of(6), book.getMove(board.getImmutableView()));
+    }
+
+    @Test
+    public void testPositionNotInBook() throws IOException
+    {
+        OpeningBook book = OpeningBook.open(bookFile);
+
+        Board board = new BitBoard();
+        board.play(0);
+        board.play(1);
+        board.play(2);
+        assertFalse("failure - position beyond book depth",
+                book.getMove(board.getImmutableView()).isPresent());
+        assertFalse("failure - board with different dimensions",
+                book.getMove(new BitBoard(7, 7, 4).getImmutableView()).isPresent());
+    }
+
+    @Test
+    public void testBookPlayer() throws IOException
+    {
+        Player fallback = board -> Optional.of(3);
+        Player player = new BookPlayer(OpeningBook.open(bookFile), fallback);
+
+        Board board = new BitBoard();
+        board.play(6);
+        assertEquals("failure - book player uses book move",
+                Optional.of(6), player.getMove(board.getImmutableView()));
+
+        board.play(6);
+        board.play(6);
+        assertEquals("failure - book player falls back outside of book",
+                Optional.of(3), player.getMove(board.getImmutableView()));
+    }
+
+    @Test
+    public void testExactPlayer() throws IOException
+    {
+        EndgameSolver solver = new EndgameSolver(1);
+        Path exactBookFile = folder.newFile("exact.bin").toPath();
+        new OpeningBookGenerator(OpeningBookGenerator.exactPlayer(solver), 2)
+                .generate(exactBookFile, 4, 5, 4);
+        OpeningBook book = OpeningBook.open(exactBookFile);
+
+        Board board = new BitBoard(4, 5, 4);
+        board.play(0);
+        Optional<Integer> move = book.getMove(board.getImmutableView());
+        assertTrue("failure - exact move in book", move.isPresent());
+        assertTrue("failure - book move is a best move",
+                solver.getBestMoves(board.getImmutableView()).contains(move.get()));
+    }
+
+    @Test(expected = IOException.class)
+    public void testInvalidFile() throws IOException
+    {
+        Path file = folder.newFile("invalid.bin").toPath();
+        Files.write(file, new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16,
+                17, 18, 19, 20, 21, 22, 23, 24});
+        OpeningBook.open(file);
+    }
+}
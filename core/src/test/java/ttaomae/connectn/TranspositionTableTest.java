@@ -0,0 +1,109 @@
+package ttaomae.connectn;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import ttaomae.connectn.player.TranspositionTable;
+
+public class TranspositionTableTest
+{
+    private TranspositionTable table;
+
+    @Before
+    public void init()
+    {
+        this.table = new TranspositionTable(1);
+    }
+
+    @Test
+    public void testCapacity()
+    {
+        assertEquals("failure - 1 MB table capacity", 65536, table.capacity());
+    }
+
+    @Test
+    public void testStoreAndProbe()
+    {
+        assertEquals("failure - probe empty table",
+                TranspositionTable.NO_ENTRY, table.probe(12345L));
+
+        table.store(12345L, 7, TranspositionTable.LOWER_BOUND, -20000, 3);
+        long entry = table.probe(12345L);
+        assertEquals("failure - stored score", -20000, TranspositionTable.getScore(entry));
+        assertEquals("failure - stored depth", 7, TranspositionTable.getDepth(entry));
+        assertEquals("failure - stored bound",
+                TranspositionTable.LOWER_BOUND, TranspositionTable.getBound(entry));
+        assertEquals("failure - stored move", 3, TranspositionTable.getMove(entry));
+
+        table.store(0L, 0, TranspositionTable.EXACT, 0, Board.INVALID_MOVE);
+        entry = table.probe(0L);
+        assertEquals("failure - stored empty move",
+                Board.INVALID_MOVE, TranspositionTable.getMove(entry));
+        assertEquals("failure - stored bound for zero hash",
+                TranspositionTable.EXACT, TranspositionTable.getBound(entry));
+    }
+
+    @Test
+    public void testReplaceByDepth()
+    {
+        long hash = 42L;
+        // same slot, different position
+        long other = hash + table.capacity();
+
+        table.store(hash, 5, TranspositionTable.EXACT, 100, 1);
+        table.store(other, 4, TranspositionTable.EXACT, 200, 2);
+        assertEquals("failure - shallower entry does not replace deeper entry",
+                100, TranspositionTable.getScore(table.probe(hash)));
+        assertEquals("failure - probe for replaced position",
+                TranspositionTable.NO_ENTRY, table.probe(other));
+
+        table.store(other, 6, TranspositionTable.EXACT, 200, 2);
+        assertEquals("failure - deeper entry replaces shallower entry",
+                200, TranspositionTable.getScore(table.probe(other)));
+
+        // entries from previous searches can always be replaced
+        table.newSearch();
+        table.store(hash, 1, TranspositionTable.EXACT, 100, 1);
+        assertEquals("failure - new search replaces old entry",
+                100, TranspositionTable.getScore(table.probe(hash)));
+
+        table.clear();
+        assertEquals("failure - probe after clear",
+                TranspositionTable.NO_ENTRY, table.probe(hash));
+    }
+
+    @Test
+    public void testMix_lastColumn()
+    {
+        // the size used by the endgame solver
+        TranspositionTable solverTable = new TranspositionTable(4);
+
+        // a bitboard of a 6x7 board, with a sentinel bit above each column,
+        // whose first six columns are fixed
+        int stride = 7;
+        long fixedMask = 0b0000111L | 0b0000001L << stride | 0b0011111L << 3 * stride;
+        long fixedPosition = 0b0000101L | 0b0010101L << 3 * stride;
+
+        // every possible last column
+        int positions = 0;
+        Set<Integer> slots = new HashSet<>();
+        for (int height = 0; height <= 6; height++) {
+            long columnMask = ((1L << height) - 1) << 6 * stride;
+            for (long pieces = 0; pieces < 1L << height; pieces++) {
+                long mask = fixedMask | columnMask;
+                long position = fixedPosition | pieces << 6 * stride;
+                slots.add(solverTable.getIndex(TranspositionTable.mix(position + mask)));
+                positions++;
+            }
+        }
+
+        assertTrue("failure - positions differing in the last column share slots: "
+                + slots.size() + " of " + positions, slots.size() >= positions - 2);
+    }
+}
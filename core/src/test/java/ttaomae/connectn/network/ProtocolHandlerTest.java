@@ -8,7 +8,10 @@ import ttaomae.connectn.network.ProtocolEvent.Message;
 import java.io.IOException;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -69,6 +72,30 @@ public class ProtocolHandlerTest
         executorService.shutdownNow();
     }
 
+    @Test
+    public void testReceiveEvent_timeout() throws IOException, LostConnectionException
+    {
+        try (ServerSocket listener = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+                Socket socket = new Socket(listener.getInetAddress(), listener.getLocalPort());
+                Socket accepted = listener.accept()) {
+            ProtocolHandler waiting = new ProtocolHandler(socket);
+            ProtocolHandler sender = new ProtocolHandler(accepted);
+
+            sender.sendMessage(Message.ACCEPT_REMATCH);
+            assertEquals("failure - event received before timeout",
+                    Message.ACCEPT_REMATCH, waiting.receiveEvent(1000).getMessage());
+
+            try {
+                waiting.receiveEvent(50);
+                fail("no event received before timeout");
+            } catch (LostConnectionException e) {
+                assertTrue("failure - caused by timeout",
+                        e.getCause() instanceof SocketTimeoutException);
+            }
+            assertTrue("failure - connection closed after timeout", socket.isClosed());
+        }
+    }
+
     @Test
     public void testSendMessage_synchronous() throws IOException, LostConnectionException
     {
@@ -0,0 +1,117 @@
+package ttaomae.connectn.player;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import ttaomae.connectn.BitBoard;
+import ttaomae.connectn.Board;
+import ttaomae.connectn.Piece;
+
+public class MoveOrdererTest
+{
+    @Test
+    public void testCenterFirstOrder_oddWidth()
+    {
+        assertArrayEquals("failure - center-first order for width 7",
+                new int[] {3, 2, 4, 1, 5, 0, 6}, MoveOrderer.centerFirstOrder(7));
+        assertArrayEquals("failure - center-first order for width 1",
+                new int[] {0}, MoveOrderer.centerFirstOrder(1));
+    }
+
+    @Test
+    public void testCenterFirstOrder_evenWidth()
+    {
+        assertArrayEquals("failure - center-first order for width 8",
+                new int[] {4, 3, 5, 2, 6, 1, 7, 0}, MoveOrderer.centerFirstOrder(8));
+        assertArrayEquals("failure - center-first order for width 2",
+                new int[] {1, 0}, MoveOrderer.centerFirstOrder(2));
+    }
+
+    @Test
+    public void testOrderMoves_noHistory()
+    {
+        MoveOrderer orderer = new MoveOrderer(7, 4);
+        Board board = new BitBoard();
+
+        assertOrder("failure - center-first order without history",
+                new int[] {3, 2, 4, 1, 5, 0, 6}, orderer, board, 0, Board.INVALID_MOVE);
+        assertOrder("failure - hash move first",
+                new int[] {6, 3, 2, 4, 1, 5, 0}, orderer, board, 0, 6);
+    }
+
+    @Test
+    public void testOrderMoves_skipsFullColumns()
+    {
+        MoveOrderer orderer = new MoveOrderer(7, 4);
+        Board board = new BitBoard();
+        for (int i = 0; i < board.getHeight(); i++) {
+            board.play(3);
+        }
+
+        assertOrder("failure - full column skipped",
+                new int[] {2, 4, 1, 5, 0, 6}, orderer, board, 0, Board.INVALID_MOVE);
+    }
+
+    @Test
+    public void testOrderMoves_history()
+    {
+        MoveOrderer orderer = new MoveOrderer(7, 4);
+        Board board = new BitBoard();
+
+        // record cutoffs at other plies so that there are no killers at ply 0
+        orderer.recordCutoff(1, 0, Piece.BLACK, 3);
+        orderer.recordCutoff(2, 6, Piece.BLACK, 2);
+        orderer.recordCutoff(3, 6, Piece.BLACK, 2);
+        orderer.recordCutoff(1, 1, Piece.RED, 4);
+
+        // column 0 has 9, column 6 has 8, and the rest keep center-first order
+        assertOrder("failure - higher history first",
+                new int[] {0, 6, 3, 2, 4, 1, 5}, orderer, board, 0, Board.INVALID_MOVE);
+
+        // history is kept separately for each player
+        board.play(3);
+        assertOrder("failure - history of player to move",
+                new int[] {1, 3, 2, 4, 5, 0, 6}, orderer, board, 0, Board.INVALID_MOVE);
+    }
+
+    @Test
+    public void testOrderMoves_killersBeforeHistory()
+    {
+        MoveOrderer orderer = new MoveOrderer(7, 4);
+        Board board = new BitBoard();
+
+        // a deep cutoff at another ply gives column 0 a large history score
+        orderer.recordCutoff(1, 0, Piece.BLACK, 10);
+        orderer.recordCutoff(0, 5, Piece.BLACK, 1);
+        orderer.recordCutoff(0, 6, Piece.BLACK, 1);
+
+        // the most recent killer comes first, then the older killer
+        assertOrder("failure - killers before history",
+                new int[] {6, 5, 0, 3, 2, 4, 1}, orderer, board, 0, Board.INVALID_MOVE);
+        assertOrder("failure - hash move before killers",
+                new int[] {2, 6, 5, 0, 3, 4, 1}, orderer, board, 0, 2);
+        assertOrder("failure - no killers at other plies",
+                new int[] {0, 5, 6, 3, 2, 4, 1}, orderer, board, 2, Board.INVALID_MOVE);
+    }
+
+    @Test
+    public void testForceMove()
+    {
+        MoveOrderer orderer = new MoveOrderer(7, 4);
+        assertEquals("failure - forced move count", 1, orderer.forceMove(2, 4));
+        assertEquals("failure - forced move", 4, orderer.getMove(2, 0));
+    }
+
+    private static void assertOrder(String message, int[] expected, MoveOrderer orderer,
+            Board board, int ply, int hashMove)
+    {
+        int count = orderer.orderMoves(board, ply, hashMove);
+        int[] actual = new int[count];
+        for (int i = 0; i < count; i++) {
+            actual[i] = orderer.getMove(ply, i);
+        }
+        assertArrayEquals(message, expected, actual);
+    }
+}
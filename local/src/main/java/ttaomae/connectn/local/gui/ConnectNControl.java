@@ -13,7 +13,7 @@ import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.Slider;
 import javafx.scene.layout.GridPane;
-import ttaomae.connectn.ArrayBoard;
+import ttaomae.connectn.BitBoard;
 import ttaomae.connectn.Board;
 import ttaomae.connectn.BoardListener;
 import ttaomae.connectn.GameManager;
@@ -156,14 +156,16 @@ public class ConnectNControl extends GridPane implements BoardListener
             p1 = new MousePlayer(this.boardPanel);
         }
         else {
-            p1 = new AlphaBetaPlayer(this.playerOne.getCpuDifficulty(), this.executorService);
+            p1 = AlphaBetaPlayer.withEvaluator(this.playerOne.getCpuDifficulty(),
+                    this.playerOne.getCpuEvaluator(), this.executorService);
         }
 
         if (this.playerTwo.isHuman()) {
             p2 = new MousePlayer(this.boardPanel);
         }
         else {
-            p2 = new AlphaBetaPlayer(this.playerTwo.getCpuDifficulty(), this.executorService);
+            p2 = AlphaBetaPlayer.withEvaluator(this.playerTwo.getCpuDifficulty(),
+                    this.playerTwo.getCpuEvaluator(), this.executorService);
         }
 
         this.gameManager = new GameManager(this.board, p1, p2);
@@ -193,7 +195,7 @@ public class ConnectNControl extends GridPane implements BoardListener
             int winCond = (int) this.winConditionSlider.getValue();
             this.title.setText(GUI_STRINGS.getString("title_prefix") + winCond);
         });
-        this.board = new ArrayBoard((int) this.heightSlider.getValue(),
+        this.board = new BitBoard((int) this.heightSlider.getValue(),
                                (int) this.widthSlider.getValue(),
                                (int) this.winConditionSlider.getValue());
         this.board.addBoardListener(this);
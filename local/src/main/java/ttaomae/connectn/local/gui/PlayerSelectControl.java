@@ -9,17 +9,20 @@ import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
+import javafx.scene.control.ChoiceBox;
 import javafx.scene.control.Label;
 import javafx.scene.control.RadioButton;
 import javafx.scene.control.Slider;
 import javafx.scene.layout.BorderPane;
+import ttaomae.connectn.player.EvaluatorRegistry;
 import ttaomae.connectn.util.ResourceBundleUtil;
 
 /**
  * A JavaFX component which provides an interface for selecting between a human
  * or computer player and the computer difficulty. Provides two radio buttons to
- * select between 'human' or 'computer' and a slider to select the computer
- * difficulty.
+ * select between 'human' or 'computer', a slider to select the computer
+ * difficulty, and a choice box to select how the computer evaluates
+ * positions.
  *
  * @author Todd Taomae
  */
@@ -30,6 +33,7 @@ public class PlayerSelectControl extends BorderPane
 
     @FXML private Label label;
     @FXML private Slider cpuDifficultySlider;
+    @FXML private ChoiceBox<String> cpuEvaluatorChoice;
     @FXML private RadioButton playerHuman;
     @FXML private RadioButton playerComputer;
 
@@ -62,6 +66,9 @@ public class PlayerSelectControl extends BorderPane
         } catch (IOException exception) {
             throw new RuntimeException(exception);
         }
+
+        this.cpuEvaluatorChoice.getItems().setAll(EvaluatorRegistry.getNames());
+        this.cpuEvaluatorChoice.setValue(EvaluatorRegistry.DEFAULT);
     }
 
     public IntegerProperty playerNumberProperty()
@@ -143,11 +150,11 @@ public class PlayerSelectControl extends BorderPane
         humanDefaultProperty().set(humanDefault);
         if (humanDefault) {
             this.playerHuman.setSelected(true);
-            this.disableCpuDifficultySlider();
+            this.disableCpuOptions();
         }
         else {
             this.playerComputer.setSelected(true);
-            this.enableCpuDifficultySlider();
+            this.enableCpuOptions();
         }
     }
 
@@ -161,15 +168,22 @@ public class PlayerSelectControl extends BorderPane
         return (int) this.cpuDifficultySlider.getValue();
     }
 
+    public String getCpuEvaluator()
+    {
+        return this.cpuEvaluatorChoice.getValue();
+    }
+
     @FXML
-    private void disableCpuDifficultySlider() // NOPMD
+    private void disableCpuOptions() // NOPMD
     {
         this.cpuDifficultySlider.setDisable(true);
+        this.cpuEvaluatorChoice.setDisable(true);
     }
 
     @FXML
-    private void enableCpuDifficultySlider() // NOPMD
+    private void enableCpuOptions() // NOPMD
     {
         this.cpuDifficultySlider.setDisable(false);
+        this.cpuEvaluatorChoice.setDisable(false);
     }
 }
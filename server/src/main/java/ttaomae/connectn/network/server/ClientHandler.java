@@ -18,12 +18,28 @@ import ttaomae.connectn.player.Player;
 public class ClientHandler implements Player
 {
     private final ProtocolHandler protocolHandler;
+    private final String identity;
 
     ClientHandler(Socket socket) throws IOException
     {
         checkNotNull(socket, "socket must not be null.");
 
         this.protocolHandler = new ProtocolHandler(socket);
+        this.identity = socket.getInetAddress() == null
+                ? socket.toString()
+                : socket.getInetAddress().getHostAddress();
+    }
+
+    /**
+     * Returns the identity of the client, which is used to keep track of its
+     * rating across connections. Since clients do not identify themselves,
+     * this is the client's address.
+     *
+     * @return the identity of the client
+     */
+    public String getIdentity()
+    {
+        return this.identity;
     }
 
     /**
@@ -64,10 +80,23 @@ public class ClientHandler implements Player
         this.protocolHandler.sendMessage(message);
     }
 
-    public boolean requestRematch() throws LostConnectionException
+    public void sendRematchRequest() throws LostConnectionException
     {
         this.protocolHandler.sendMessage(Message.REQUEST_REMATCH);
-        ProtocolEvent response = this.protocolHandler.receiveEvent();
+    }
+
+    /**
+     * Waits for the response to a {@linkplain #sendRematchRequest() rematch
+     * request}. If the client does not respond in time, it is disconnected.
+     *
+     * @param timeoutMillis the maximum time to wait, in milliseconds
+     * @return true if the client accepted the rematch
+     * @throws LostConnectionException if the connection was lost, or the
+     *          client did not respond in time
+     */
+    public boolean receiveRematchResponse(int timeoutMillis) throws LostConnectionException
+    {
+        ProtocolEvent response = this.protocolHandler.receiveEvent(timeoutMillis);
 
         switch (response.getMessage()) {
             case ACCEPT_REMATCH:
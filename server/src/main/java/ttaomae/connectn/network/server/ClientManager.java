@@ -2,16 +2,19 @@ package ttaomae.connectn.network.server;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletionService;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,8 +22,6 @@ import org.slf4j.LoggerFactory;
 import ttaomae.connectn.network.LostConnectionException;
 import ttaomae.connectn.network.ProtocolEvent.Message;
 
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
-
 /**
  * Keeps track of the clients which are connected to a Connect-N server.
  *
@@ -30,25 +31,49 @@ public class ClientManager implements Runnable
 {
     private static final Logger logger = LoggerFactory.getLogger(ClientManager.class);
 
+    /** How often waiting players are matched as their windows widen */
+    private static final long MATCHMAKING_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final ExecutorService gameManagerExecutor;
     private final CompletionService<Void> gameManagerPool;
     private final Set<ClientHandler> connectedPlayers;
-    private final Set<ClientHandler> eligiblePlayers;
-    private final Map<ClientHandler, ClientHandler> lastMatches;
+    private final MatchmakingQueue<ClientHandler> matchmakingQueue;
+    private final EloRatings ratings;
+    private final RematchExecutor rematchExecutor;
 
-    private volatile boolean possibleMatchups;
+    /**
+     * Games whose players have been matched, but which have not been
+     * submitted to run yet.
+     */
+    private final BlockingQueue<NetworkGameManager> pendingMatches;
 
     /**
-     * Constructs a new ClientManager for the specified server.
+     * Constructs a new ClientManager which runs games on platform threads.
      */
     ClientManager()
     {
+        this(ThreadMode.PLATFORM);
+    }
+
+    /**
+     * Constructs a new ClientManager which runs games, and waits for rematch
+     * responses, on the specified kind of thread.
+     *
+     * @param threadMode the kind of thread used to run games
+     */
+    ClientManager(ThreadMode threadMode)
+    {
+        checkNotNull(threadMode, "threadMode must not be null");
+
         this.connectedPlayers = ConcurrentHashMap.newKeySet();
-        this.eligiblePlayers = ConcurrentHashMap.newKeySet();
-        this.lastMatches = new HashMap<>();
+        this.matchmakingQueue = new MatchmakingQueue<>();
+        this.ratings = new EloRatings();
+        this.pendingMatches = new LinkedBlockingQueue<>();
 
-        this.possibleMatchups = false;
-        this.gameManagerPool = new ExecutorCompletionService<>(Executors.newCachedThreadPool(
-                new ThreadFactoryBuilder().setNameFormat("network-game-manager-%d").build()));
+        this.gameManagerExecutor = Executors.newCachedThreadPool(
+                threadMode.newThreadFactory("network-game-manager-"));
+        this.gameManagerPool = new ExecutorCompletionService<>(this.gameManagerExecutor);
+        this.rematchExecutor = RematchExecutor.forThreadMode(threadMode);
 
         Thread cleanerThread = new Thread(new GameManagerCleaner(gameManagerPool),
                 "game-manager-cleaner");
@@ -79,7 +104,7 @@ public class ClientManager implements Runnable
         if (this.connectedPlayers.remove(player)) {
             logger.info("Player disconnected: {}", player);
         }
-        this.eligiblePlayers.remove(player);
+        this.matchmakingQueue.remove(player);
     }
 
     void playerMatchEnded(ClientHandler player)
@@ -89,6 +114,82 @@ public class ClientManager implements Runnable
         this.addEligiblePlayer(player);
     }
 
+    /**
+     * Returns the executor shared by all games to wait for rematch responses.
+     */
+    RematchExecutor getRematchExecutor()
+    {
+        return this.rematchExecutor;
+    }
+
+    /**
+     * Stops starting new games and interrupts the games which are running.
+     * The threads used to wait for rematch responses are released once the
+     * requests in progress complete.
+     */
+    void shutdown()
+    {
+        logger.info("Shutting down. {}", this.rematchExecutor);
+        this.gameManagerExecutor.shutdownNow();
+        this.rematchExecutor.shutdown();
+    }
+
+    /**
+     * Updates the ratings of two players after a match between them.
+     *
+     * @param playerOne the first player
+     * @param playerTwo the second player
+     * @param playerOneScore 1 if the first player won, 0 if the second player
+     *            won, or 0.5 for a draw
+     */
+    void matchCompleted(ClientHandler playerOne, ClientHandler playerTwo, double playerOneScore)
+    {
+        checkNotNull(playerOne, "playerOne must not be null");
+        checkNotNull(playerTwo, "playerTwo must not be null");
+
+        this.ratings.recordResult(playerOne.getIdentity(), playerTwo.getIdentity(),
+                playerOneScore);
+        logger.info("Match completed: {} ({}) and {} ({}).",
+                playerOne, this.ratings.getRating(playerOne.getIdentity()),
+                playerTwo, this.ratings.getRating(playerTwo.getIdentity()));
+    }
+
+    /**
+     * Records that a match has started between two players whose connections
+     * have been checked.
+     *
+     * @param playerOne the first player
+     * @param playerTwo the second player
+     */
+    void matchStarted(ClientHandler playerOne, ClientHandler playerTwo)
+    {
+        checkNotNull(playerOne, "playerOne must not be null");
+        checkNotNull(playerTwo, "playerTwo must not be null");
+
+        logger.info("Found match: {} and {}.", playerOne, playerTwo);
+        this.matchmakingQueue.matchStarted(playerOne, playerTwo);
+    }
+
+    /**
+     * Handles a player whose match did not start because it or its opponent
+     * had disconnected. A player which is still connected is returned to the
+     * matchmaking queue.
+     *
+     * @param player the player
+     * @param connected whether the player is still connected
+     */
+    void matchCancelled(ClientHandler player, boolean connected)
+    {
+        checkNotNull(player, "player must not be null");
+
+        if (connected) {
+            addEligiblePlayer(player);
+        }
+        else {
+            playerDisconnected(player);
+        }
+    }
+
     // this should only be called if at least one of the two specified players
     // have disconnected
     private void checkConnections(ClientHandler playerOne, ClientHandler playerTwo)
@@ -125,107 +226,62 @@ public class ClientManager implements Runnable
         }
     }
 
+    /**
+     * Continuously starts games between matched players. Each game checks its
+     * players' connections before it starts, so that a client which is slow
+     * to respond does not delay this thread. Waiting players are matched
+     * about once a second as their rating windows widen, regardless of how
+     * many new matches are started.
+     */
     @Override
     public void run()
     {
+        long nextSweep = System.nanoTime() + MATCHMAKING_INTERVAL_NANOS;
         while (true) {
-            try {
-                synchronized (this.eligiblePlayers) {
-                    while (!this.possibleMatchups) {
-                        this.eligiblePlayers.wait();
-                    }
+            // sweep on a fixed schedule, even while new matches keep arriving,
+            // so that players which are waiting are not starved
+            long now = System.nanoTime();
+            if (now - nextSweep >= 0) {
+                Optional<MatchmakingQueue.Match<ClientHandler>> match;
+                while ((match = this.matchmakingQueue.pollWaitingMatch()).isPresent()) {
+                    this.pendingMatches.add(new NetworkGameManager(this,
+                            match.get().getPlayerOne(), match.get().getPlayerTwo(),
+                            this.rematchExecutor));
                 }
+                nextSweep = now + MATCHMAKING_INTERVAL_NANOS;
+            }
+
+            NetworkGameManager gameManager;
+            try {
+                gameManager = this.pendingMatches.poll(nextSweep - now, TimeUnit.NANOSECONDS);
             }
             catch (InterruptedException e) {
                 logger.warn("Client Manager was interrupted.");
                 break;
             }
 
-            synchronized(this.eligiblePlayers) {
-                Optional<NetworkGameManager> optionalGameManager = findMatchup();
-
-                if (optionalGameManager.isPresent()) {
-                    NetworkGameManager gameManager = optionalGameManager.get();
-
-                    logger.info("Found match: {} and {}.",
-                            gameManager.getPlayerOne(), gameManager.getPlayerTwo());
-
-                    this.eligiblePlayers.remove(gameManager.getPlayerOne());
-                    this.eligiblePlayers.remove(gameManager.getPlayerTwo());
-
-                    this.lastMatches.put(gameManager.getPlayerOne(), gameManager.getPlayerTwo());
-                    this.lastMatches.put(gameManager.getPlayerTwo(), gameManager.getPlayerOne());
-
-                    @SuppressWarnings("unused")
-                    // if we do not assign to a variable, FindBugs will mark
-                    // this as: RV_RETURN_VALUE_IGNORED_BAD_PRACTICE
-                    // we do not care about the return value and exceptions are
-                    // handled by a GameManagerCleaner
-                    Future<Void> unused = this.gameManagerPool.submit(gameManager);
-                }
-                // there was no matchup found so don't look again until a new
-                // player is added
-                else {
-                    this.possibleMatchups = false;
-                }
+            if (gameManager == null) {
+                continue;
             }
-        }
-    }
-    /**
-     * Finds a matchup between two players who have not just played each other.
-     * If two players last matches were both against each other then they must
-     * have played each other and at least one of them denied a rematch, so they
-     * were added back to the pool. Since at least one denied a rematch we don't
-     * want to match them up again.
-     */
-    private Optional<NetworkGameManager> findMatchup()
-    {
-        if (this.eligiblePlayers.size() < 2) {
-            return Optional.empty();
-        }
 
-        logger.info("searching through players: {}", this.eligiblePlayers);
-        for (ClientHandler playerOne : this.eligiblePlayers) {
-            logger.debug("finding opponent for: {}", playerOne);
-            Optional<ClientHandler> optionalPlayerTwo = this.eligiblePlayers.stream()
-                    // don't choose a player that has disconnected
-                    .filter(player -> {
-                        if (player.isConnected()) {
-                            return true;
-                        } else {
-                            this.eligiblePlayers.remove(player);
-                            return false;
-                        }
-                    })
-                    // exclude playerOne
-                    .filter(player -> !playerOne.equals(player))
-                    // exclude playerOne's last opponent
-                    .filter(player -> !player.equals(this.lastMatches.get(playerOne)))
-                    // exclude player's whose last opponent was playerOne
-                    .filter(player -> !playerOne.equals(this.lastMatches.get(player)))
-                    .findAny();
-
-            if (optionalPlayerTwo.isPresent()) {
-                ClientHandler playerTwo = optionalPlayerTwo.get();
-                logger.debug("\tFound opponent: {}", playerTwo);
-                return Optional.of(new NetworkGameManager(this, playerOne, playerTwo));
-            }
-            else {
-                logger.debug("\tCould not find opponent");
-            }
+            @SuppressWarnings("unused")
+            // if we do not assign to a variable, FindBugs will mark
+            // this as: RV_RETURN_VALUE_IGNORED_BAD_PRACTICE
+            // we do not care about the return value and exceptions are
+            // handled by a GameManagerCleaner
+            Future<Void> unused = this.gameManagerPool.submit(gameManager);
         }
-
-        return Optional.empty();
     }
 
     private void addEligiblePlayer(ClientHandler player)
     {
         logger.info("Adding player to player pool: {}", player);
-        synchronized (this.eligiblePlayers) {
-            this.eligiblePlayers.add(player);
-            // there is a new player so we want to check for new matchups
-            this.possibleMatchups = true;
-            this.eligiblePlayers.notifyAll();
+        Optional<ClientHandler> opponent = this.matchmakingQueue.add(player,
+                this.ratings.getRating(player.getIdentity()));
+        if (opponent.isPresent()) {
+            // the player which has waited longest goes first
+            this.pendingMatches.add(new NetworkGameManager(this, opponent.get(), player,
+                    this.rematchExecutor));
         }
     }
 
@@ -248,6 +304,7 @@ public class ClientManager implements Runnable
                     future = this.completionService.take();
                     try {
                         logger.info("Game manager completed.");
+                        logger.debug("{}", rematchExecutor);
                         // we only do this to check if there was an exception
                         future.get();
                     }
@@ -257,7 +314,15 @@ public class ClientManager implements Runnable
                             logger.info("client disconnected");
                             ClientDisconnectedException cde = (ClientDisconnectedException) cause;
                             NetworkGameManager ngm = cde.getNetworkGameManager();
-                            checkConnections(ngm.getPlayerOne(), ngm.getPlayerTwo());
+                            // checking a connection waits for the client, so
+                            // do not hold up the other games' cleanup
+                            try {
+                                gameManagerExecutor.execute(() ->
+                                        checkConnections(ngm.getPlayerOne(), ngm.getPlayerTwo()));
+                            }
+                            catch (RejectedExecutionException ree) {
+                                logger.info("Not checking connections after shutdown.");
+                            }
                         }
                         // unknown exception
                         else {
@@ -0,0 +1,90 @@
+package ttaomae.connectn.network.server;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The Elo ratings of the clients which have played on a server, by client
+ * identity. Clients which have not finished a match have the
+ * {@linkplain #INITIAL_RATING initial rating}.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author Todd Taomae
+ */
+final class EloRatings
+{
+    /** The rating of a client which has not finished a match */
+    static final double INITIAL_RATING = 1500.0;
+
+    /** The maximum change in rating from a single match */
+    static final double K_FACTOR = 32.0;
+
+    private final Map<String, Double> ratings;
+
+    /** Serializes updates, so that concurrent results are not lost */
+    private final Lock updateLock;
+
+    EloRatings()
+    {
+        this.ratings = new ConcurrentHashMap<>();
+        this.updateLock = new ReentrantLock();
+    }
+
+    /**
+     * Returns the rating of the client with the specified identity.
+     *
+     * @param identity the identity of the client
+     * @return the rating of the client
+     */
+    double getRating(String identity)
+    {
+        checkNotNull(identity, "identity must not be null");
+
+        return this.ratings.getOrDefault(identity, INITIAL_RATING);
+    }
+
+    /**
+     * Updates the ratings of two clients after a match between them.
+     *
+     * @param playerOne the identity of the first client
+     * @param playerTwo the identity of the second client
+     * @param playerOneScore 1 if the first client won, 0 if the second client
+     *            won, or 0.5 for a draw
+     * @throws IllegalArgumentException if the score is not between 0 and 1,
+     *             inclusive
+     */
+    void recordResult(String playerOne, String playerTwo, double playerOneScore)
+    {
+        checkNotNull(playerOne, "playerOne must not be null");
+        checkNotNull(playerTwo, "playerTwo must not be null");
+        checkArgument(playerOneScore >= 0.0 && playerOneScore <= 1.0,
+                "playerOneScore must be between 0 and 1");
+
+        // the same client may play itself from two connections; its rating
+        // should not change
+        if (playerOne.equals(playerTwo)) {
+            return;
+        }
+
+        this.updateLock.lock();
+        try {
+            double playerOneRating = getRating(playerOne);
+            double playerTwoRating = getRating(playerTwo);
+            double playerOneExpected = 1.0
+                    / (1.0 + Math.pow(10.0, (playerTwoRating - playerOneRating) / 400.0));
+            double change = K_FACTOR * (playerOneScore - playerOneExpected);
+
+            this.ratings.put(playerOne, playerOneRating + change);
+            this.ratings.put(playerTwo, playerTwoRating - change);
+        }
+        finally {
+            this.updateLock.unlock();
+        }
+    }
+}
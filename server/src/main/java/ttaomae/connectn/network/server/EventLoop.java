@@ -0,0 +1,129 @@
+package ttaomae.connectn.network.server;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A single thread which multiplexes many {@linkplain NioConnection
+ * connections} using a {@link Selector}. Tasks may be submitted from any
+ * thread and are run on the event loop thread between selections.
+ *
+ * @author Todd Taomae
+ */
+final class EventLoop implements Runnable, Executor
+{
+    private static final Logger logger = LoggerFactory.getLogger(EventLoop.class);
+
+    private final Selector selector;
+    private final Queue<Runnable> tasks;
+    private volatile boolean running;
+
+    /**
+     * Constructs a new EventLoop with its own selector.
+     *
+     * @throws IOException if the selector could not be opened
+     */
+    EventLoop() throws IOException
+    {
+        this.selector = Selector.open();
+        this.tasks = new ConcurrentLinkedQueue<>();
+        this.running = true;
+    }
+
+    /**
+     * Runs the specified task on the event loop thread.
+     *
+     * @param task the task to run
+     */
+    @Override
+    public void execute(Runnable task)
+    {
+        this.tasks.add(task);
+        this.selector.wakeup();
+    }
+
+    /**
+     * Registers the specified connection with this event loop's selector.
+     * The connection is added to the lobby once it has been registered.
+     *
+     * @param connection the connection to register
+     * @param lobby the lobby in which the connection waits for an opponent
+     */
+    void register(NioConnection connection, NioLobby lobby)
+    {
+        execute(() -> {
+            try {
+                connection.register(this.selector);
+                lobby.add(connection);
+            }
+            catch (IOException e) {
+                logger.warn("Could not register connection [{}].", connection, e);
+                connection.close();
+            }
+        });
+    }
+
+    /**
+     * Stops this event loop and closes all of its connections.
+     */
+    void stop()
+    {
+        this.running = false;
+        this.selector.wakeup();
+    }
+
+    @Override
+    public void run()
+    {
+        try {
+            while (this.running) {
+                this.selector.select();
+                runTasks();
+
+                Iterator<SelectionKey> selectedKeys = this.selector.selectedKeys().iterator();
+                while (selectedKeys.hasNext()) {
+                    SelectionKey key = selectedKeys.next();
+                    selectedKeys.remove();
+
+                    NioConnection connection = (NioConnection) key.attachment();
+                    if (key.isValid() && key.isWritable()) {
+                        connection.onWritable();
+                    }
+                    if (key.isValid() && key.isReadable()) {
+                        connection.onReadable();
+                    }
+                }
+            }
+        }
+        catch (IOException e) {
+            logger.error("Event loop stopped unexpectedly.", e);
+        }
+        finally {
+            for (SelectionKey key : this.selector.keys()) {
+                ((NioConnection) key.attachment()).close();
+            }
+            try {
+                this.selector.close();
+            }
+            catch (IOException e) {
+                logger.warn("Could not close selector.", e);
+            }
+        }
+    }
+
+    private void runTasks()
+    {
+        Runnable task;
+        while ((task = this.tasks.poll()) != null) {
+            task.run();
+        }
+    }
+}
@@ -2,16 +2,40 @@ package ttaomae.connectn.network.server;
 
 public class Main
 {
+    private static final String NIO_OPTION = "--nio";
+    private static final String THREADS_OPTION = "--threads=";
+
     public static void main(String[] args)
     {
-        if (args.length != 1) {
+        if (args.length == 0) {
             printUsage();
             System.exit(1);
         }
 
+        boolean nio = false;
+        ThreadMode threadMode = ThreadMode.PLATFORM;
         try {
-            new Server(Integer.parseInt(args[0])).run();
-        } catch (NumberFormatException e) {
+            for (int i = 0; i < args.length - 1; i++) {
+                if (NIO_OPTION.equals(args[i])) {
+                    nio = true;
+                }
+                else if (args[i].startsWith(THREADS_OPTION)) {
+                    threadMode = ThreadMode.fromName(args[i].substring(THREADS_OPTION.length()));
+                }
+                else {
+                    throw new IllegalArgumentException("unknown option: " + args[i]);
+                }
+            }
+
+            int port = Integer.parseInt(args[args.length - 1]);
+            if (nio) {
+                new NioServer(port).run();
+            }
+            else {
+                new Server(port, threadMode).run();
+            }
+        } catch (IllegalArgumentException e) {
+            // also handles NumberFormatException
             printUsage();
             System.exit(1);
         }
@@ -19,7 +43,7 @@ public class Main
 
     private static void printUsage()
     {
-        System.err.println(String.format("Usage java %s <port number>%n",
-                Main.class.getName()));
+        System.err.println(String.format("Usage java %s [%s | %s<platform|virtual>] <port number>%n",
+                Main.class.getName(), NIO_OPTION, THREADS_OPTION));
     }
 }
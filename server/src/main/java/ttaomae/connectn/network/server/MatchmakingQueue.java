@@ -0,0 +1,347 @@
+package ttaomae.connectn.network.server;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * A queue of players waiting for an opponent of a similar rating.
+ * <p>
+ * Waiting players are grouped into bands of {@value #BAND_WIDTH} rating
+ * points, and each band is kept in order of arrival. A player is matched
+ * with a player in its own band at first. The number of bands that a player
+ * will search either way widens by one for every
+ * {@linkplain #WIDEN_INTERVAL_NANOS few seconds} it waits. A new player is
+ * matched as soon as it is added, if possible. Players which are still waiting
+ * are matched by {@link #pollWaitingMatch()} once their windows have widened.
+ * When there is a choice, the closest band wins, and then the player which has
+ * waited longest.
+ * <p>
+ * Two players are never matched if either's most recent opponent was the
+ * other. If that is the case, they must have just played each other and at
+ * least one of them denied a rematch, so they should not be matched up again.
+ * <p>
+ * Only the oldest eligible player in each band needs to be considered, since
+ * it has the widest window. Adding a player and matching waiting players
+ * therefore take time proportional to the number of bands, rather than the
+ * number of players which are waiting, and removing a player takes constant
+ * time.
+ * <p>
+ * This class is thread-safe. It does not check whether players are still
+ * connected; that is left to the caller, outside of the queue's lock.
+ *
+ * @author Todd Taomae
+ * @param <P> the type of player
+ */
+final class MatchmakingQueue<P>
+{
+    /** The number of rating points in each band */
+    static final int BAND_WIDTH = 100;
+
+    /** The number of bands. Ratings beyond the last band are in the last band */
+    static final int BAND_COUNT = 40;
+
+    /** How long a player waits before its window widens by one band */
+    static final long WIDEN_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final LongSupplier clock;
+    private final Lock lock;
+
+    /**
+     * The players waiting in each band, in order of arrival, with the time at
+     * which they started waiting.
+     */
+    private final List<LinkedHashMap<P, Long>> bands;
+
+    /** The band of each waiting player. */
+    private final Map<P, Integer> waitingBands;
+
+    /** The most recent opponent of each player. */
+    private final Map<P, P> lastOpponents;
+
+    MatchmakingQueue()
+    {
+        this(System::nanoTime);
+    }
+
+    /**
+     * Constructs a new MatchmakingQueue which measures wait times with the
+     * specified clock.
+     *
+     * @param clock a source of nanosecond times, such as
+     *            {@link System#nanoTime()}
+     */
+    MatchmakingQueue(LongSupplier clock)
+    {
+        checkNotNull(clock, "clock must not be null");
+
+        this.clock = clock;
+        this.lock = new ReentrantLock();
+        this.bands = new ArrayList<>(BAND_COUNT);
+        for (int i = 0; i < BAND_COUNT; i++) {
+            this.bands.add(new LinkedHashMap<>());
+        }
+        this.waitingBands = new HashMap<>();
+        this.lastOpponents = new HashMap<>();
+    }
+
+    /**
+     * Adds the specified player to this queue. If there is a suitable
+     * opponent, it is removed from the queue and returned, and the specified
+     * player is not added. Otherwise, the player waits in the band for its
+     * rating.
+     *
+     * @param player the player to add
+     * @param rating the player's rating
+     * @return the closest suitable opponent, or an empty Optional if there is
+     *         no suitable opponent
+     */
+    Optional<P> add(P player, double rating)
+    {
+        checkNotNull(player, "player must not be null");
+
+        this.lock.lock();
+        try {
+            if (this.waitingBands.containsKey(player)) {
+                return Optional.empty();
+            }
+
+            long now = this.clock.getAsLong();
+            int band = getBand(rating);
+            Optional<P> opponent = findOpponent(player, band, 0, now);
+            if (opponent.isPresent()) {
+                removeWaiting(opponent.get());
+                return opponent;
+            }
+
+            this.bands.get(band).put(player, now);
+            this.waitingBands.put(player, band);
+            return Optional.empty();
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Removes and returns two waiting players whose windows have widened
+     * enough for them to be matched with each other. This should be called
+     * periodically, since a waiting player is otherwise only matched when a
+     * new player is added.
+     * <p>
+     * Only the player at the head of each band is searched from, since it has
+     * waited longest and so has the widest window in its band. The time taken
+     * therefore depends on the number of bands rather than the number of
+     * waiting players.
+     *
+     * @return two waiting players which may be matched, the one which has
+     *         waited longest first, or an empty Optional if there are none
+     */
+    Optional<Match<P>> pollWaitingMatch()
+    {
+        this.lock.lock();
+        try {
+            long now = this.clock.getAsLong();
+            for (int band = 0; band < BAND_COUNT; band++) {
+                Iterator<Map.Entry<P, Long>> waiting = this.bands.get(band).entrySet().iterator();
+                if (!waiting.hasNext()) {
+                    continue;
+                }
+
+                Map.Entry<P, Long> head = waiting.next();
+                P player = head.getKey();
+                long since = head.getValue();
+                Optional<P> opponent = findOpponent(player, band, getWindow(since, now), now);
+                if (opponent.isPresent()) {
+                    P other = opponent.get();
+                    boolean playerFirst = since <= getWaitingSince(other);
+                    removeWaiting(player);
+                    removeWaiting(other);
+                    return Optional.of(playerFirst
+                            ? new Match<>(player, other)
+                            : new Match<>(other, player));
+                }
+            }
+            return Optional.empty();
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Records that the specified players have started a match, so that they
+     * will not be matched with each other again until at least one has played
+     * someone else.
+     *
+     * @param playerOne a player
+     * @param playerTwo the first player's opponent
+     */
+    void matchStarted(P playerOne, P playerTwo)
+    {
+        checkNotNull(playerOne, "playerOne must not be null");
+        checkNotNull(playerTwo, "playerTwo must not be null");
+
+        this.lock.lock();
+        try {
+            this.lastOpponents.put(playerOne, playerTwo);
+            this.lastOpponents.put(playerTwo, playerOne);
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the specified player from this queue and forgets its most
+     * recent opponent. This should be called when a player disconnects.
+     *
+     * @param player the player to remove
+     */
+    void remove(P player)
+    {
+        checkNotNull(player, "player must not be null");
+
+        this.lock.lock();
+        try {
+            removeWaiting(player);
+            this.lastOpponents.remove(player);
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of players waiting for an opponent.
+     *
+     * @return the number of players waiting for an opponent
+     */
+    int size()
+    {
+        this.lock.lock();
+        try {
+            return this.waitingBands.size();
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the band for the specified rating.
+     */
+    static int getBand(double rating)
+    {
+        int band = (int) Math.floor(rating / BAND_WIDTH);
+        return Math.max(0, Math.min(BAND_COUNT - 1, band));
+    }
+
+    /**
+     * Finds the closest opponent for the specified player, which is in the
+     * specified band and may search the specified number of bands either way.
+     * A waiting opponent may also be chosen if its own window is wide enough.
+     */
+    private Optional<P> findOpponent(P player, int band, int window, long now)
+    {
+        for (int distance = 0; distance < BAND_COUNT; distance++) {
+            P closest = null;
+            long closestSince = Long.MAX_VALUE;
+
+            int[] candidateBands = distance == 0
+                    ? new int[] {band}
+                    : new int[] {band - distance, band + distance};
+            for (int candidateBand : candidateBands) {
+                if (candidateBand < 0 || candidateBand >= BAND_COUNT) {
+                    continue;
+                }
+
+                for (Map.Entry<P, Long> waiting : this.bands.get(candidateBand).entrySet()) {
+                    P candidate = waiting.getKey();
+                    if (candidate.equals(player) || excludes(player, candidate)) {
+                        continue;
+                    }
+
+                    // later players in this band have waited less and have
+                    // narrower windows, so only the first one matters
+                    long since = waiting.getValue();
+                    if (distance <= Math.max(window, getWindow(since, now))
+                            && since < closestSince) {
+                        closest = candidate;
+                        closestSince = since;
+                    }
+                    break;
+                }
+            }
+
+            if (closest != null) {
+                return Optional.of(closest);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private void removeWaiting(P player)
+    {
+        Integer band = this.waitingBands.remove(player);
+        if (band != null) {
+            this.bands.get(band).remove(player);
+        }
+    }
+
+    private long getWaitingSince(P player)
+    {
+        return this.bands.get(this.waitingBands.get(player)).get(player);
+    }
+
+    private static int getWindow(long since, long now)
+    {
+        return (int) Math.min(BAND_COUNT, (now - since) / WIDEN_INTERVAL_NANOS);
+    }
+
+    private boolean excludes(P player, P candidate)
+    {
+        return candidate.equals(this.lastOpponents.get(player))
+                || player.equals(this.lastOpponents.get(candidate));
+    }
+
+    /**
+     * Two players which have been matched with each other.
+     *
+     * @param <P> the type of player
+     */
+    static final class Match<P>
+    {
+        private final P playerOne;
+        private final P playerTwo;
+
+        private Match(P playerOne, P playerTwo)
+        {
+            this.playerOne = playerOne;
+            this.playerTwo = playerTwo;
+        }
+
+        /**
+         * Returns the player which has waited longest.
+         */
+        P getPlayerOne()
+        {
+            return this.playerOne;
+        }
+
+        P getPlayerTwo()
+        {
+            return this.playerTwo;
+        }
+    }
+}
@@ -1,21 +1,19 @@
 package ttaomae.connectn.network.server;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.Optional;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorCompletionService;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.SynchronousQueue;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import ttaomae.connectn.ArrayBoard;
+import ttaomae.connectn.BitBoard;
 import ttaomae.connectn.Board;
 import ttaomae.connectn.IllegalMoveException;
 import ttaomae.connectn.Piece;
@@ -32,30 +30,71 @@ public class NetworkGameManager implements Callable<Void>
 {
     private final Logger logger = LoggerFactory.getLogger(NetworkGameManager.class);
 
+    /** How long a client may take to respond to a rematch request */
+    static final int REMATCH_TIMEOUT_MILLIS = 60_000;
+
     private final ClientManager clientManager;
     private final ClientHandler playerOneHandler;
     private final ClientHandler playerTwoHandler;
 
     /**
-     * A thread pool used to send messages to both clients simultaneously. It
-     * should contain only two threads and should reject anything beyond two
-     * simultaneous tasks.
+     * The executor used to wait for the rematch responses of both clients
+     * simultaneously. It is shared with other games and is not owned by this
+     * game manager.
      */
-    private final ExecutorService clientRequestThreadPool;
+    private final Executor rematchExecutor;
+    private final int rematchTimeoutMillis;
 
+    /**
+     * Constructs a new NetworkGameManager which waits for rematch responses
+     * using the executor shared by all games of the specified client manager.
+     */
     public NetworkGameManager(ClientManager clientManager,
             ClientHandler playerOneHandler, ClientHandler playerTwoHandler)
+    {
+        this(clientManager, playerOneHandler, playerTwoHandler,
+                getRematchExecutor(clientManager));
+    }
+
+    /**
+     * Constructs a new NetworkGameManager which waits for rematch responses
+     * using the specified executor.
+     */
+    public NetworkGameManager(ClientManager clientManager,
+            ClientHandler playerOneHandler, ClientHandler playerTwoHandler,
+            Executor rematchExecutor)
+    {
+        this(clientManager, playerOneHandler, playerTwoHandler, rematchExecutor,
+                REMATCH_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Constructs a new NetworkGameManager which waits for rematch responses
+     * using the specified executor, and disconnects a client which does not
+     * respond within the specified time.
+     */
+    NetworkGameManager(ClientManager clientManager,
+            ClientHandler playerOneHandler, ClientHandler playerTwoHandler,
+            Executor rematchExecutor, int rematchTimeoutMillis)
     {
         checkNotNull(clientManager, "clientManager must not be null");
         checkNotNull(playerOneHandler, "playerOneHandler must not be null");
         checkNotNull(playerTwoHandler, "playerTwoHandler must not be null");
+        checkNotNull(rematchExecutor, "rematchExecutor must not be null");
+        checkArgument(rematchTimeoutMillis > 0, "rematchTimeoutMillis must be positive");
 
         this.clientManager = clientManager;
         this.playerOneHandler = playerOneHandler;
         this.playerTwoHandler = playerTwoHandler;
+        this.rematchExecutor = rematchExecutor;
+        this.rematchTimeoutMillis = rematchTimeoutMillis;
+    }
 
-        this.clientRequestThreadPool = new ThreadPoolExecutor(2, 2, 0L, TimeUnit.MILLISECONDS,
-                new SynchronousQueue<>());
+    private static Executor getRematchExecutor(ClientManager clientManager)
+    {
+        checkNotNull(clientManager, "clientManager must not be null");
+
+        return clientManager.getRematchExecutor();
     }
 
     ClientHandler getPlayerOne()
@@ -73,10 +112,14 @@ public class NetworkGameManager implements Callable<Void>
     {
         // this will be used to asynchronously get responses from both players
         CompletionService<Boolean> completionService
-                = new ExecutorCompletionService<>(clientRequestThreadPool);
+                = new ExecutorCompletionService<>(this.rematchExecutor);
         boolean playerOneFirst = true;
         boolean rematch = true;
 
+        if (!checkConnections()) {
+            return null;
+        }
+
         while (rematch) {
             try {
                 startMatch();
@@ -86,7 +129,7 @@ public class NetworkGameManager implements Callable<Void>
                 throw new ClientDisconnectedException(message, e, this);
             }
 
-            Board board = new ArrayBoard();
+            Board board = new BitBoard();
             try {
                 playMatch(board, playerOneFirst);
             } catch (LostConnectionException e) {
@@ -94,9 +137,23 @@ public class NetworkGameManager implements Callable<Void>
                 logger.info(message);
                 throw new ClientDisconnectedException(message, e, this);
             }
+            this.clientManager.matchCompleted(playerOneHandler, playerTwoHandler,
+                    getPlayerOneScore(board, playerOneFirst));
 
-            completionService.submit(() -> handleRematchRequest(playerOneHandler));
-            completionService.submit(() -> handleRematchRequest(playerTwoHandler));
+            // both requests are sent from this thread, so that every client
+            // is asked straight away even if the executor is busy; only
+            // waiting for the responses, which is bounded by the timeout, is
+            // left to the executor
+            try {
+                playerOneHandler.sendRematchRequest();
+                playerTwoHandler.sendRematchRequest();
+            } catch (LostConnectionException e) {
+                String message = "A player disconnected while requesting rematch.";
+                logger.info(message);
+                throw new ClientDisconnectedException(message, e, this);
+            }
+            completionService.submit(() -> handleRematchResponse(playerOneHandler));
+            completionService.submit(() -> handleRematchResponse(playerTwoHandler));
 
             try {
                 boolean firstResponse = completionService.take().get();
@@ -129,6 +186,31 @@ public class NetworkGameManager implements Callable<Void>
         return null;
     }
 
+    /**
+     * Checks that both players are still connected before the first match.
+     * This is done on the thread running the game, rather than the thread
+     * which matched the players, since a client which is slow to respond
+     * would otherwise delay matchmaking for every other client. If a player
+     * has disconnected, the other player is returned to the client manager.
+     *
+     * @return true if both players are connected
+     */
+    private boolean checkConnections()
+    {
+        boolean playerOneConnected = playerOneHandler.isConnected();
+        boolean playerTwoConnected = playerTwoHandler.isConnected();
+
+        if (playerOneConnected && playerTwoConnected) {
+            this.clientManager.matchStarted(playerOneHandler, playerTwoHandler);
+            return true;
+        }
+
+        logger.info("A player disconnected before the match started.");
+        this.clientManager.matchCancelled(playerOneHandler, playerOneConnected);
+        this.clientManager.matchCancelled(playerTwoHandler, playerTwoConnected);
+        return false;
+    }
+
     private void startMatch() throws LostConnectionException
     {
         logger.info("Starting match between {} and {}", playerOneHandler, playerTwoHandler);
@@ -169,6 +251,16 @@ public class NetworkGameManager implements Callable<Void>
         }
     }
 
+    private static double getPlayerOneScore(Board board, boolean playerOneFirst)
+    {
+        Piece playerOnePiece = playerOneFirst ? Piece.BLACK : Piece.RED;
+        Piece winner = board.getWinner();
+        if (winner == Piece.DRAW) {
+            return 0.5;
+        }
+        return winner == playerOnePiece ? 1.0 : 0.0;
+    }
+
     private ClientHandler getOpponent(ClientHandler player)
     {
         assert managerOwnsPlayer(player) : "player does not belong to this game manager";
@@ -198,12 +290,12 @@ public class NetworkGameManager implements Callable<Void>
         }
     }
 
-    private boolean handleRematchRequest(ClientHandler player) throws LostConnectionException
+    private boolean handleRematchResponse(ClientHandler player) throws LostConnectionException
     {
         assert managerOwnsPlayer(player) : "player does not belong to this game manager";
 
         ClientHandler opponent = getOpponent(player);
-        boolean acceptRematch = player.requestRematch();
+        boolean acceptRematch = player.receiveRematchResponse(this.rematchTimeoutMillis);
 
         if (acceptRematch) {
             opponent.sendMessage(Message.ACCEPT_REMATCH);
@@ -0,0 +1,328 @@
+package ttaomae.connectn.network.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableList;
+
+import ttaomae.connectn.network.ProtocolEvent.Message;
+import ttaomae.connectn.network.ProtocolException;
+
+/**
+ * A non-blocking connection to a client. Reads are performed on the
+ * connection's {@link EventLoop} and decoded into protocol messages which are
+ * passed to the connection's current {@link NioGame}. Messages may be sent
+ * from any thread; if they cannot be written immediately they are queued and
+ * written once the channel is writable.
+ * <p>
+ * Each connection is in exactly one {@link State} at any time, which
+ * determines which messages it may send.
+ *
+ * @author Todd Taomae
+ */
+final class NioConnection
+{
+    private static final Logger logger = LoggerFactory.getLogger(NioConnection.class);
+
+    private static final List<Message> MESSAGE_VALUES = ImmutableList.copyOf(Message.values());
+
+    /** The size of the largest message, a move message followed by a move */
+    private static final int MAX_MESSAGE_BYTES = 2 * Integer.BYTES;
+
+    /**
+     * The state of a connection.
+     */
+    enum State
+    {
+        /** Waiting in the lobby for an opponent. */
+        LOBBY,
+
+        /** In a game, but not expected to send anything. */
+        WAITING,
+
+        /** In a game and expected to send a {@link Message#PLAYER_MOVE}. */
+        AWAITING_MOVE,
+
+        /** Expected to accept or deny a rematch. */
+        AWAITING_REMATCH,
+
+        /** Disconnected. */
+        CLOSED
+    }
+
+    private final SocketChannel channel;
+    private final EventLoop eventLoop;
+    private final NioLobby lobby;
+    private final ByteBuffer readBuffer;
+    private final AtomicBoolean closed;
+
+    /** Messages which could not be written immediately. Guarded by this. */
+    private final Queue<ByteBuffer> writeQueue;
+
+    private SelectionKey key;
+    private volatile State state;
+    private volatile NioGame game;
+    private volatile NioConnection lastOpponent;
+
+    /**
+     * Constructs a new connection for the specified non-blocking channel.
+     *
+     * @param channel the channel connected to the client
+     * @param eventLoop the event loop which will handle this connection
+     * @param lobby the lobby to which this connection is returned after a game
+     */
+    NioConnection(SocketChannel channel, EventLoop eventLoop, NioLobby lobby)
+    {
+        this.channel = channel;
+        this.eventLoop = eventLoop;
+        this.lobby = lobby;
+        this.readBuffer = ByteBuffer.allocate(MAX_MESSAGE_BYTES);
+        this.closed = new AtomicBoolean(false);
+        this.writeQueue = new ArrayDeque<>();
+        this.state = State.LOBBY;
+    }
+
+    /**
+     * Registers this connection's channel with the specified selector. This
+     * must be called from the event loop which owns the selector.
+     */
+    void register(Selector selector) throws IOException
+    {
+        this.key = this.channel.register(selector, SelectionKey.OP_READ, this);
+    }
+
+    State getState()
+    {
+        return this.state;
+    }
+
+    void setState(State state)
+    {
+        if (this.state != State.CLOSED) {
+            this.state = state;
+        }
+    }
+
+    NioGame getGame()
+    {
+        return this.game;
+    }
+
+    void setGame(NioGame game)
+    {
+        this.game = game;
+    }
+
+    NioConnection getLastOpponent()
+    {
+        return this.lastOpponent;
+    }
+
+    void setLastOpponent(NioConnection lastOpponent)
+    {
+        this.lastOpponent = lastOpponent;
+    }
+
+    boolean isClosed()
+    {
+        return this.closed.get();
+    }
+
+    /**
+     * Reads as much as is available and handles each complete message. Called
+     * from the event loop when the channel is readable.
+     */
+    void onReadable()
+    {
+        try {
+            while (!isClosed()) {
+                int read = this.channel.read(this.readBuffer);
+                if (read < 0) {
+                    close();
+                    return;
+                }
+                if (read == 0) {
+                    return;
+                }
+
+                this.readBuffer.flip();
+                handleMessages();
+                this.readBuffer.compact();
+            }
+        }
+        catch (IOException e) {
+            logger.info("Lost connection to [{}].", this, e);
+            close();
+        }
+        catch (ProtocolException e) {
+            logger.warn("Protocol violated by [{}]: {}", this, e.getMessage());
+            close();
+        }
+    }
+
+    private void handleMessages()
+    {
+        while (this.readBuffer.remaining() >= Integer.BYTES) {
+            int messageIndex = this.readBuffer.getInt(this.readBuffer.position());
+            if (messageIndex < 0 || messageIndex >= MESSAGE_VALUES.size()) {
+                throw new ProtocolException("Unknown message received: " + messageIndex);
+            }
+
+            Message message = MESSAGE_VALUES.get(messageIndex);
+            int move = -1;
+            if (message.isMoveMessage()) {
+                if (this.readBuffer.remaining() < MAX_MESSAGE_BYTES) {
+                    // wait for the rest of the message
+                    return;
+                }
+                this.readBuffer.getInt();
+                move = this.readBuffer.getInt();
+            }
+            else {
+                this.readBuffer.getInt();
+            }
+
+            if (message != Message.PING) {
+                NioGame currentGame = this.game;
+                if (currentGame == null) {
+                    throw new ProtocolException("Unexpected message received: " + message);
+                }
+                currentGame.messageReceived(this, message, move);
+            }
+        }
+    }
+
+    /**
+     * Writes any queued messages. Called from the event loop when the channel
+     * is writable.
+     */
+    void onWritable()
+    {
+        try {
+            synchronized (this) {
+                while (!this.writeQueue.isEmpty()) {
+                    ByteBuffer buffer = this.writeQueue.peek();
+                    this.channel.write(buffer);
+                    if (buffer.hasRemaining()) {
+                        return;
+                    }
+                    this.writeQueue.remove();
+                }
+                this.key.interestOps(SelectionKey.OP_READ);
+            }
+        }
+        catch (IOException e) {
+            logger.info("Lost connection to [{}].", this, e);
+            close();
+        }
+    }
+
+    /**
+     * Sends the specified non-move message to the client.
+     *
+     * @param message the message to send
+     */
+    void sendMessage(Message message)
+    {
+        assert !message.isMoveMessage() : "message must not be a move message";
+
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES);
+        buffer.putInt(message.ordinal());
+        buffer.flip();
+        write(buffer);
+    }
+
+    /**
+     * Sends the specified opponent's move to the client.
+     *
+     * @param move the move to send
+     */
+    void sendOpponentMove(int move)
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(MAX_MESSAGE_BYTES);
+        buffer.putInt(Message.OPPONENT_MOVE.ordinal());
+        buffer.putInt(move);
+        buffer.flip();
+        write(buffer);
+    }
+
+    private void write(ByteBuffer buffer)
+    {
+        if (isClosed()) {
+            return;
+        }
+
+        synchronized (this) {
+            if (this.writeQueue.isEmpty()) {
+                try {
+                    this.channel.write(buffer);
+                }
+                catch (IOException e) {
+                    logger.info("Lost connection to [{}].", this, e);
+                    // closing notifies the game, which may be locked by the
+                    // caller, so close on the event loop instead
+                    this.eventLoop.execute(this::close);
+                    return;
+                }
+                if (!buffer.hasRemaining()) {
+                    return;
+                }
+            }
+
+            this.writeQueue.add(buffer);
+            this.eventLoop.execute(this::enableWrites);
+        }
+    }
+
+    private synchronized void enableWrites()
+    {
+        if (this.key != null && this.key.isValid() && !this.writeQueue.isEmpty()) {
+            this.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+    }
+
+    /**
+     * Closes this connection. If the connection is in a game, its opponent is
+     * notified.
+     */
+    void close()
+    {
+        if (!this.closed.compareAndSet(false, true)) {
+            return;
+        }
+        this.state = State.CLOSED;
+
+        if (this.key != null) {
+            this.key.cancel();
+        }
+        try {
+            this.channel.close();
+        }
+        catch (IOException e) {
+            logger.warn("Could not close channel [{}].", this.channel, e);
+        }
+        logger.info("Player [{}] disconnected.", this);
+
+        this.lobby.remove(this);
+        NioGame currentGame = this.game;
+        if (currentGame != null) {
+            currentGame.playerDisconnected(this);
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.channel.toString();
+    }
+}
@@ -0,0 +1,266 @@
+package ttaomae.connectn.network.server;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableList;
+
+import ttaomae.connectn.BitBoard;
+import ttaomae.connectn.Board;
+import ttaomae.connectn.Piece;
+import ttaomae.connectn.network.ProtocolEvent.Message;
+import ttaomae.connectn.network.ProtocolException;
+import ttaomae.connectn.network.server.NioConnection.State;
+
+/**
+ * Manages a game between two {@linkplain NioConnection connections}. Unlike
+ * {@link NetworkGameManager}, a game does not own a thread. It reacts to
+ * messages as they are received by the connections' event loops and advances
+ * through the same sequence of START_GAME, REQUEST_MOVE and REQUEST_REMATCH
+ * messages.
+ * <p>
+ * All state is guarded by the game's monitor. Players which leave the game
+ * are returned to the lobby only after the monitor is released.
+ *
+ * @author Todd Taomae
+ */
+final class NioGame
+{
+    private static final Logger logger = LoggerFactory.getLogger(NioGame.class);
+
+    private final NioLobby lobby;
+    private final NioConnection playerOne;
+    private final NioConnection playerTwo;
+
+    private Board board;
+    private boolean playerOneFirst;
+    private boolean finished;
+
+    /** Rematch responses; null until the player has responded */
+    private Boolean playerOneRematch;
+    private Boolean playerTwoRematch;
+
+    NioGame(NioLobby lobby, NioConnection playerOne, NioConnection playerTwo)
+    {
+        this.lobby = lobby;
+        this.playerOne = playerOne;
+        this.playerTwo = playerTwo;
+        this.playerOneFirst = true;
+    }
+
+    NioConnection getPlayerOne()
+    {
+        return this.playerOne;
+    }
+
+    NioConnection getPlayerTwo()
+    {
+        return this.playerTwo;
+    }
+
+    /**
+     * Assigns both players to this game and starts the first match.
+     */
+    void start()
+    {
+        returnToLobby(doStart());
+    }
+
+    private synchronized List<NioConnection> doStart()
+    {
+        this.playerOne.setGame(this);
+        this.playerTwo.setGame(this);
+        this.playerOne.setLastOpponent(this.playerTwo);
+        this.playerTwo.setLastOpponent(this.playerOne);
+
+        // a player may have disconnected before it was assigned to this game
+        if (this.playerOne.isClosed()) {
+            return doPlayerDisconnected(this.playerOne);
+        }
+        if (this.playerTwo.isClosed()) {
+            return doPlayerDisconnected(this.playerTwo);
+        }
+
+        startMatch();
+        return Collections.emptyList();
+    }
+
+    /**
+     * Handles a message received from the specified player.
+     *
+     * @param player the player which sent the message
+     * @param message the message
+     * @param move the move, if the message is a move message
+     * @throws ProtocolException if the player was not expected to send the
+     *             message, or sent an illegal move
+     */
+    void messageReceived(NioConnection player, Message message, int move)
+    {
+        returnToLobby(doMessageReceived(player, message, move));
+    }
+
+    private synchronized List<NioConnection> doMessageReceived(NioConnection player,
+            Message message, int move)
+    {
+        assert gameOwnsPlayer(player) : "player does not belong to this game";
+
+        if (this.finished) {
+            throw new ProtocolException("Message received after game ended: " + message);
+        }
+
+        switch (player.getState()) {
+            case AWAITING_MOVE:
+                if (message != Message.PLAYER_MOVE) {
+                    throw new ProtocolException("Expected move but received: " + message);
+                }
+                if (!this.board.isValidMove(move)) {
+                    throw new ProtocolException("Client sent illegal move: " + move);
+                }
+
+                this.board.play(move);
+                player.setState(State.WAITING);
+                getOpponent(player).sendOpponentMove(move);
+
+                if (this.board.getWinner() == Piece.NONE) {
+                    requestMove();
+                }
+                else {
+                    requestRematch();
+                }
+                return Collections.emptyList();
+
+            case AWAITING_REMATCH:
+                boolean accept;
+                if (message == Message.ACCEPT_REMATCH) {
+                    accept = true;
+                }
+                else if (message == Message.DENY_REMATCH) {
+                    accept = false;
+                }
+                else {
+                    throw new ProtocolException("Invalid response to rematch request: " + message);
+                }
+                return rematchResponseReceived(player, accept);
+
+            default:
+                throw new ProtocolException("Unexpected message received: " + message);
+        }
+    }
+
+    /**
+     * Handles the disconnection of the specified player. The opponent is
+     * notified and returned to the lobby.
+     *
+     * @param player the player which disconnected
+     */
+    void playerDisconnected(NioConnection player)
+    {
+        returnToLobby(doPlayerDisconnected(player));
+    }
+
+    private synchronized List<NioConnection> doPlayerDisconnected(NioConnection player)
+    {
+        assert gameOwnsPlayer(player) : "player does not belong to this game";
+
+        if (this.finished) {
+            return Collections.emptyList();
+        }
+        this.finished = true;
+        logger.info("Player [{}] disconnected during game.", player);
+
+        NioConnection opponent = getOpponent(player);
+        player.setGame(null);
+        opponent.setGame(null);
+        opponent.sendMessage(Message.OPPONENT_DISCONNECTED);
+        return ImmutableList.of(opponent);
+    }
+
+    private void startMatch()
+    {
+        logger.info("Starting match between {} and {}", this.playerOne, this.playerTwo);
+        this.board = new BitBoard();
+        this.playerOneRematch = null;
+        this.playerTwoRematch = null;
+
+        this.playerOne.setState(State.WAITING);
+        this.playerTwo.setState(State.WAITING);
+        this.playerOne.sendMessage(Message.START_GAME);
+        this.playerTwo.sendMessage(Message.START_GAME);
+        requestMove();
+    }
+
+    private void requestMove()
+    {
+        NioConnection currentPlayer;
+        if (this.playerOneFirst) {
+            currentPlayer = this.board.getNextPiece() == Piece.BLACK
+                    ? this.playerOne : this.playerTwo;
+        }
+        else {
+            currentPlayer = this.board.getNextPiece() == Piece.BLACK
+                    ? this.playerTwo : this.playerOne;
+        }
+
+        currentPlayer.setState(State.AWAITING_MOVE);
+        currentPlayer.sendMessage(Message.REQUEST_MOVE);
+    }
+
+    private void requestRematch()
+    {
+        this.playerOne.setState(State.AWAITING_REMATCH);
+        this.playerTwo.setState(State.AWAITING_REMATCH);
+        this.playerOne.sendMessage(Message.REQUEST_REMATCH);
+        this.playerTwo.sendMessage(Message.REQUEST_REMATCH);
+    }
+
+    private List<NioConnection> rematchResponseReceived(NioConnection player, boolean accept)
+    {
+        if (player == this.playerOne) {
+            this.playerOneRematch = accept;
+        }
+        else {
+            this.playerTwoRematch = accept;
+        }
+        player.setState(State.WAITING);
+        getOpponent(player).sendMessage(accept ? Message.ACCEPT_REMATCH : Message.DENY_REMATCH);
+
+        if (this.playerOneRematch == null || this.playerTwoRematch == null) {
+            return Collections.emptyList();
+        }
+
+        // only rematch if both accept
+        if (this.playerOneRematch && this.playerTwoRematch) {
+            // switch player order for next game
+            this.playerOneFirst = !this.playerOneFirst;
+            startMatch();
+            return Collections.emptyList();
+        }
+
+        this.finished = true;
+        this.playerOne.setGame(null);
+        this.playerTwo.setGame(null);
+        return ImmutableList.of(this.playerOne, this.playerTwo);
+    }
+
+    private void returnToLobby(List<NioConnection> players)
+    {
+        assert !Thread.holdsLock(this) : "must not hold game lock while returning to lobby";
+
+        for (NioConnection player : players) {
+            this.lobby.add(player);
+        }
+    }
+
+    private NioConnection getOpponent(NioConnection player)
+    {
+        return player == this.playerOne ? this.playerTwo : this.playerOne;
+    }
+
+    private boolean gameOwnsPlayer(NioConnection player)
+    {
+        return player == this.playerOne || player == this.playerTwo;
+    }
+}
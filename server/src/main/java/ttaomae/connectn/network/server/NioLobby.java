@@ -0,0 +1,87 @@
+package ttaomae.connectn.network.server;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ttaomae.connectn.network.server.NioConnection.State;
+
+/**
+ * Pairs {@linkplain NioConnection connections} which are waiting for an
+ * opponent. Players are matched in the order in which they arrived, except
+ * that two players are not matched if either's last opponent was the other.
+ * The player which has waited longest moves first.
+ * <p>
+ * Disconnected players are removed by the connection itself, so no liveness
+ * checks are needed while matching.
+ *
+ * @author Todd Taomae
+ */
+final class NioLobby
+{
+    private static final Logger logger = LoggerFactory.getLogger(NioLobby.class);
+
+    /** Players waiting for an opponent, in order of arrival. Guarded by this. */
+    private final Set<NioConnection> waitingPlayers;
+
+    NioLobby()
+    {
+        this.waitingPlayers = new LinkedHashSet<>();
+    }
+
+    /**
+     * Adds the specified player to the lobby. If an opponent is available, a
+     * game is started immediately.
+     *
+     * @param player the player to add
+     */
+    void add(NioConnection player)
+    {
+        NioConnection opponent = null;
+        synchronized (this) {
+            if (player.isClosed()) {
+                return;
+            }
+
+            Iterator<NioConnection> iterator = this.waitingPlayers.iterator();
+            while (iterator.hasNext()) {
+                NioConnection candidate = iterator.next();
+                if (player.getLastOpponent() != candidate
+                        && candidate.getLastOpponent() != player) {
+                    iterator.remove();
+                    opponent = candidate;
+                    break;
+                }
+            }
+
+            if (opponent == null) {
+                player.setState(State.LOBBY);
+                this.waitingPlayers.add(player);
+                logger.debug("Player [{}] waiting for opponent.", player);
+                return;
+            }
+        }
+
+        // start outside of the lobby lock, so that the lobby lock is never
+        // acquired before a game lock
+        new NioGame(this, opponent, player).start();
+    }
+
+    /**
+     * Removes the specified player from the lobby, if it is waiting.
+     *
+     * @param player the player to remove
+     */
+    synchronized void remove(NioConnection player)
+    {
+        this.waitingPlayers.remove(player);
+    }
+
+    synchronized int getWaitingCount()
+    {
+        return this.waitingPlayers.size();
+    }
+}
@@ -0,0 +1,176 @@
+package ttaomae.connectn.network.server;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A Connect-N network multiplayer server which uses non-blocking I/O.
+ * <p>
+ * Unlike {@link Server}, which dedicates threads to each client and game,
+ * this server multiplexes all connections onto a small, fixed number of
+ * {@linkplain EventLoop event loops}, so that idle clients only cost a socket
+ * and a few buffers. The wire protocol is unchanged, so the same clients may
+ * connect to either server.
+ *
+ * @author Todd Taomae
+ */
+public class NioServer implements Runnable
+{
+    private static final Logger logger = LoggerFactory.getLogger(NioServer.class);
+
+    /** The maximum number of pending connections */
+    private static final int BACKLOG = 1024;
+
+    private final int port;
+    private final int eventLoopCount;
+    private final NioLobby lobby;
+    private final CountDownLatch bound;
+
+    private volatile ServerSocketChannel serverChannel;
+
+    /**
+     * Constructs a new NioServer bound to the specified port, with one event
+     * loop per available processor.
+     *
+     * @param port the port number
+     * @throws IllegalArgumentException if the port parameter is outside the
+     *             specified range of valid port values, which is between 0 and
+     *             65535, inclusive.
+     */
+    public NioServer(int port)
+    {
+        this(port, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a new NioServer bound to the specified port, with the
+     * specified number of event loops.
+     *
+     * @param port the port number
+     * @param eventLoopCount the number of event loop threads
+     * @throws IllegalArgumentException if the port parameter is outside the
+     *             specified range of valid port values, which is between 0 and
+     *             65535, inclusive, or if the number of event loops is not
+     *             positive
+     */
+    public NioServer(int port, int eventLoopCount)
+    {
+        checkArgument(port >= 0 && port <= 65535, "port out of range: " + port);
+        checkArgument(eventLoopCount > 0, "eventLoopCount must be positive");
+
+        this.port = port;
+        this.eventLoopCount = eventLoopCount;
+        this.lobby = new NioLobby();
+        this.bound = new CountDownLatch(1);
+    }
+
+    /**
+     * Continuously accepts connections and assigns them to the event loops in
+     * turn, until the server is {@linkplain #stop() stopped}.
+     */
+    @Override
+    public void run()
+    {
+        EventLoop[] eventLoops = new EventLoop[this.eventLoopCount];
+        Thread[] eventLoopThreads = new Thread[this.eventLoopCount];
+
+        try (ServerSocketChannel serverSocketChannel = ServerSocketChannel.open()) {
+            for (int i = 0; i < eventLoops.length; i++) {
+                eventLoops[i] = new EventLoop();
+                eventLoopThreads[i] = new Thread(eventLoops[i], "event-loop-" + i);
+                eventLoopThreads[i].setDaemon(true);
+                eventLoopThreads[i].start();
+            }
+
+            serverSocketChannel.bind(new InetSocketAddress(this.port), BACKLOG);
+            this.serverChannel = serverSocketChannel;
+            this.bound.countDown();
+
+            logger.info("Waiting for connections...");
+            int nextEventLoop = 0;
+            while (true) {
+                SocketChannel channel = serverSocketChannel.accept();
+                channel.configureBlocking(false);
+                // each message is a few bytes, so do not wait to fill a packet
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+
+                EventLoop eventLoop = eventLoops[nextEventLoop];
+                nextEventLoop = (nextEventLoop + 1) % eventLoops.length;
+                eventLoop.register(new NioConnection(channel, eventLoop, this.lobby), this.lobby);
+                logger.debug("Player connected on [{}].", channel);
+            }
+        }
+        catch (ClosedChannelException e) {
+            logger.info("Server stopped.");
+        }
+        catch (IOException e) {
+            logger.error("Exception caught when trying to listen on port "
+                             + port + " or listening for a connection");
+            logger.error(e.getMessage());
+        }
+        finally {
+            // release anyone waiting for the server to bind if it failed to
+            this.bound.countDown();
+            for (EventLoop eventLoop : eventLoops) {
+                if (eventLoop != null) {
+                    eventLoop.stop();
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops accepting connections and closes all connected clients.
+     */
+    public void stop()
+    {
+        ServerSocketChannel channel = this.serverChannel;
+        if (channel != null) {
+            try {
+                channel.close();
+            }
+            catch (IOException e) {
+                logger.warn("Could not close server channel.", e);
+            }
+        }
+    }
+
+    /**
+     * Waits for the server to bind and returns the port on which it is
+     * listening. This is useful when the server was constructed with port 0.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit the time unit of the timeout argument
+     * @return the port on which the server is listening, or -1 if the server
+     *         is not listening
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public int getLocalPort(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        ServerSocketChannel channel = this.serverChannel;
+        if (channel == null && this.bound.await(timeout, unit)) {
+            channel = this.serverChannel;
+        }
+        if (channel == null || !channel.isOpen()) {
+            return -1;
+        }
+
+        try {
+            return ((InetSocketAddress) channel.getLocalAddress()).getPort();
+        }
+        catch (IOException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package ttaomae.connectn.network.server;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An executor, shared by all games on a server, which waits for responses to
+ * rematch requests. With platform threads it is bounded, as described below.
+ * With virtual threads, which are cheap to block, each request has
+ * {@linkplain #perTask(ThreadFactory) its own thread} instead.
+ * <p>
+ * Threads are created as needed, up to a maximum, and are reused by later
+ * games. Idle threads are released after {@value #KEEP_ALIVE_SECONDS}
+ * seconds. If every thread is busy, requests wait in a bounded queue until a
+ * thread is free. If the queue is also full, the thread which submitted the
+ * request waits for space in the queue, so that the number of threads and
+ * queued requests stays bounded regardless of how many games are being
+ * played.
+ * <p>
+ * Games send their rematch requests before submitting any work to this
+ * executor, so clients are always asked straight away. Each task only waits
+ * for a response, for at most {@link NetworkGameManager#REMATCH_TIMEOUT_MILLIS
+ * a fixed time}, so clients which never respond cannot hold on to a thread
+ * indefinitely.
+ *
+ * @author Todd Taomae
+ */
+final class RematchExecutor implements Executor
+{
+    /** The default maximum number of threads */
+    static final int DEFAULT_MAXIMUM_THREADS = 256;
+
+    /** The default maximum number of requests waiting for a thread */
+    static final int DEFAULT_QUEUE_CAPACITY = 4096;
+
+    /** How long an idle thread is kept before it is released */
+    static final long KEEP_ALIVE_SECONDS = 60;
+
+    private final ThreadPoolExecutor executor;
+    private final LongAdder submittedCount;
+    private final LongAdder blockedCount;
+
+    /**
+     * Constructs a new RematchExecutor which creates up to the specified
+     * number of threads with the specified factory, and queues up to
+     * {@value #DEFAULT_QUEUE_CAPACITY} requests while they are all busy.
+     *
+     * @param threadFactory the factory used to create threads
+     * @param maximumThreads the maximum number of threads
+     * @throws IllegalArgumentException if the maximum number of threads is not
+     *             positive
+     */
+    RematchExecutor(ThreadFactory threadFactory, int maximumThreads)
+    {
+        this(threadFactory, maximumThreads, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Constructs a new RematchExecutor which creates up to the specified
+     * number of threads with the specified factory, and queues up to the
+     * specified number of requests while they are all busy.
+     *
+     * @param threadFactory the factory used to create threads
+     * @param maximumThreads the maximum number of threads
+     * @param queueCapacity the maximum number of requests waiting for a thread
+     * @throws IllegalArgumentException if the maximum number of threads or the
+     *             queue capacity is not positive
+     */
+    RematchExecutor(ThreadFactory threadFactory, int maximumThreads, int queueCapacity)
+    {
+        this(newBoundedPool(threadFactory, maximumThreads, queueCapacity));
+    }
+
+    private RematchExecutor(ThreadPoolExecutor executor)
+    {
+        this.submittedCount = new LongAdder();
+        this.blockedCount = new LongAdder();
+        this.executor = executor;
+        this.executor.setRejectedExecutionHandler(this::rejectedExecution);
+    }
+
+    /**
+     * Returns a new RematchExecutor which runs each request on a new thread
+     * created by the specified factory, without any limit on the number of
+     * threads. This is only suitable for threads which are cheap to block,
+     * such as virtual threads.
+     *
+     * @param threadFactory the factory used to create threads
+     * @return a new RematchExecutor with a thread per request
+     */
+    static RematchExecutor perTask(ThreadFactory threadFactory)
+    {
+        checkNotNull(threadFactory, "threadFactory must not be null");
+
+        return new RematchExecutor(new ThreadPoolExecutor(0, Integer.MAX_VALUE,
+                0L, TimeUnit.SECONDS, new SynchronousQueue<>(), threadFactory));
+    }
+
+    /**
+     * Returns a new RematchExecutor which uses the specified kind of thread.
+     * Virtual threads are created for each request, if they are supported.
+     * Otherwise, a bounded pool of {@value #DEFAULT_MAXIMUM_THREADS} platform
+     * threads is used.
+     *
+     * @param threadMode the kind of thread used to wait for responses
+     * @return a new RematchExecutor for the specified kind of thread
+     */
+    static RematchExecutor forThreadMode(ThreadMode threadMode)
+    {
+        checkNotNull(threadMode, "threadMode must not be null");
+
+        ThreadFactory threadFactory = threadMode.newThreadFactory("rematch-request-");
+        if (threadMode == ThreadMode.VIRTUAL && threadMode.isSupported()) {
+            return perTask(threadFactory);
+        }
+        return new RematchExecutor(threadFactory, DEFAULT_MAXIMUM_THREADS);
+    }
+
+    private static ThreadPoolExecutor newBoundedPool(ThreadFactory threadFactory,
+            int maximumThreads, int queueCapacity)
+    {
+        checkNotNull(threadFactory, "threadFactory must not be null");
+        checkArgument(maximumThreads > 0, "maximumThreads must be positive");
+        checkArgument(queueCapacity > 0, "queueCapacity must be positive");
+
+        // a ThreadPoolExecutor only creates more than its core threads once
+        // the queue is full, so every thread is a core thread and idle core
+        // threads are allowed to time out instead
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(maximumThreads, maximumThreads,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(queueCapacity),
+                threadFactory);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Runs the specified task on an idle or new thread, or queues it if the
+     * maximum number of threads are busy. If the queue is full, this waits
+     * until there is space.
+     *
+     * @param task the task to run
+     * @throws RejectedExecutionException if this executor has been shut down,
+     *             or the calling thread is interrupted while waiting for space
+     *             in the queue
+     */
+    @Override
+    public void execute(Runnable task)
+    {
+        checkNotNull(task, "task must not be null");
+
+        this.submittedCount.increment();
+        this.executor.execute(task);
+    }
+
+    private void rejectedExecution(Runnable task, ThreadPoolExecutor executor)
+    {
+        // do not silently discard tasks after a shutdown, since the game
+        // would wait forever for the response
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("rematch executor has been shut down");
+        }
+
+        this.blockedCount.increment();
+        try {
+            executor.getQueue().put(task);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("interrupted while waiting to queue task", e);
+        }
+    }
+
+    /**
+     * Stops accepting new tasks. Tasks which have already been submitted are
+     * allowed to complete.
+     */
+    void shutdown()
+    {
+        this.executor.shutdown();
+    }
+
+    /**
+     * Blocks until all tasks have completed after a shutdown, or the timeout
+     * occurs, whichever happens first.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit the time unit of the timeout argument
+     * @return true if this executor terminated, false if the timeout elapsed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        return this.executor.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * Returns the number of threads which are currently waiting for a
+     * response.
+     */
+    int getActiveCount()
+    {
+        return this.executor.getActiveCount();
+    }
+
+    /**
+     * Returns the number of threads which currently exist, whether busy or
+     * idle.
+     */
+    int getPoolSize()
+    {
+        return this.executor.getPoolSize();
+    }
+
+    /**
+     * Returns the largest number of threads which have existed at once.
+     */
+    int getLargestPoolSize()
+    {
+        return this.executor.getLargestPoolSize();
+    }
+
+    /**
+     * Returns the number of tasks which have been submitted.
+     */
+    long getSubmittedCount()
+    {
+        return this.submittedCount.sum();
+    }
+
+    /**
+     * Returns the number of tasks whose submitting thread had to wait because
+     * the queue was full.
+     */
+    long getBlockedCount()
+    {
+        return this.blockedCount.sum();
+    }
+
+    /**
+     * Returns the number of tasks which are waiting for a thread.
+     */
+    int getQueuedCount()
+    {
+        return this.executor.getQueue().size();
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("RematchExecutor[active=%d, pool=%d, largest=%d, queued=%d, "
+                + "submitted=%d, blocked=%d]", getActiveCount(), getPoolSize(),
+                getLargestPoolSize(), getQueuedCount(), getSubmittedCount(), getBlockedCount());
+    }
+}
@@ -32,11 +32,27 @@ public class Server implements Runnable
      *             65535, inclusive.
      */
     public Server(int port)
+    {
+        this(port, ThreadMode.PLATFORM);
+    }
+
+    /**
+     * Constructs a new Server bound to the specified port, which runs games on
+     * the specified kind of thread.
+     *
+     * @param port the port number
+     * @param threadMode the kind of thread used to run games
+     * @throws IllegalArgumentException if the port parameter is outside the
+     *             specified range of valid port values, which is between 0 and
+     *             65535, inclusive.
+     */
+    public Server(int port, ThreadMode threadMode)
     {
         checkArgument(port >= 0 && port <= 65535, "port out of range: " + port);
+        checkNotNull(threadMode, "threadMode must not be null");
 
         this.port = port;
-        this.clientManager = new ClientManager();
+        this.clientManager = new ClientManager(threadMode);
     }
 
     /**
@@ -64,6 +80,7 @@ public class Server implements Runnable
         }
         finally {
             clientManagerThread.interrupt();
+            this.clientManager.shutdown();
         }
     }
 
@@ -0,0 +1,121 @@
+package ttaomae.connectn.network.server;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Locale;
+import java.util.concurrent.ThreadFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * The kind of threads used by a {@link Server} to run games and to wait on
+ * blocking client requests.
+ *
+ * @author Todd Taomae
+ */
+public enum ThreadMode
+{
+    /** Operating system threads, which are pooled and reused. */
+    PLATFORM,
+
+    /**
+     * Virtual threads, which are cheap to block, so that each game and each
+     * blocking request may have its own thread. Virtual threads require Java
+     * 21 or later; on earlier versions platform threads are used instead.
+     */
+    VIRTUAL;
+
+    private static final Logger logger = LoggerFactory.getLogger(ThreadMode.class);
+
+    /**
+     * Returns the thread mode with the specified name, ignoring case.
+     *
+     * @param name the name of the thread mode
+     * @return the thread mode with the specified name
+     * @throws IllegalArgumentException if there is no thread mode with the
+     *             specified name
+     */
+    public static ThreadMode fromName(String name)
+    {
+        checkNotNull(name, "name must not be null");
+
+        return valueOf(name.toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Returns whether threads of this kind can be created by the running JVM.
+     *
+     * @return true if threads of this kind are supported, false otherwise
+     */
+    public boolean isSupported()
+    {
+        return this == PLATFORM || VirtualThreads.FACTORY_METHODS != null;
+    }
+
+    /**
+     * Returns a thread factory which creates threads of this kind, named with
+     * the specified prefix followed by a sequence number. If this kind of
+     * thread is not {@linkplain #isSupported() supported}, the factory creates
+     * platform threads.
+     *
+     * @param namePrefix the prefix of the thread names
+     * @return a thread factory for this kind of thread
+     */
+    ThreadFactory newThreadFactory(String namePrefix)
+    {
+        assert namePrefix != null : "namePrefix must not be null";
+
+        if (this == VIRTUAL) {
+            if (isSupported()) {
+                return VirtualThreads.newThreadFactory(namePrefix);
+            }
+            logger.warn("Virtual threads are not supported by this JVM. "
+                    + "Using platform threads instead.");
+        }
+        return new ThreadFactoryBuilder()
+                .setNameFormat(namePrefix + "%d")
+                .build();
+    }
+
+    /**
+     * Looks up the virtual thread API reflectively, so that the server can be
+     * built for, and run on, versions of Java which do not have it.
+     */
+    private static final class VirtualThreads
+    {
+        /** Thread.ofVirtual, Thread.Builder.name and Thread.Builder.factory */
+        private static final Method[] FACTORY_METHODS = findFactoryMethods();
+
+        private static Method[] findFactoryMethods()
+        {
+            try {
+                Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+                return new Method[] {
+                    Thread.class.getMethod("ofVirtual"),
+                    builderClass.getMethod("name", String.class, long.class),
+                    builderClass.getMethod("factory")
+                };
+            }
+            catch (ClassNotFoundException | NoSuchMethodException e) {
+                return null;
+            }
+        }
+
+        private static ThreadFactory newThreadFactory(String namePrefix)
+        {
+            try {
+                Object builder = FACTORY_METHODS[0].invoke(null);
+                builder = FACTORY_METHODS[1].invoke(builder, namePrefix, 0L);
+                return (ThreadFactory) FACTORY_METHODS[2].invoke(builder);
+            }
+            catch (IllegalAccessException | InvocationTargetException e) {
+                throw new IllegalStateException("could not create virtual thread factory", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package ttaomae.connectn.network.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+public class EloRatingsTest
+{
+    private static final double DELTA = 1e-9;
+
+    @Test
+    public void testRecordResult()
+    {
+        EloRatings ratings = new EloRatings();
+        assertEquals("failure - initial rating",
+                EloRatings.INITIAL_RATING, ratings.getRating("a"), DELTA);
+
+        ratings.recordResult("a", "b", 1.0);
+        assertEquals("failure - winner between equal ratings",
+                EloRatings.INITIAL_RATING + EloRatings.K_FACTOR / 2, ratings.getRating("a"), DELTA);
+        assertEquals("failure - loser between equal ratings",
+                EloRatings.INITIAL_RATING - EloRatings.K_FACTOR / 2, ratings.getRating("b"), DELTA);
+
+        // an expected win gains less than an upset
+        double before = ratings.getRating("a");
+        ratings.recordResult("a", "b", 1.0);
+        assertTrue("failure - expected win", ratings.getRating("a") - before < EloRatings.K_FACTOR / 2);
+
+        ratings.recordResult("c", "c", 1.0);
+        assertEquals("failure - playing self",
+                EloRatings.INITIAL_RATING, ratings.getRating("c"), DELTA);
+    }
+
+    @Test
+    public void testRecordResult_draw()
+    {
+        EloRatings ratings = new EloRatings();
+        ratings.recordResult("a", "b", 0.5);
+        assertEquals("failure - draw between equal ratings",
+                EloRatings.INITIAL_RATING, ratings.getRating("a"), DELTA);
+
+        try {
+            ratings.recordResult("a", "b", 2.0);
+            fail("score out of range");
+        } catch (IllegalArgumentException e) {
+            assertEquals("failure - score out of range",
+                    "playerOneScore must be between 0 and 1", e.getMessage());
+        }
+    }
+}
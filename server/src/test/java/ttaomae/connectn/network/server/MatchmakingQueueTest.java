@@ -0,0 +1,151 @@
+package ttaomae.connectn.network.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Optional;
+
+import ttaomae.connectn.network.server.MatchmakingQueue.Match;
+
+import org.junit.Test;
+
+public class MatchmakingQueueTest
+{
+    private static final double RATING = EloRatings.INITIAL_RATING;
+
+    private long now;
+
+    @Test
+    public void testAdd()
+    {
+        MatchmakingQueue<String> queue = new MatchmakingQueue<>();
+
+        assertEquals("failure - no opponent for first player", Optional.empty(), queue.add("a", RATING));
+        assertEquals("failure - adding a waiting player again", Optional.empty(), queue.add("a", RATING));
+        assertEquals("failure - one player waiting", 1, queue.size());
+
+        assertEquals("failure - second player matched with first", Optional.of("a"), queue.add("b", RATING));
+        assertEquals("failure - no players waiting", 0, queue.size());
+    }
+
+    @Test
+    public void testAdd_fifo()
+    {
+        MatchmakingQueue<String> queue = new MatchmakingQueue<>();
+        queue.matchStarted("a", "b");
+        queue.add("a", RATING);
+        queue.add("b", RATING);
+
+        assertEquals("failure - c matched with longest waiting", Optional.of("a"), queue.add("c", RATING));
+        assertEquals("failure - d matched with b", Optional.of("b"), queue.add("d", RATING));
+    }
+
+    @Test
+    public void testAdd_lastOpponentExcluded()
+    {
+        MatchmakingQueue<String> queue = new MatchmakingQueue<>();
+        queue.matchStarted("a", "b");
+
+        queue.add("a", RATING);
+        assertEquals("failure - last opponents matched", Optional.empty(), queue.add("b", RATING));
+        assertEquals("failure - c matched with a", Optional.of("a"), queue.add("c", RATING));
+
+        // a has played c, but b's last opponent is still a
+        queue.matchStarted("a", "c");
+        assertEquals("failure - b excludes its last opponent", Optional.empty(), queue.add("a", RATING));
+        assertEquals("failure - d matched with b", Optional.of("b"), queue.add("d", RATING));
+
+        // once both have played someone else, they may be matched again
+        queue.matchStarted("b", "d");
+        assertEquals("failure - b matched with a", Optional.of("a"), queue.add("b", RATING));
+    }
+
+    @Test
+    public void testRemove()
+    {
+        MatchmakingQueue<String> queue = new MatchmakingQueue<>();
+        queue.matchStarted("a", "b");
+        queue.add("a", RATING);
+        queue.add("b", RATING);
+
+        queue.remove("a");
+        assertEquals("failure - removed player not waiting", 1, queue.size());
+        assertEquals("failure - c matched with b", Optional.of("b"), queue.add("c", RATING));
+        assertEquals("failure - no players waiting", 0, queue.size());
+    }
+
+    @Test
+    public void testAdd_ratingBands()
+    {
+        MatchmakingQueue<String> queue = new MatchmakingQueue<>(() -> this.now);
+        queue.add("a", 1000);
+        queue.add("b", 2000);
+
+        assertEquals("failure - c not matched with distant players",
+                Optional.empty(), queue.add("c", 1450));
+        assertEquals("failure - d matched with closest player",
+                Optional.of("a"), queue.add("d", 1050));
+        assertEquals("failure - e matched with c", Optional.of("c"), queue.add("e", 1499));
+    }
+
+    @Test
+    public void testAdd_windowWidens()
+    {
+        MatchmakingQueue<String> queue = new MatchmakingQueue<>(() -> this.now);
+        queue.add("a", 1500);
+
+        this.now += MatchmakingQueue.WIDEN_INTERVAL_NANOS;
+        assertEquals("failure - b within a's widened window",
+                Optional.of("a"), queue.add("b", 1650));
+
+        queue.add("c", 1500);
+        assertEquals("failure - d outside c's window", Optional.empty(), queue.add("d", 1750));
+    }
+
+    @Test
+    public void testPollWaitingMatch()
+    {
+        MatchmakingQueue<String> queue = new MatchmakingQueue<>(() -> this.now);
+        queue.add("a", 1200);
+        this.now += 1;
+        queue.add("b", 1500);
+        assertFalse("failure - windows not yet wide enough", queue.pollWaitingMatch().isPresent());
+
+        this.now += 3 * MatchmakingQueue.WIDEN_INTERVAL_NANOS;
+        Optional<Match<String>> match = queue.pollWaitingMatch();
+        assertTrue("failure - windows wide enough", match.isPresent());
+        assertEquals("failure - longest waiting player first", "a", match.get().getPlayerOne());
+        assertEquals("failure - other player second", "b", match.get().getPlayerTwo());
+        assertEquals("failure - no players waiting", 0, queue.size());
+    }
+
+    @Test
+    public void testPollWaitingMatch_excludedHead()
+    {
+        MatchmakingQueue<String> queue = new MatchmakingQueue<>(() -> this.now);
+        queue.matchStarted("a", "b");
+        queue.matchStarted("b", "c");
+        queue.add("b", 1500);
+        queue.add("c", 1550);
+        this.now += 1;
+        queue.add("a", 1200);
+        assertEquals("failure - all players waiting", 3, queue.size());
+
+        this.now += 3 * MatchmakingQueue.WIDEN_INTERVAL_NANOS;
+        Optional<Match<String>> match = queue.pollWaitingMatch();
+        assertTrue("failure - a matched past excluded head", match.isPresent());
+        assertEquals("failure - longest waiting player first", "c", match.get().getPlayerOne());
+        assertEquals("failure - other player second", "a", match.get().getPlayerTwo());
+        assertFalse("failure - b has no opponent", queue.pollWaitingMatch().isPresent());
+    }
+
+    @Test
+    public void testGetBand()
+    {
+        assertEquals("failure - negative rating", 0, MatchmakingQueue.getBand(-100));
+        assertEquals("failure - initial rating", 15, MatchmakingQueue.getBand(1500));
+        assertEquals("failure - high rating", MatchmakingQueue.BAND_COUNT - 1,
+                MatchmakingQueue.getBand(100000));
+    }
+}
@@ -1,13 +1,30 @@
 package ttaomae.connectn.network.server;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Test;
 
+import ttaomae.connectn.network.LostConnectionException;
+import ttaomae.connectn.network.ProtocolEvent.Message;
+
 public class NetworkGameManagerTest
 {
     @Test
@@ -40,5 +57,94 @@ public class NetworkGameManagerTest
             assertEquals("failure - null client handler 2",
                     "playerTwoHandler must not be null", e.getMessage());
         }
+
+        try {
+            new NetworkGameManager(mockClientManager, mockClientHandlerOne, mockClientHandlerTwo,
+                    null);
+            fail("constructor with null rematch executor");
+        } catch (NullPointerException e) {
+            assertEquals("failure - null rematch executor",
+                    "rematchExecutor must not be null", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testCall_playerDisconnectedBeforeMatch() throws Exception
+    {
+        ClientManager mockClientManager = mock(ClientManager.class);
+        ClientHandler mockClientHandlerOne = mock(ClientHandler.class);
+        ClientHandler mockClientHandlerTwo = mock(ClientHandler.class);
+        when(mockClientHandlerOne.isConnected()).thenReturn(true);
+        when(mockClientHandlerTwo.isConnected()).thenReturn(false);
+
+        new NetworkGameManager(mockClientManager, mockClientHandlerOne, mockClientHandlerTwo,
+                Runnable::run).call();
+
+        verify(mockClientManager, never()).matchStarted(any(), any());
+        verify(mockClientManager).matchCancelled(mockClientHandlerOne, true);
+        verify(mockClientManager).matchCancelled(mockClientHandlerTwo, false);
+        verify(mockClientHandlerOne, never()).sendMessage(any());
+    }
+
+    @Test
+    public void testCall_moreIdleRespondersThanThreads() throws Exception
+    {
+        ClientManager mockClientManager = mock(ClientManager.class);
+        RematchExecutor rematchExecutor = new RematchExecutor(
+                ThreadMode.PLATFORM.newThreadFactory("test-rematch-"), 1, 16);
+        ExecutorService gameExecutor = Executors.newFixedThreadPool(2);
+
+        // neither player in the first game ever responds to the rematch
+        // request, so both wait until the timeout, one after the other
+        ClientHandler idleOne = mockPlayer(0);
+        ClientHandler idleTwo = mockPlayer(1);
+        for (ClientHandler idle : new ClientHandler[] {idleOne, idleTwo}) {
+            when(idle.receiveRematchResponse(anyInt())).thenAnswer(invocation -> {
+                Thread.sleep(invocation.<Integer>getArgument(0));
+                throw new LostConnectionException("timed out");
+            });
+        }
+        Future<Void> idleGame = gameExecutor.submit(new NetworkGameManager(mockClientManager,
+                idleOne, idleTwo, rematchExecutor, 500));
+        verify(idleTwo, timeout(5000)).sendRematchRequest();
+
+        // the only thread is busy, but the other game's players are still
+        // asked for a rematch straight away
+        ClientHandler playerOne = mockPlayer(0);
+        ClientHandler playerTwo = mockPlayer(1);
+        when(playerOne.receiveRematchResponse(anyInt())).thenReturn(false);
+        when(playerTwo.receiveRematchResponse(anyInt())).thenReturn(false);
+        Future<Void> game = gameExecutor.submit(new NetworkGameManager(mockClientManager,
+                playerOne, playerTwo, rematchExecutor, 500));
+        verify(playerOne, timeout(200)).sendRematchRequest();
+        verify(playerTwo, timeout(200)).sendRematchRequest();
+
+        // once the idle players time out, the other game finishes normally
+        assertNull("failure - game completed", game.get(5, TimeUnit.SECONDS));
+        verify(playerOne).sendMessage(Message.DENY_REMATCH);
+        verify(mockClientManager).playerMatchEnded(playerOne);
+        verify(mockClientManager).playerMatchEnded(playerTwo);
+        try {
+            idleGame.get(5, TimeUnit.SECONDS);
+            fail("idle players did not respond");
+        } catch (ExecutionException e) {
+            assertTrue("failure - idle players disconnected",
+                    e.getCause() instanceof ClientDisconnectedException);
+        }
+
+        gameExecutor.shutdownNow();
+        rematchExecutor.shutdown();
+    }
+
+    /**
+     * Returns a mock player which is connected and always plays in the
+     * specified column.
+     */
+    private static ClientHandler mockPlayer(int column)
+    {
+        ClientHandler player = mock(ClientHandler.class);
+        when(player.isConnected()).thenReturn(true);
+        when(player.getMove(any())).thenReturn(Optional.of(column));
+        return player;
     }
 }
@@ -0,0 +1,154 @@
+package ttaomae.connectn.network.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import ttaomae.connectn.network.LostConnectionException;
+import ttaomae.connectn.network.ProtocolEvent;
+import ttaomae.connectn.network.ProtocolEvent.Message;
+import ttaomae.connectn.network.ProtocolHandler;
+
+public class NioServerTest
+{
+    private static final int TIMEOUT_MILLIS = 5000;
+
+    private NioServer server;
+    private int port;
+
+    @Before
+    public void setup() throws InterruptedException
+    {
+        // a single event loop adds players to the lobby in the order they connect
+        this.server = new NioServer(0, 1);
+        Thread serverThread = new Thread(this.server, "nio-server-test");
+        serverThread.setDaemon(true);
+        serverThread.start();
+
+        this.port = this.server.getLocalPort(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        assertTrue("failure - server should be listening", this.port > 0);
+    }
+
+    @After
+    public void tearDown()
+    {
+        this.server.stop();
+    }
+
+    @Test
+    public void testConstructor()
+    {
+        try {
+            new NioServer(-1);
+            fail("constructor with negative port");
+        } catch (IllegalArgumentException e) {
+            assertEquals("failure - negative port", "port out of range: -1", e.getMessage());
+        }
+
+        try {
+            new NioServer(0, 0);
+            fail("constructor with no event loops");
+        } catch (IllegalArgumentException e) {
+            assertEquals("failure - no event loops", "eventLoopCount must be positive",
+                    e.getMessage());
+        }
+    }
+
+    @Test
+    public void testPlayMatch() throws IOException, LostConnectionException
+    {
+        try (Socket playerOneSocket = connect(); Socket playerTwoSocket = connect()) {
+            ProtocolHandler playerOne = new ProtocolHandler(playerOneSocket);
+            ProtocolHandler playerTwo = new ProtocolHandler(playerTwoSocket);
+
+            assertMessage(Message.START_GAME, playerOne.receiveEvent());
+            assertMessage(Message.START_GAME, playerTwo.receiveEvent());
+
+            // player one connected first, so moves first and wins vertically
+            for (int i = 0; i < 3; i++) {
+                assertMessage(Message.REQUEST_MOVE, playerOne.receiveEvent());
+                playerOne.sendPlayerMove(0);
+                assertMove(0, playerTwo.receiveEvent());
+
+                assertMessage(Message.REQUEST_MOVE, playerTwo.receiveEvent());
+                playerTwo.sendPlayerMove(1);
+                assertMove(1, playerOne.receiveEvent());
+            }
+            assertMessage(Message.REQUEST_MOVE, playerOne.receiveEvent());
+            playerOne.sendPlayerMove(0);
+            assertMove(0, playerTwo.receiveEvent());
+
+            assertMessage(Message.REQUEST_REMATCH, playerOne.receiveEvent());
+            assertMessage(Message.REQUEST_REMATCH, playerTwo.receiveEvent());
+            playerOne.sendMessage(Message.ACCEPT_REMATCH);
+            playerTwo.sendMessage(Message.ACCEPT_REMATCH);
+            assertMessage(Message.ACCEPT_REMATCH, playerTwo.receiveEvent());
+            assertMessage(Message.ACCEPT_REMATCH, playerOne.receiveEvent());
+
+            // player order switches for the rematch
+            assertMessage(Message.START_GAME, playerOne.receiveEvent());
+            assertMessage(Message.START_GAME, playerTwo.receiveEvent());
+            assertMessage(Message.REQUEST_MOVE, playerTwo.receiveEvent());
+        }
+    }
+
+    @Test
+    public void testOpponentDisconnected() throws IOException, LostConnectionException
+    {
+        try (Socket playerOneSocket = connect()) {
+            ProtocolHandler playerOne = new ProtocolHandler(playerOneSocket);
+            try (Socket playerTwoSocket = connect()) {
+                ProtocolHandler playerTwo = new ProtocolHandler(playerTwoSocket);
+                assertMessage(Message.START_GAME, playerTwo.receiveEvent());
+            }
+
+            assertMessage(Message.START_GAME, playerOne.receiveEvent());
+            assertMessage(Message.REQUEST_MOVE, playerOne.receiveEvent());
+            assertMessage(Message.OPPONENT_DISCONNECTED, playerOne.receiveEvent());
+        }
+    }
+
+    @Test
+    public void testIllegalMove() throws IOException, LostConnectionException
+    {
+        try (Socket playerOneSocket = connect(); Socket playerTwoSocket = connect()) {
+            ProtocolHandler playerOne = new ProtocolHandler(playerOneSocket);
+            ProtocolHandler playerTwo = new ProtocolHandler(playerTwoSocket);
+
+            assertMessage(Message.START_GAME, playerOne.receiveEvent());
+            assertMessage(Message.REQUEST_MOVE, playerOne.receiveEvent());
+            playerOne.sendPlayerMove(-1);
+
+            // the offending player is disconnected
+            assertMessage(Message.START_GAME, playerTwo.receiveEvent());
+            assertMessage(Message.OPPONENT_DISCONNECTED, playerTwo.receiveEvent());
+        }
+    }
+
+    private Socket connect() throws IOException
+    {
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), this.port);
+        socket.setSoTimeout(TIMEOUT_MILLIS);
+        return socket;
+    }
+
+    private static void assertMessage(Message expected, ProtocolEvent event)
+    {
+        assertEquals("failure - unexpected message", expected, event.getMessage());
+    }
+
+    private static void assertMove(int expected, ProtocolEvent event)
+    {
+        assertMessage(Message.OPPONENT_MOVE, event);
+        assertEquals("failure - unexpected move", expected, (int) event.getMove().get());
+    }
+}
@@ -0,0 +1,123 @@
+package ttaomae.connectn.network.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class RematchExecutorTest
+{
+    @Test
+    public void testConstructor()
+    {
+        try {
+            new RematchExecutor(ThreadMode.PLATFORM.newThreadFactory("test-"), 0);
+            fail("constructor with no threads");
+        } catch (IllegalArgumentException e) {
+            assertEquals("failure - no threads", "maximumThreads must be positive", e.getMessage());
+        }
+
+        try {
+            new RematchExecutor(ThreadMode.PLATFORM.newThreadFactory("test-"), 1, 0);
+            fail("constructor with no queue capacity");
+        } catch (IllegalArgumentException e) {
+            assertEquals("failure - no queue capacity", "queueCapacity must be positive",
+                    e.getMessage());
+        }
+    }
+
+    @Test
+    public void testExecute_bounded() throws InterruptedException
+    {
+        RematchExecutor executor = new RematchExecutor(
+                ThreadMode.PLATFORM.newThreadFactory("test-rematch-"), 1, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(3);
+
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            finished.countDown();
+        });
+        assertTrue("failure - first task started", started.await(5, TimeUnit.SECONDS));
+
+        // the only thread is busy, so the next task is queued
+        AtomicReference<Thread> runner = new AtomicReference<>();
+        executor.execute(() -> {
+            runner.set(Thread.currentThread());
+            finished.countDown();
+        });
+        assertEquals("failure - second task queued", 1, executor.getQueuedCount());
+
+        // the queue is full, so the submitter waits for space
+        Thread submitter = new Thread(() -> executor.execute(finished::countDown));
+        submitter.start();
+        submitter.join(100);
+        assertTrue("failure - submitter waiting for space", submitter.isAlive());
+
+        release.countDown();
+        submitter.join(5000);
+        assertFalse("failure - submitter finished waiting", submitter.isAlive());
+        assertTrue("failure - all tasks ran", finished.await(5, TimeUnit.SECONDS));
+        assertNotSame("failure - task did not run on caller", Thread.currentThread(), runner.get());
+
+        assertEquals("failure - submitted count", 3, executor.getSubmittedCount());
+        assertEquals("failure - blocked count", 1, executor.getBlockedCount());
+        assertEquals("failure - largest pool size", 1, executor.getLargestPoolSize());
+
+        executor.shutdown();
+        assertTrue("failure - terminated", executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals("failure - no threads after shutdown", 0, executor.getPoolSize());
+
+        try {
+            executor.execute(() -> { });
+            fail("execute after shutdown");
+        } catch (RejectedExecutionException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testPerTask() throws InterruptedException
+    {
+        int taskCount = RematchExecutor.DEFAULT_MAXIMUM_THREADS + 1;
+        RematchExecutor executor = RematchExecutor.perTask(
+                ThreadMode.PLATFORM.newThreadFactory("test-rematch-"));
+        CountDownLatch started = new CountDownLatch(taskCount);
+        CountDownLatch release = new CountDownLatch(1);
+
+        // every task waits at once, more than a bounded pool would allow
+        for (int i = 0; i < taskCount; i++) {
+            executor.execute(() -> {
+                started.countDown();
+                try {
+                    release.await();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        assertTrue("failure - all tasks started", started.await(5, TimeUnit.SECONDS));
+        assertEquals("failure - one thread per task", taskCount, executor.getLargestPoolSize());
+        assertEquals("failure - nothing queued", 0, executor.getQueuedCount());
+
+        release.countDown();
+        executor.shutdown();
+        assertTrue("failure - terminated", executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+}
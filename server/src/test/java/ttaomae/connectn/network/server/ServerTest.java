@@ -23,5 +23,12 @@ public class ServerTest
         } catch (IllegalArgumentException e) {
             assertEquals("failure - port out of range", "port out of range: 1000000", e.getMessage());
         }
+
+        try {
+            new Server(0, null);
+            fail("constructor with null thread mode");
+        } catch (NullPointerException e) {
+            assertEquals("failure - null thread mode", "threadMode must not be null", e.getMessage());
+        }
     }
 }
@@ -0,0 +1,40 @@
+package ttaomae.connectn.network.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.ThreadFactory;
+
+import org.junit.Test;
+
+public class ThreadModeTest
+{
+    @Test
+    public void testFromName()
+    {
+        assertEquals("failure - platform", ThreadMode.PLATFORM, ThreadMode.fromName("platform"));
+        assertEquals("failure - virtual", ThreadMode.VIRTUAL, ThreadMode.fromName("Virtual"));
+
+        try {
+            ThreadMode.fromName("green");
+            fail("unknown thread mode");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testNewThreadFactory()
+    {
+        assertTrue("failure - platform threads are always supported",
+                ThreadMode.PLATFORM.isSupported());
+
+        // virtual threads fall back to platform threads when unsupported
+        for (ThreadMode threadMode : ThreadMode.values()) {
+            ThreadFactory threadFactory = threadMode.newThreadFactory("test-");
+            Thread thread = threadFactory.newThread(() -> { });
+            assertEquals("failure - thread name", "test-0", thread.getName());
+        }
+    }
+}